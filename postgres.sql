@@ -23,7 +23,8 @@ SET row_security = off;
 
 CREATE TABLE public.tb_category (
     id bigint NOT NULL,
-    name character varying(100) NOT NULL
+    name character varying(100) NOT NULL,
+    version bigint DEFAULT 0 NOT NULL
 );
 
 
@@ -50,10 +51,35 @@ CREATE TABLE public.tb_product (
     image_url character varying(255),
     description character varying(255) NOT NULL,
     name character varying(150) NOT NULL,
-    price numeric(38,2) NOT NULL
+    price numeric(38,2) NOT NULL,
+    version bigint DEFAULT 0 NOT NULL
 );
 
 
+--
+-- Name: tb_product_seq; Type: SEQUENCE; Schema: public; Owner: -
+--
+
+CREATE SEQUENCE public.tb_product_seq
+    START WITH 1
+    INCREMENT BY 50
+    NO MINVALUE
+    NO MAXVALUE
+    CACHE 1;
+
+
+--
+-- Name: tb_category_seq; Type: SEQUENCE; Schema: public; Owner: -
+--
+
+CREATE SEQUENCE public.tb_category_seq
+    START WITH 1
+    INCREMENT BY 50
+    NO MINVALUE
+    NO MAXVALUE
+    CACHE 1;
+
+
 --
 -- Name: tb_product_category; Type: TABLE; Schema: public; Owner: -
 --
@@ -78,6 +104,76 @@ ALTER TABLE public.tb_product ALTER COLUMN id ADD GENERATED BY DEFAULT AS IDENTI
 );
 
 
+--
+-- Name: tb_exchange_rate; Type: TABLE; Schema: public; Owner: -
+--
+
+CREATE TABLE public.tb_exchange_rate (
+    id bigint NOT NULL,
+    base_code character varying(3) NOT NULL,
+    currency_code character varying(3) NOT NULL,
+    rate numeric(24,10) NOT NULL,
+    fetched_at timestamp(6) with time zone NOT NULL
+);
+
+
+--
+-- Name: tb_exchange_rate_id_seq; Type: SEQUENCE; Schema: public; Owner: -
+--
+
+ALTER TABLE public.tb_exchange_rate ALTER COLUMN id ADD GENERATED BY DEFAULT AS IDENTITY (
+    SEQUENCE NAME public.tb_exchange_rate_id_seq
+    START WITH 1
+    INCREMENT BY 1
+    NO MINVALUE
+    NO MAXVALUE
+    CACHE 1
+);
+
+
+--
+-- Name: tb_product_price; Type: TABLE; Schema: public; Owner: -
+--
+
+CREATE TABLE public.tb_product_price (
+    currency_code character varying(3) NOT NULL,
+    product_id bigint NOT NULL,
+    base_price numeric(38,2) NOT NULL,
+    converted_price numeric(38,10) NOT NULL,
+    rate numeric(24,10) NOT NULL,
+    rate_fetched_at timestamp(6) with time zone NOT NULL
+);
+
+
+--
+-- Name: tb_catalog_change; Type: TABLE; Schema: public; Owner: -
+--
+
+CREATE TABLE public.tb_catalog_change (
+    id bigint NOT NULL,
+    changed_at timestamp(6) with time zone NOT NULL,
+    deleted boolean NOT NULL,
+    entity_id bigint NOT NULL,
+    entity_type character varying(20) NOT NULL,
+    version bigint,
+    CONSTRAINT tb_catalog_change_entity_type_check CHECK (((entity_type)::text = ANY ((ARRAY['PRODUCT'::character varying, 'CATEGORY'::character varying])::text[])))
+);
+
+
+--
+-- Name: tb_catalog_change_id_seq; Type: SEQUENCE; Schema: public; Owner: -
+--
+
+ALTER TABLE public.tb_catalog_change ALTER COLUMN id ADD GENERATED BY DEFAULT AS IDENTITY (
+    SEQUENCE NAME public.tb_catalog_change_id_seq
+    START WITH 1
+    INCREMENT BY 1
+    NO MINVALUE
+    NO MAXVALUE
+    CACHE 1
+);
+
+
 --
 -- Name: tb_category tb_category_pkey; Type: CONSTRAINT; Schema: public; Owner: -
 --
@@ -118,6 +214,46 @@ ALTER TABLE ONLY public.tb_product
     ADD CONSTRAINT uklovy3681ry0dl5ox28r6679x6 UNIQUE (name);
 
 
+--
+-- Name: tb_exchange_rate tb_exchange_rate_pkey; Type: CONSTRAINT; Schema: public; Owner: -
+--
+
+ALTER TABLE ONLY public.tb_exchange_rate
+    ADD CONSTRAINT tb_exchange_rate_pkey PRIMARY KEY (id);
+
+
+--
+-- Name: tb_exchange_rate uk_exchange_rate_base_currency; Type: CONSTRAINT; Schema: public; Owner: -
+--
+
+ALTER TABLE ONLY public.tb_exchange_rate
+    ADD CONSTRAINT uk_exchange_rate_base_currency UNIQUE (base_code, currency_code);
+
+
+--
+-- Name: tb_product_price tb_product_price_pkey; Type: CONSTRAINT; Schema: public; Owner: -
+--
+
+ALTER TABLE ONLY public.tb_product_price
+    ADD CONSTRAINT tb_product_price_pkey PRIMARY KEY (currency_code, product_id);
+
+
+--
+-- Name: tb_catalog_change tb_catalog_change_pkey; Type: CONSTRAINT; Schema: public; Owner: -
+--
+
+ALTER TABLE ONLY public.tb_catalog_change
+    ADD CONSTRAINT tb_catalog_change_pkey PRIMARY KEY (id);
+
+
+--
+-- Name: tb_catalog_change uk_catalog_change_version; Type: CONSTRAINT; Schema: public; Owner: -
+--
+
+ALTER TABLE ONLY public.tb_catalog_change
+    ADD CONSTRAINT uk_catalog_change_version UNIQUE (version);
+
+
 --
 -- Name: tb_product_category fk5r4sbavb4nkd9xpl0f095qs2a; Type: FK CONSTRAINT; Schema: public; Owner: -
 --
@@ -134,6 +270,70 @@ ALTER TABLE ONLY public.tb_product_category
     ADD CONSTRAINT fkgbof0jclmaf8wn2alsoexxq3u FOREIGN KEY (product_id) REFERENCES public.tb_product(id);
 
 
+--
+-- Name: tb_product_price fk_product_price_product; Type: FK CONSTRAINT; Schema: public; Owner: -
+--
+
+ALTER TABLE ONLY public.tb_product_price
+    ADD CONSTRAINT fk_product_price_product FOREIGN KEY (product_id) REFERENCES public.tb_product(id) ON DELETE CASCADE;
+
+
+--
+-- Name: pg_trgm; Type: EXTENSION; Schema: -; Owner: -
+--
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm WITH SCHEMA public;
+
+
+--
+-- Name: idx_product_name_trgm; Type: INDEX; Schema: public; Owner: -
+--
+
+CREATE INDEX idx_product_name_trgm ON public.tb_product USING gin (lower((name)::text) public.gin_trgm_ops);
+
+
+--
+-- Name: idx_category_name_trgm; Type: INDEX; Schema: public; Owner: -
+--
+
+CREATE INDEX idx_category_name_trgm ON public.tb_category USING gin (lower((name)::text) public.gin_trgm_ops);
+
+
+--
+-- Name: idx_product_category_category_id; Type: INDEX; Schema: public; Owner: -
+--
+
+CREATE INDEX idx_product_category_category_id ON public.tb_product_category USING btree (category_id, product_id);
+
+
+--
+-- Name: idx_product_name_id; Type: INDEX; Schema: public; Owner: -
+--
+
+CREATE INDEX idx_product_name_id ON public.tb_product USING btree (name, id);
+
+
+--
+-- Name: idx_category_name_id; Type: INDEX; Schema: public; Owner: -
+--
+
+CREATE INDEX idx_category_name_id ON public.tb_category USING btree (name, id);
+
+
+--
+-- Name: idx_catalog_change_entity; Type: INDEX; Schema: public; Owner: -
+--
+
+CREATE INDEX idx_catalog_change_entity ON public.tb_catalog_change USING btree (entity_type, entity_id);
+
+
+--
+-- Name: idx_catalog_change_unversioned; Type: INDEX; Schema: public; Owner: -
+--
+
+CREATE INDEX idx_catalog_change_unversioned ON public.tb_catalog_change USING btree (id) WHERE (version IS NULL);
+
+
 --
 -- PostgreSQL database dump complete
 --
\ No newline at end of file
@@ -0,0 +1,23 @@
+package com.lucasdev.productmanagementapi.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+//result of a bulk operation over the products: how many were changed, and the ids sent that don´t exist
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class BulkOperationResultDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private long affected;
+    private List<Long> missingIds = new ArrayList<>();
+}
@@ -0,0 +1,35 @@
+package com.lucasdev.productmanagementapi.DTO;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+//one entry of the change feed: the current state of the product (or category), or only the id when it was deleted
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class CatalogChangeDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private long version;
+    private String type; //PRODUCT or CATEGORY
+    private Long id;
+    private boolean deleted;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ss'Z'", timezone = "UTC")
+    private Instant changedAt;
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private ProductResponseDTO product;
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private CategoryResponseDTO category;
+}
@@ -1,5 +1,6 @@
 package com.lucasdev.productmanagementapi.DTO;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.lucasdev.productmanagementapi.entities.Category;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -16,9 +17,13 @@ public class CategoryResponseDTO implements Serializable {
     private Long id;
     private String name;
 
+    @JsonIgnore
+    private Long version; //only for the ETags
+
     public CategoryResponseDTO(Category category) {
         id = category.getId();
         name = category.getName();
+        version = category.getVersion();
     }
     //i take the Category attributes and pass to this class through the constructor
 }
@@ -0,0 +1,26 @@
+package com.lucasdev.productmanagementapi.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+//a slice of the change feed, the client keeps the lastVersion and sends it as 'since' in the next call
+//(different of the CursorPageDTO, the position comes even at the end: it´s where the next poll starts)
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class ChangeFeedDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private List<CatalogChangeDTO> changes = new ArrayList<>();
+    private int size;
+    private long lastVersion;
+    private boolean hasMore; //true = call again now with since = lastVersion, false = up to date
+}
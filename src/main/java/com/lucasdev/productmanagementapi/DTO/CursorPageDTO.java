@@ -0,0 +1,24 @@
+package com.lucasdev.productmanagementapi.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class CursorPageDTO<T> implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private List<T> content = new ArrayList<>();
+    private int size; //number of elements in this slice
+    private String next; //opaque token for the next slice... null when this is the last one
+}
+//a slice of a list paginated by cursor (keyset), different from the Page it don´t have the total of elements, so the database don´t run the COUNT
@@ -1,5 +1,6 @@
 package com.lucasdev.productmanagementapi.DTO;
 
+import com.fasterxml.jackson.annotation.JsonAlias;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
@@ -8,6 +9,8 @@ import lombok.Setter;
 
 import java.io.Serializable;
 import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
 
 @Getter
 @Setter
@@ -18,6 +21,13 @@ public class ExchangeRateApiResponseDTO implements Serializable {
 
     private static final long serialVersionUID = 1L;
 
-    @JsonProperty("conversion_rate")
-    private BigDecimal conversionrate;
+    @JsonProperty("base_code")
+    private String baseCode;
+
+    //the whole table of the base currency: 1 base = X of each currency
+    //("rates" is the name in the open access API, the secondary provider)
+    @JsonProperty("conversion_rates")
+    @JsonAlias("rates")
+    private Map<String, BigDecimal> conversionRates = new HashMap<>();
 }
+//response of the "/latest/{baseCode}" endpoint of the ExchangeRate-API
@@ -0,0 +1,24 @@
+package com.lucasdev.productmanagementapi.DTO;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Getter;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+
+import java.util.List;
+
+//the same json of the Page, plus the categories of the page (once each) that the products reference by 'categoryIds'
+@Getter
+public class NormalizedProductPageDTO extends PageImpl<ProductViewDTO> {
+
+    private static final long serialVersionUID = 1L;
+
+    //null (not in the json) when the fields don´t have the categories
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private final List<CategoryResponseDTO> categories;
+
+    public NormalizedProductPageDTO(Page<ProductResponseDTO> page, ProductFields fields) {
+        super(ProductViewDTO.listOf(page.getContent(), fields), page.getPageable(), page.getTotalElements());
+        categories = fields.includes("categories") ? ProductViewDTO.categoriesOf(page.getContent()) : null;
+    }
+}
@@ -0,0 +1,25 @@
+package com.lucasdev.productmanagementapi.DTO;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+//the cursor version of NormalizedProductPageDTO
+@Getter
+@Setter
+@NoArgsConstructor
+public class NormalizedProductSliceDTO extends CursorPageDTO<ProductViewDTO> {
+
+    private static final long serialVersionUID = 1L;
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<CategoryResponseDTO> categories;
+
+    public NormalizedProductSliceDTO(CursorPageDTO<ProductResponseDTO> slice, ProductFields fields) {
+        super(ProductViewDTO.listOf(slice.getContent(), fields), slice.getSize(), slice.getNext());
+        categories = fields.includes("categories") ? ProductViewDTO.categoriesOf(slice.getContent()) : null;
+    }
+}
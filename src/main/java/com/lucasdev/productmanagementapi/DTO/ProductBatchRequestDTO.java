@@ -0,0 +1,25 @@
+package com.lucasdev.productmanagementapi.DTO;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProductBatchRequestDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @NotEmpty(message = "send one or more product ids")
+    @Size(max = 200, message = "the max is 200 products per request")
+    private List<Long> ids = new ArrayList<>();
+}
@@ -0,0 +1,23 @@
+package com.lucasdev.productmanagementapi.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+//the products in the order of the ids of the request (each id once), and the ids that don´t exist
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProductBatchResponseDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private List<ProductResponseDTO> products = new ArrayList<>();
+    private List<Long> missingIds = new ArrayList<>();
+}
@@ -0,0 +1,25 @@
+package com.lucasdev.productmanagementapi.DTO;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.util.HashSet;
+import java.util.Set;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProductBulkDeleteDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @NotEmpty(message = "send one or more product ids")
+    @Size(max = 10000, message = "the max is 10000 products per request")
+    private Set<Long> ids = new HashSet<>();
+}
@@ -0,0 +1,31 @@
+package com.lucasdev.productmanagementapi.DTO;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.Instant;
+
+//the data of one event of the live stream (GET /products/events), the type goes in the 'event' field of the SSE
+//small on purpose: it´s written to every subscriber, who wants the whole product asks GET /products/{id}
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ProductEventDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private Long productId; //in product-created, product-updated, product-deleted and price-changed
+    private BigDecimal price; //only in price-changed
+    private Integer count; //only in the bulk events: products-created, products-updated, products-deleted and prices-changed
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", timezone = "UTC")
+    private Instant occurredAt;
+}
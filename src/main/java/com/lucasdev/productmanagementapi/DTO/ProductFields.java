@@ -0,0 +1,52 @@
+package com.lucasdev.productmanagementapi.DTO;
+
+import com.lucasdev.productmanagementapi.exceptions.InvalidParameterException;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+//what the client asked of each product in the lists: ?fields=name,price (the id always comes) and ?normalized=true,
+//where the categories come once in the page and each product has only their ids
+public record ProductFields(SortedSet<String> names, boolean normalized) implements Serializable {
+
+    //all the fields of ProductResponseDTO, in the order of its json
+    public static final List<String> ALLOWED = List.of("id", "name", "description", "price", "imageUrl", "categories", "convertedPrice", "currencyCode");
+
+    public static final ProductFields ALL = new ProductFields(Collections.unmodifiableSortedSet(new TreeSet<>(ALLOWED)), false);
+
+    public static ProductFields of(String fields, boolean normalized) {
+        if (fields == null || fields.isBlank()) {
+            return normalized ? new ProductFields(ALL.names(), true) : ALL;
+        }
+        SortedSet<String> names = new TreeSet<>();
+        names.add("id");
+        for (String field : fields.split(",")) {
+            String name = field.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            if (!ALLOWED.contains(name)) {
+                throw new InvalidParameterException("Unknown field '" + name + "', use some of: " + String.join(",", ALLOWED));
+            }
+            names.add(name);
+        }
+        return new ProductFields(Collections.unmodifiableSortedSet(names), normalized);
+    }
+
+    public boolean includes(String name) {
+        return names.contains(name);
+    }
+
+    //the same json of ProductResponseDTO, nothing to select
+    public boolean isFull() {
+        return !normalized && names.size() == ALLOWED.size();
+    }
+
+    //for the ETag: the same data in other shape are other bytes
+    public String key() {
+        return String.join(",", names) + (normalized ? ":normalized" : "");
+    }
+}
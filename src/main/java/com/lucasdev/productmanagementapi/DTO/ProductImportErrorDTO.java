@@ -0,0 +1,24 @@
+package com.lucasdev.productmanagementapi.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+//one row of the import that was not saved, and why
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProductImportErrorDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private long row; //position in the file (1 = first product, the csv header doesn´t count)
+    private String name; //null when the row couldn´t be read
+    private List<String> messages = new ArrayList<>();
+}
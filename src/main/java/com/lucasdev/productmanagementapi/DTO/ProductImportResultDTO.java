@@ -0,0 +1,24 @@
+package com.lucasdev.productmanagementapi.DTO;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+//summary of a bulk import: the valid rows are saved, the others come in the errors
+@Getter
+@Setter
+@NoArgsConstructor
+public class ProductImportResultDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private long received;
+    private long imported;
+    private long failed;
+    private List<ProductImportErrorDTO> errors = new ArrayList<>();
+    private boolean errorsTruncated; //true = more errors than the max, only the first ones are in the list
+}
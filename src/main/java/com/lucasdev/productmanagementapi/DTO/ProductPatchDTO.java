@@ -0,0 +1,37 @@
+package com.lucasdev.productmanagementapi.DTO;
+
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.util.Set;
+
+//partial update of a product (PATCH): only the fields that come in the json are changed, a null field stays as it is
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProductPatchDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Pattern(regexp = ".*\\S.*", message = "The field 'name' cannot be empty")
+    private String name;
+
+    @Pattern(regexp = ".*\\S.*", message = "The field 'description' cannot be empty")
+    private String description;
+
+    @DecimalMin(value = "0.01", message = "the price must be greather than zero")
+    private BigDecimal price;
+
+    private String imageUrl;
+
+    @Size(min = 1, message = "the product need´s one or more categories!")
+    private Set<Long> categoryIds; //null = the categories don´t change
+}
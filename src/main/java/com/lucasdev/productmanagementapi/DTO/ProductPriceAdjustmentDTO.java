@@ -0,0 +1,30 @@
+package com.lucasdev.productmanagementapi.DTO;
+
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+
+//a percentage over the price of all the products of a category, ex: 5 = +5%, -10 = 10% off
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProductPriceAdjustmentDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @NotNull(message = "the field 'categoryId' cannot be null")
+    private Long categoryId;
+
+    @NotNull(message = "the field 'percentage' cannot be null")
+    @DecimalMin(value = "-99.99", message = "the percentage must be greater than -100")
+    @DecimalMax(value = "1000", message = "the percentage must be 1000 or less")
+    private BigDecimal percentage;
+}
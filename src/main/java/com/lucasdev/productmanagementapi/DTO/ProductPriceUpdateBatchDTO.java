@@ -0,0 +1,27 @@
+package com.lucasdev.productmanagementapi.DTO;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProductPriceUpdateBatchDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Valid
+    @NotEmpty(message = "send one or more prices")
+    @Size(max = 10000, message = "the max is 10000 prices per request")
+    private List<ProductPriceUpdateDTO> prices = new ArrayList<>();
+}
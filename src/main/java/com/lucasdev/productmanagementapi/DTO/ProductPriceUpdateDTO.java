@@ -0,0 +1,28 @@
+package com.lucasdev.productmanagementapi.DTO;
+
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+
+//the new price of one product, inside a bulk price update
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProductPriceUpdateDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @NotNull(message = "the field 'id' cannot be null")
+    private Long id;
+
+    @NotNull(message = "the field 'price' cannot be null")
+    @DecimalMin(value = "0.01", message = "the price must be greather than zero")
+    private BigDecimal price;
+}
@@ -0,0 +1,22 @@
+package com.lucasdev.productmanagementapi.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProductQuotationBatchResponseDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private List<ProductQuotationRowDTO> quotations = new ArrayList<>(); //in the same order of the request
+    private List<Long> missingProductIds = new ArrayList<>(); //the ids that don´t exist, the others are still returned
+}
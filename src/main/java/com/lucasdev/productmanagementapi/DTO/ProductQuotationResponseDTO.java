@@ -1,5 +1,6 @@
 package com.lucasdev.productmanagementapi.DTO;
 
+import com.fasterxml.jackson.annotation.JsonFormat;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -7,6 +8,7 @@ import lombok.Setter;
 
 import java.io.Serializable;
 import java.math.BigDecimal;
+import java.time.Instant;
 
 @Getter
 @Setter
@@ -21,4 +23,7 @@ public class ProductQuotationResponseDTO implements Serializable {
     private BigDecimal originalPriceBRL; //price in real R$
     private BigDecimal convertedPrice;
     private String currencyCode; //the code that was converted... USD, EUR
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ss'Z'", timezone = "UTC")
+    private Instant rateFetchedAt; //when the rate table used in the conversion was downloaded
+    private boolean stale; //true = the currency API is down and the conversion used an old table
 }
\ No newline at end of file
@@ -0,0 +1,29 @@
+package com.lucasdev.productmanagementapi.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProductQuotationRowDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private Long productId;
+    private String productName;
+    private BigDecimal originalPriceBRL; //price in real R$
+    private Map<String, BigDecimal> convertedPrices = new LinkedHashMap<>(); //currency code -> converted price
+    private Map<String, Instant> ratesFetchedAt = new LinkedHashMap<>(); //currency code -> when the table of the rate was downloaded
+    private boolean stale; //true = some price of the row used an old table (the currency API is down)
+}
+//one line of the batch quotation: one product with the price in all the requested currencies
@@ -1,5 +1,7 @@
 package com.lucasdev.productmanagementapi.DTO;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.lucasdev.productmanagementapi.entities.Product;
 import lombok.*;
 
@@ -25,12 +27,24 @@ public class ProductResponseDTO implements Serializable {
 
     private Set<CategoryResponseDTO> categories = new HashSet<>();
 
+    //not in the json, only for the ETag of the response
+    @JsonIgnore
+    private Long version;
+
+    //only filled when the list is requested with a currencyCode, otherwise they don´t appear in the json
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private BigDecimal convertedPrice;
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String currencyCode;
+
     public ProductResponseDTO(Product product) {
         id = product.getId();
         name = product.getName();
         description = product.getDescription();
         price = product.getPrice();
         imageUrl = product.getImageUrl();
+        version = product.getVersion();
 
         //using stream for take the Collection of my product class, and passing to a new collection of CategoryResponseDTO
         categories = product.getCategories().stream().map(CategoryResponseDTO::new).collect(Collectors.toSet());
@@ -0,0 +1,105 @@
+package com.lucasdev.productmanagementapi.DTO;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+//a product of the lists as the client asked (see ProductFields). it only points to the dto, that can be the same
+//instance of the CatalogCache for all the requests, so nothing of it is copied or changed: the fields are chosen
+//when the json is written
+@Getter
+@AllArgsConstructor
+@JsonSerialize(using = ProductViewDTO.Serializer.class)
+public class ProductViewDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final ProductResponseDTO product;
+    private final ProductFields fields;
+
+    public static List<ProductViewDTO> listOf(List<ProductResponseDTO> products, ProductFields fields) {
+        List<ProductViewDTO> views = new ArrayList<>(products.size());
+        for (ProductResponseDTO product : products) {
+            views.add(new ProductViewDTO(product, fields));
+        }
+        return views;
+    }
+
+    //each category of the page once, by id, for the normalized lists
+    public static List<CategoryResponseDTO> categoriesOf(Collection<ProductResponseDTO> products) {
+        Map<Long, CategoryResponseDTO> categories = new TreeMap<>();
+        for (ProductResponseDTO product : products) {
+            product.getCategories().forEach(c -> categories.putIfAbsent(c.getId(), c));
+        }
+        return new ArrayList<>(categories.values());
+    }
+
+    //written by hand, without the reflection of the beans: a selected field that is null still goes as null
+    public static class Serializer extends StdSerializer<ProductViewDTO> {
+
+        public Serializer() {
+            super(ProductViewDTO.class);
+        }
+
+        @Override
+        public void serialize(ProductViewDTO view, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            ProductResponseDTO product = view.getProduct();
+            ProductFields fields = view.getFields();
+            if (fields.isFull()) {
+                provider.defaultSerializeValue(product, gen);
+                return;
+            }
+
+            gen.writeStartObject();
+            gen.writeNumberField("id", product.getId());
+            if (fields.includes("name")) {
+                gen.writeStringField("name", product.getName());
+            }
+            if (fields.includes("description")) {
+                gen.writeStringField("description", product.getDescription());
+            }
+            if (fields.includes("price")) {
+                provider.defaultSerializeField("price", product.getPrice(), gen);
+            }
+            if (fields.includes("imageUrl")) {
+                gen.writeStringField("imageUrl", product.getImageUrl());
+            }
+            if (fields.includes("categories")) {
+                if (fields.normalized()) {
+                    gen.writeArrayFieldStart("categoryIds");
+                    for (CategoryResponseDTO category : product.getCategories()) {
+                        gen.writeNumber(category.getId());
+                    }
+                } else {
+                    gen.writeArrayFieldStart("categories");
+                    for (CategoryResponseDTO category : product.getCategories()) {
+                        gen.writeStartObject();
+                        gen.writeNumberField("id", category.getId());
+                        gen.writeStringField("name", category.getName());
+                        gen.writeEndObject();
+                    }
+                }
+                gen.writeEndArray();
+            }
+            //like in ProductResponseDTO, only in the lists with a currencyCode
+            if (fields.includes("convertedPrice") && product.getConvertedPrice() != null) {
+                provider.defaultSerializeField("convertedPrice", product.getConvertedPrice(), gen);
+            }
+            if (fields.includes("currencyCode") && product.getCurrencyCode() != null) {
+                gen.writeStringField("currencyCode", product.getCurrencyCode());
+            }
+            gen.writeEndObject();
+        }
+    }
+}
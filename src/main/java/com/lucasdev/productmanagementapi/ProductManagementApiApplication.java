@@ -2,8 +2,10 @@ package com.lucasdev.productmanagementapi;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling //for the refresh of the exchange rates
 public class ProductManagementApiApplication {
 
 	public static void main(String[] args) {
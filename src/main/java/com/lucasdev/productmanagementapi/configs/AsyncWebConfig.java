@@ -0,0 +1,22 @@
+package com.lucasdev.productmanagementapi.configs;
+
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+
+@Configuration
+public class AsyncWebConfig {
+
+    //spring MVC writes the items of a streamed response (the SSE of GET /products/events) in this executor, and the
+    //write to a client is blocking: a slow client keeps its thread until the socket has space again. in the default pool
+    //(8 threads) a few slow clients would stop the events of the thousands of others, with virtual threads each blocked
+    //write costs only a few KB
+    @Bean(name = TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+    public AsyncTaskExecutor applicationTaskExecutor() {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("mvc-async-");
+        executor.setVirtualThreads(true);
+        return executor;
+    }
+}
@@ -0,0 +1,50 @@
+package com.lucasdev.productmanagementapi.configs;
+
+import com.lucasdev.productmanagementapi.integrations.CircuitBreaker;
+import com.lucasdev.productmanagementapi.integrations.CompositeRateTableProvider;
+import com.lucasdev.productmanagementapi.integrations.HttpRateTableProvider;
+import com.lucasdev.productmanagementapi.integrations.PersistedRateTableProvider;
+import com.lucasdev.productmanagementapi.integrations.RateSnapshotStore;
+import com.lucasdev.productmanagementapi.integrations.RateTableProvider;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+//the sources of the rate table used by the ExchangeRateApiClient: the primary API, the secondary API (optional)
+//and the persisted table as the last option, all inside one composite that routes by latency
+@Configuration
+public class ExchangeRateProviderConfig {
+
+    @Bean(name = "exchangeRateProvider")
+    public RateTableProvider exchangeRateProvider(@Qualifier("exchangeRateApiClient") WebClient primaryClient,
+                                                  @Qualifier("openExchangeRateApiClient") WebClient secondaryClient,
+                                                  @Value("${exchangerate.secondary.enabled:true}") boolean secondaryEnabled,
+                                                  @Value("${exchangerate.http.request-timeout:PT5S}") Duration requestTimeout,
+                                                  @Value("${exchangerate.circuit-breaker.failure-threshold:5}") int failureThreshold,
+                                                  @Value("${exchangerate.circuit-breaker.open-duration:PT30S}") Duration openDuration,
+                                                  @Value("${exchangerate.routing.hedging.enabled:true}") boolean hedgingEnabled,
+                                                  @Value("${exchangerate.routing.hedging.percentile:0.95}") double hedgePercentile,
+                                                  @Value("${exchangerate.routing.hedging.min-delay:PT0.2S}") Duration minHedgeDelay,
+                                                  @Value("${exchangerate.routing.failure-penalty:PT1M}") Duration failurePenalty,
+                                                  RateSnapshotStore snapshotStore,
+                                                  MeterRegistry meterRegistry) {
+        List<RateTableProvider> liveProviders = new ArrayList<>();
+        //each API with its own circuit breaker
+        liveProviders.add(new HttpRateTableProvider("exchangerate", primaryClient, requestTimeout,
+                new CircuitBreaker("exchangerate", failureThreshold, openDuration, meterRegistry)));
+        if (secondaryEnabled) {
+            liveProviders.add(new HttpRateTableProvider("open-exchangerate", secondaryClient, requestTimeout,
+                    new CircuitBreaker("open-exchangerate", failureThreshold, openDuration, meterRegistry)));
+        }
+
+        return new CompositeRateTableProvider(liveProviders, new PersistedRateTableProvider(snapshotStore),
+                hedgingEnabled, hedgePercentile, minHedgeDelay, failurePenalty, meterRegistry);
+    }
+}
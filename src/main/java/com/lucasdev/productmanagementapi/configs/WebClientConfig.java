@@ -1,9 +1,16 @@
 package com.lucasdev.productmanagementapi.configs;
 
+import io.netty.channel.ChannelOption;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
 
 
 @Configuration
@@ -17,11 +24,61 @@ public class WebClientConfig {
     @Value("${exchangerate.api.baseurl}")
     private String exchangeRateApiBaseUrl;
 
+    //the connections to the currency API, reused between the calls (keep-alive) and limited, so a slow API can´t open
+    //connections without end. pool metrics: reactor.netty.connection.provider.* (total, active, idle and pending connections)
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider exchangeRateConnectionProvider(@Value("${exchangerate.http.max-connections:20}") int maxConnections,
+                                                             @Value("${exchangerate.http.pending-acquire-timeout:PT2S}") Duration pendingAcquireTimeout,
+                                                             @Value("${exchangerate.http.max-idle-time:PT30S}") Duration maxIdleTime,
+                                                             @Value("${exchangerate.http.max-life-time:PT5M}") Duration maxLifeTime) {
+        return ConnectionProvider.builder("exchangerate")
+                .maxConnections(maxConnections)
+                .pendingAcquireTimeout(pendingAcquireTimeout) //waiting a free connection
+                .maxIdleTime(maxIdleTime) //closing before the server (or a proxy) closes it on us
+                .maxLifeTime(maxLifeTime)
+                .evictInBackground(maxIdleTime)
+                .metrics(true)
+                .build();
+    }
+
     //uses bean notation because this is external library that are being added to program
+    //the builder of spring already has the jackson of the app and the http.client.requests metrics (latency by uri template)
     @Bean(name = "exchangeRateApiClient")
-    public WebClient exchangeRateApiClient(){
-        return WebClient.builder().baseUrl(exchangeRateApiBaseUrl
+    public WebClient exchangeRateApiClient(WebClient.Builder builder,
+                                           ConnectionProvider exchangeRateConnectionProvider,
+                                           @Value("${exchangerate.http.connect-timeout:PT2S}") Duration connectTimeout,
+                                           @Value("${exchangerate.http.read-timeout:PT5S}") Duration readTimeout,
+                                           @Value("${exchangerate.http.max-response-size:512KB}") DataSize maxResponseSize){
+        return buildClient(builder, exchangeRateApiBaseUrl
                 + exchangeRateApiKey
-                + "/").build();
+                + "/", exchangeRateConnectionProvider, connectTimeout, readTimeout, maxResponseSize);
+    }
+
+    //the second API (open access version of the ExchangeRate-API, without key), used when the first is slow or down
+    //same pool (the limit of connections is by host) and the same timeouts
+    @Bean(name = "openExchangeRateApiClient")
+    public WebClient openExchangeRateApiClient(WebClient.Builder builder,
+                                               ConnectionProvider exchangeRateConnectionProvider,
+                                               @Value("${exchangerate.secondary.baseurl:https://open.er-api.com/v6/}") String baseUrl,
+                                               @Value("${exchangerate.http.connect-timeout:PT2S}") Duration connectTimeout,
+                                               @Value("${exchangerate.http.read-timeout:PT5S}") Duration readTimeout,
+                                               @Value("${exchangerate.http.max-response-size:512KB}") DataSize maxResponseSize){
+        return buildClient(builder, baseUrl, exchangeRateConnectionProvider, connectTimeout, readTimeout, maxResponseSize);
+    }
+
+    private WebClient buildClient(WebClient.Builder builder, String baseUrl, ConnectionProvider connectionProvider,
+                                  Duration connectTimeout, Duration readTimeout, DataSize maxResponseSize) {
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+                .keepAlive(true)
+                .responseTimeout(readTimeout) //max time without receiving anything of the response
+                //the path has the api key, so the metrics use the template (never the real uri)
+                .metrics(true, uri -> "/latest/{baseCode}");
+
+        return builder.baseUrl(baseUrl)
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                //a rate table has some KB, a bigger response is an error and not something to keep in memory
+                .codecs(codecs -> codecs.defaultCodecs().maxInMemorySize((int) maxResponseSize.toBytes()))
+                .build();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,41 @@
+package com.lucasdev.productmanagementapi.controllers;
+
+import com.lucasdev.productmanagementapi.DTO.ChangeFeedDTO;
+import com.lucasdev.productmanagementapi.services.CatalogChangeService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping(value = "/changes")
+@Tag(name = "Changes", description = "Change feed of the catalog, for the systems that keep a copy of it")
+public class CatalogChangeController {
+
+    private final CatalogChangeService catalogChangeService;
+
+    public CatalogChangeController(CatalogChangeService catalogChangeService) {
+        this.catalogChangeService = catalogChangeService;
+    }
+
+    //the mirror starts with since=0 (or after a full GET /products/export), and then only asks the deltas
+    @GetMapping
+    @Operation(summary = "List the catalog changes after a version", description = "Return the products and categories created, changed or deleted after the version 'since', ordered by version. Each entity comes once, with its current state, or with 'deleted' = true (tombstone). Keep the 'lastVersion' of the response and send it as 'since' in the next call; while 'hasMore' is true there are more changes to read now.", parameters = {
+            @Parameter(name = "since", description = "Last version already applied by the client, 0 for everything", required = false, schema = @Schema(type = "integer", defaultValue = "0")),
+            @Parameter(name = "size", description = "Max number of changes (max 1000)", required = false, schema = @Schema(type = "integer", defaultValue = "100"))
+    }, responses = {
+            @ApiResponse(responseCode = "200", description = "Changes recovered with successfully", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ChangeFeedDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid version", content = @Content),
+            @ApiResponse(responseCode = "500", description = "Internal server error, unexpected error.", content = @Content)
+    })
+    public ResponseEntity<ChangeFeedDTO> findChanges(@RequestParam(name = "since", defaultValue = "0") long since, @RequestParam(name = "size", defaultValue = "100") int size) {
+        return ResponseEntity.ok().body(catalogChangeService.findChanges(since, size));
+    }
+}
@@ -2,6 +2,7 @@ package com.lucasdev.productmanagementapi.controllers;
 
 import com.lucasdev.productmanagementapi.DTO.CategoryRequestDTO;
 import com.lucasdev.productmanagementapi.DTO.CategoryResponseDTO;
+import com.lucasdev.productmanagementapi.DTO.CursorPageDTO;
 import com.lucasdev.productmanagementapi.DTO.StandardMessageDTO;
 import com.lucasdev.productmanagementapi.services.CategoryService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -28,10 +29,12 @@ public class CategoryController {
 
     //here i can use FINAL using the injection via constructor instead of using the @Autowired
     private final CategoryService categoryService;
+    private final ResponseCaching responseCaching; //ETag and Cache-Control of the GETs
 
     //dependency injection via constructor
-    public CategoryController(CategoryService categoryService) {
+    public CategoryController(CategoryService categoryService, ResponseCaching responseCaching) {
         this.categoryService = categoryService;
+        this.responseCaching = responseCaching;
     }
 
     //the path of my endpoint
@@ -44,13 +47,15 @@ public class CategoryController {
                     @ApiResponse(responseCode = "200", description = "Successfully retrieved category",
                             content = @Content(mediaType = "application/json",
                                     schema = @Schema(implementation = CategoryResponseDTO.class))),
+                    @ApiResponse(responseCode = "304", description = "Not modified, the ETag sent in If-None-Match is still the current one", content = @Content),
                     @ApiResponse(responseCode = "404", description = "Category not found, for more details enter in https://developer.mozilla.org/en-US/docs/Web/HTTP/Reference/Status/404",
                             //a little gift here to know more details about the error
                             content = @Content)
             })
     public ResponseEntity<CategoryResponseDTO> findById( @PathVariable Long id) {
         CategoryResponseDTO dto = categoryService.findById(id);
-        return ResponseEntity.ok().body(dto);
+        //with the ETag spring answers 304 by itself when the If-None-Match is the same
+        return ResponseEntity.ok().eTag(responseCaching.etag(dto)).cacheControl(responseCaching.cacheControl()).body(dto);
     }
 
     //new endpoint for list all categories with pagination
@@ -63,7 +68,22 @@ public class CategoryController {
     })
     public ResponseEntity<Page<CategoryResponseDTO>> findAllPaged(@PageableDefault(page = 0, size = 10, sort = "name") Pageable pageable){
         Page<CategoryResponseDTO> list = categoryService.findAllPaged(pageable);
-        return ResponseEntity.ok().body(list);
+        String etag = responseCaching.etagOfCategories(list.getContent(), list.getNumber(), list.getSize(), list.getTotalElements());
+        return ResponseEntity.ok().eTag(etag).cacheControl(responseCaching.cacheControl()).body(list);
+    }
+
+    //the same list but with cursor (keyset) pagination, called when the request has the 'cursor' parameter
+    @GetMapping(params = "cursor")
+    @Operation(summary = "List all categories (cursor paginated)", description = "Get a slice of categories sorted by name using an opaque cursor, send 'cursor' empty for the first slice. No total count is returned.", responses = {
+            @ApiResponse(responseCode = "200", description = "Slice recovered with successfully", content = @Content(mediaType = "application/json", schema = @Schema(implementation = CursorPageDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor", content = @Content),
+            @ApiResponse(responseCode = "500", description = "Internal server error, unexpected error.",
+                    content = @Content)
+    })
+    public ResponseEntity<CursorPageDTO<CategoryResponseDTO>> findAllByCursor(@RequestParam(name = "cursor", required = false) String cursor, @RequestParam(name = "size", defaultValue = "10") int size) {
+        CursorPageDTO<CategoryResponseDTO> slice = categoryService.findAllByCursor(cursor, size);
+        String etag = responseCaching.etagOfCategories(slice.getContent(), slice.getNext());
+        return ResponseEntity.ok().eTag(etag).cacheControl(responseCaching.cacheControl()).body(slice);
     }
 
     //endpoint for insert a category in the program
@@ -1,33 +1,61 @@
 package com.lucasdev.productmanagementapi.controllers;
 
 import com.lucasdev.productmanagementapi.DTO.*;
+import com.lucasdev.productmanagementapi.services.ProductBulkService;
+import com.lucasdev.productmanagementapi.services.ProductEventBroadcaster;
+import com.lucasdev.productmanagementapi.services.ProductExportService;
+import com.lucasdev.productmanagementapi.services.ProductImportService;
 import com.lucasdev.productmanagementapi.services.ProductService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.time.Instant;
+import java.util.List;
 
 @RestController
 @RequestMapping(value = "/products")
 public class ProductController {
 
     private final ProductService productService;
+    private final ProductImportService productImportService;
+    private final ProductBulkService productBulkService;
+    private final ProductExportService productExportService;
+    private final ProductEventBroadcaster productEventBroadcaster;
+    private final ResponseCaching responseCaching;
+    private final ProductJsonCache productJsonCache;
 
     //dependency via constructor!
-    public ProductController(ProductService productService) {
+    public ProductController(ProductService productService, ProductImportService productImportService,
+                             ProductBulkService productBulkService, ProductExportService productExportService,
+                             ProductEventBroadcaster productEventBroadcaster, ResponseCaching responseCaching,
+                             ProductJsonCache productJsonCache) {
         this.productService = productService;
+        this.productImportService = productImportService;
+        this.productBulkService = productBulkService;
+        this.productExportService = productExportService;
+        this.productEventBroadcaster = productEventBroadcaster;
+        this.responseCaching = responseCaching;
+        this.productJsonCache = productJsonCache;
     }
 
     //first endpoint of productController
@@ -36,16 +64,63 @@ public class ProductController {
     @Operation(summary = "Get the product by id", description = "Find the product in the repository putting your unique identifier (id)", responses = {
             //if product finded show the code 200
             @ApiResponse(responseCode = "200", description = "Successfully retrieved product", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ProductResponseDTO.class))),
+            @ApiResponse(responseCode = "304", description = "Not modified, the ETag sent in If-None-Match is still the current one", content = @Content),
             //if bad request show code 400 in documentation... etc
             @ApiResponse(responseCode = "400", description = "Bad request enter", content = @Content),
             @ApiResponse(responseCode = "404", description = "Product not found", content = @Content),
             @ApiResponse(responseCode = "500", description = "Internal server error, unexpected error occurred.", content = @Content)
     })
-    public ResponseEntity<ProductResponseDTO> findProductById(@PathVariable("id") Long id) {
+    //the body goes as the bytes already encoded (see ProductJsonCache), jackson only runs for a new version of the product
+    public ResponseEntity<byte[]> findProductById(@PathVariable("id") Long id, @RequestHeader(name = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
         //get the dto from the service layer
         ProductResponseDTO dto = productService.findProductById(id);
-        //return to the final user the 'ok' (code 200),  and dto with (body)!
-        return ResponseEntity.ok().body(dto);
+        ProductJsonCache.EncodedProduct encoded = productJsonCache.get(dto, responseCaching.etag(dto));
+
+        //return to the final user the 'ok' (code 200) with the json! or 304 when the client already has this version
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .cacheControl(responseCaching.cacheControl())
+                .varyBy(HttpHeaders.ACCEPT_ENCODING);
+        if (encoded.gzip() != null && ResponseCaching.acceptsGzip(acceptEncoding)) {
+            //other bytes, other strong ETag
+            return response.eTag(ResponseCaching.gzipVariant(encoded.etag())).header(HttpHeaders.CONTENT_ENCODING, "gzip").body(encoded.gzip());
+        }
+        return response.eTag(encoded.etag()).body(encoded.json());
+    }
+
+    @GetMapping(value = "/batch")
+    @Operation(summary = "Get many products by id", description = "Find the products of the list in one request (the same json of GET /products/{id} for each one). The products come in the order of the ids, a repeated id only once, and the ids that don´t exist are listed in 'missingIds' without failing the request.", parameters = {
+            @Parameter(name = "ids", description = "The ids separated by comma, max 200", required = true, example = "1,2,3")
+    }, responses = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved products", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ProductBatchResponseDTO.class))),
+            @ApiResponse(responseCode = "304", description = "Not modified, the ETag sent in If-None-Match is still the current one", content = @Content),
+            @ApiResponse(responseCode = "400", description = "No ids or more than the limit", content = @Content),
+            @ApiResponse(responseCode = "500", description = "Internal server error, unexpected error occurred.", content = @Content)
+    })
+    public ResponseEntity<ProductBatchResponseDTO> findProductsByIds(@RequestParam(name = "ids") List<Long> ids) {
+        ProductBatchResponseDTO batch = productService.findProductsByIds(ids);
+        //a product created with one of the missing ids changes the response too
+        return ResponseEntity.ok()
+                .eTag(responseCaching.etagOfProducts(batch.getProducts(), batch.getMissingIds()))
+                .cacheControl(responseCaching.cacheControl())
+                .body(batch);
+    }
+
+    //the same for the lists too long for the url
+    @PostMapping(value = "/batch")
+    @Operation(summary = "Get many products by id (ids in the body)", description = "The same of GET /products/batch, with the ids in the body. The products come in the order of the ids and the ids that don´t exist are listed in 'missingIds'.", responses = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved products", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ProductBatchResponseDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid request data.", content = @Content),
+            @ApiResponse(responseCode = "409", description = "Validation error, empty list or more than the limit", content = @Content),
+            @ApiResponse(responseCode = "500", description = "Internal server error, unexpected error occurred.", content = @Content)
+    })
+    public ResponseEntity<ProductBatchResponseDTO> findProductsByIds(@Valid @RequestBody ProductBatchRequestDTO dto) {
+        ProductBatchResponseDTO batch = productService.findProductsByIds(dto.getIds());
+        //the same ETag of the GET for the same ids, so the client can compare the two. a POST is never answered with 304
+        //(spring only checks the If-None-Match in GET and HEAD) and it´s not cached, so no Cache-Control here
+        return ResponseEntity.ok()
+                .eTag(responseCaching.etagOfProducts(batch.getProducts(), batch.getMissingIds()))
+                .body(batch);
     }
 
     //now the endpoint of findAllPaged (can search by filters)
@@ -54,6 +129,9 @@ public class ProductController {
             // now i put parameters for a better documentation!
             @Parameter(name = "productName", description = "Filter by product name", required = false),
             @Parameter(name = "categoryName", description = "Filter by category name", required = false),
+            @Parameter(name = "currencyCode", description = "Optional 3 letter code (USD, EUR...), when sent each product comes with the 'convertedPrice' too", required = false, schema = @Schema(type = "string", example = "USD")),
+            @Parameter(name = "fields", description = "Optional, only these fields of each product separated by comma (the id always comes): id,name,description,price,imageUrl,categories,convertedPrice,currencyCode", required = false, schema = @Schema(type = "string", example = "name,price")),
+            @Parameter(name = "normalized", description = "Optional, when true the categories come once in 'categories' and each product has only the 'categoryIds'", required = false, schema = @Schema(type = "boolean", defaultValue = "false")),
             // Pageable parameters are usually automatically documented by Springdoc, but explicit is fine.
             //details of documentation in max level
             @Parameter(name = "page", description = "Page number (0 - indexed)", required = false, schema = @Schema(type = "integer", defaultValue = "0")),
@@ -63,16 +141,50 @@ public class ProductController {
     }, responses = {
             @ApiResponse(responseCode = "200", description = "List recovered with successfully", content = @Content(mediaType = "application/json", schema = @Schema(implementation = Page.class))),
             //the return is a page!
+            @ApiResponse(responseCode = "304", description = "Not modified, the ETag sent in If-None-Match is still the current one", content = @Content),
+            @ApiResponse(responseCode = "400", description = "Unknown field in 'fields'", content = @Content),
             @ApiResponse(responseCode = "500", description = "Internal server error, unexpected error.", content = @Content)
     })
-    public ResponseEntity<Page<ProductResponseDTO>> findAllPaged(@RequestParam(name = "productName", required = false) String productName, @RequestParam(name = "categoryName", required = false) String categoryName, @PageableDefault(page = 0, size = 10, sort = "name") Pageable pageable) {
+    public ResponseEntity<Page<ProductViewDTO>> findAllPaged(@RequestParam(name = "productName", required = false) String productName, @RequestParam(name = "categoryName", required = false) String categoryName, @RequestParam(name = "currencyCode", required = false) String currencyCode, @RequestParam(name = "fields", required = false) String fields, @RequestParam(name = "normalized", defaultValue = "false") boolean normalized, @PageableDefault(page = 0, size = 10, sort = "name") Pageable pageable) {
         //parameters for this method is the name of product and the category for do the filter, but not´s obrigatory to put
 
+        //a wrong field is refused before going to the database
+        ProductFields selection = ProductFields.of(fields, normalized);
+
         //doing the filter, the parameters have the required = false, so help in this work
         Page<ProductResponseDTO> list = productService.findAllPaged(productName, categoryName, pageable);
 
+        //one rate for the whole page (does nothing without currencyCode)
+        productService.convertPrices(list.getContent(), currencyCode);
+
         //return ok 200.. and the content!
-        return ResponseEntity.ok().body(list);
+        return pageResponse(list, selection);
+    }
+
+    //same path of the findAllPaged, but when the request has the 'cursor' parameter this one is called (keyset pagination)
+    //send "cursor=" empty for the first slice, and after the 'next' that came in the response
+    @GetMapping(params = "cursor")
+    @Operation(summary = "List all products (cursor paginated)", description = "Get a slice of products sorted by name with optional filters, using an opaque cursor instead of page numbers. No total count is returned.", parameters = {
+            @Parameter(name = "productName", description = "Filter by product name", required = false),
+            @Parameter(name = "categoryName", description = "Filter by category name", required = false),
+            @Parameter(name = "cursor", description = "The 'next' token of the previous slice, empty for the first slice", required = true),
+            @Parameter(name = "currencyCode", description = "Optional 3 letter code (USD, EUR...), when sent each product comes with the 'convertedPrice' too", required = false, schema = @Schema(type = "string", example = "USD")),
+            @Parameter(name = "fields", description = "Optional, only these fields of each product separated by comma (the id always comes): id,name,description,price,imageUrl,categories,convertedPrice,currencyCode", required = false, schema = @Schema(type = "string", example = "name,price")),
+            @Parameter(name = "normalized", description = "Optional, when true the categories come once in 'categories' and each product has only the 'categoryIds'", required = false, schema = @Schema(type = "boolean", defaultValue = "false")),
+            @Parameter(name = "size", description = "Number of elements per slice (max 100)", required = false, schema = @Schema(type = "integer", defaultValue = "10"))
+    }, responses = {
+            @ApiResponse(responseCode = "200", description = "Slice recovered with successfully", content = @Content(mediaType = "application/json", schema = @Schema(implementation = CursorPageDTO.class))),
+            @ApiResponse(responseCode = "304", description = "Not modified, the ETag sent in If-None-Match is still the current one", content = @Content),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor or unknown field in 'fields'", content = @Content),
+            @ApiResponse(responseCode = "500", description = "Internal server error, unexpected error.", content = @Content)
+    })
+    public ResponseEntity<CursorPageDTO<ProductViewDTO>> findAllByCursor(@RequestParam(name = "productName", required = false) String productName, @RequestParam(name = "categoryName", required = false) String categoryName, @RequestParam(name = "cursor", required = false) String cursor, @RequestParam(name = "currencyCode", required = false) String currencyCode, @RequestParam(name = "fields", required = false) String fields, @RequestParam(name = "normalized", defaultValue = "false") boolean normalized, @RequestParam(name = "size", defaultValue = "10") int size) {
+
+        ProductFields selection = ProductFields.of(fields, normalized);
+        CursorPageDTO<ProductResponseDTO> slice = productService.findAllByCursor(productName, categoryName, cursor, size);
+        productService.convertPrices(slice.getContent(), currencyCode);
+
+        return sliceResponse(slice, selection);
     }
 
     //endpoint of simple paged
@@ -81,18 +193,66 @@ public class ProductController {
             //Usually Here´s default messages for a good documentation in Swagger
             @Parameter(name = "page", description = "Page number (0 - indexed)", required = false, schema = @Schema(type = "integer", defaultValue = "0")),
             @Parameter(name = "size", description = "Number of elements per page", required = false, schema = @Schema(type = "integer", defaultValue = "10")),
-            @Parameter(name = "sort", description = "Sorting criteria in the format:(asc|desc). Default sort is 'name'.", required = false, schema = @Schema(type = "string", defaultValue = "name", example = "name,asc"))
+            @Parameter(name = "sort", description = "Sorting criteria in the format:(asc|desc). Default sort is 'name'.", required = false, schema = @Schema(type = "string", defaultValue = "name", example = "name,asc")),
+            @Parameter(name = "currencyCode", description = "Optional 3 letter code (USD, EUR...), when sent each product comes with the 'convertedPrice' too", required = false, schema = @Schema(type = "string", example = "USD")),
+            @Parameter(name = "fields", description = "Optional, only these fields of each product separated by comma (the id always comes): id,name,description,price,imageUrl,categories,convertedPrice,currencyCode", required = false, schema = @Schema(type = "string", example = "name,price")),
+            @Parameter(name = "normalized", description = "Optional, when true the categories come once in 'categories' and each product has only the 'categoryIds'", required = false, schema = @Schema(type = "boolean", defaultValue = "false"))
     },responses = {
             @ApiResponse(responseCode = "200", description = "Successfully retrieved list of products", content = @Content(mediaType = "application/json", schema = @Schema(implementation = Page.class))),
+            @ApiResponse(responseCode = "304", description = "Not modified, the ETag sent in If-None-Match is still the current one", content = @Content),
+            @ApiResponse(responseCode = "400", description = "Unknown field in 'fields'", content = @Content),
             @ApiResponse(responseCode = "500", description = "Internal server error, unexpected error.", content = @Content)
     })
-    public ResponseEntity<Page<ProductResponseDTO>> findAllSimplePaged(
+    public ResponseEntity<Page<ProductViewDTO>> findAllSimplePaged(
+            @RequestParam(name = "currencyCode", required = false) String currencyCode,
+            @RequestParam(name = "fields", required = false) String fields,
+            @RequestParam(name = "normalized", defaultValue = "false") boolean normalized,
             @PageableDefault(page = 0, size = 10, sort = "name") Pageable pageable) {
 
+        ProductFields selection = ProductFields.of(fields, normalized);
         Page<ProductResponseDTO> list = productService.findAllSimplePaged(pageable);
+        productService.convertPrices(list.getContent(), currencyCode);
 
         //return ok 200
-        return ResponseEntity.ok().body(list);
+        return pageResponse(list, selection);
+    }
+
+    //cursor version of the simple paged, without filters
+    @GetMapping(value = "/all", params = "cursor")
+    @Operation(summary = "List all products (simple, cursor paginated)", description = "Get a slice of all products sorted by name, using an opaque cursor instead of page numbers. No total count is returned.", parameters = {
+            @Parameter(name = "cursor", description = "The 'next' token of the previous slice, empty for the first slice", required = true),
+            @Parameter(name = "currencyCode", description = "Optional 3 letter code (USD, EUR...), when sent each product comes with the 'convertedPrice' too", required = false, schema = @Schema(type = "string", example = "USD")),
+            @Parameter(name = "fields", description = "Optional, only these fields of each product separated by comma (the id always comes): id,name,description,price,imageUrl,categories,convertedPrice,currencyCode", required = false, schema = @Schema(type = "string", example = "name,price")),
+            @Parameter(name = "normalized", description = "Optional, when true the categories come once in 'categories' and each product has only the 'categoryIds'", required = false, schema = @Schema(type = "boolean", defaultValue = "false")),
+            @Parameter(name = "size", description = "Number of elements per slice (max 100)", required = false, schema = @Schema(type = "integer", defaultValue = "10"))
+    }, responses = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved slice of products", content = @Content(mediaType = "application/json", schema = @Schema(implementation = CursorPageDTO.class))),
+            @ApiResponse(responseCode = "304", description = "Not modified, the ETag sent in If-None-Match is still the current one", content = @Content),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor or unknown field in 'fields'", content = @Content),
+            @ApiResponse(responseCode = "500", description = "Internal server error, unexpected error.", content = @Content)
+    })
+    public ResponseEntity<CursorPageDTO<ProductViewDTO>> findAllSimpleByCursor(@RequestParam(name = "cursor", required = false) String cursor, @RequestParam(name = "currencyCode", required = false) String currencyCode, @RequestParam(name = "fields", required = false) String fields, @RequestParam(name = "normalized", defaultValue = "false") boolean normalized, @RequestParam(name = "size", defaultValue = "10") int size) {
+
+        ProductFields selection = ProductFields.of(fields, normalized);
+        CursorPageDTO<ProductResponseDTO> slice = productService.findAllByCursor(null, null, cursor, size);
+        productService.convertPrices(slice.getContent(), currencyCode);
+
+        return sliceResponse(slice, selection);
+    }
+
+    //the lists are always read (the ETag depends on the whole page), but with 304 the json isn´t written nor sent
+    //the views only point to the dtos (some of them shared by the CatalogCache), the fields are chosen when the json is written
+    private ResponseEntity<Page<ProductViewDTO>> pageResponse(Page<ProductResponseDTO> page, ProductFields fields) {
+        String etag = responseCaching.etagOfProducts(page.getContent(), page.getNumber(), page.getSize(), page.getTotalElements(), fields.key());
+        Page<ProductViewDTO> body = fields.normalized() ? new NormalizedProductPageDTO(page, fields) : page.map(dto -> new ProductViewDTO(dto, fields));
+        return ResponseEntity.ok().eTag(etag).cacheControl(responseCaching.cacheControl()).body(body);
+    }
+
+    private ResponseEntity<CursorPageDTO<ProductViewDTO>> sliceResponse(CursorPageDTO<ProductResponseDTO> slice, ProductFields fields) {
+        String etag = responseCaching.etagOfProducts(slice.getContent(), slice.getNext(), fields.key());
+        CursorPageDTO<ProductViewDTO> body = fields.normalized() ? new NormalizedProductSliceDTO(slice, fields)
+                : new CursorPageDTO<>(ProductViewDTO.listOf(slice.getContent(), fields), slice.getSize(), slice.getNext());
+        return ResponseEntity.ok().eTag(etag).cacheControl(responseCaching.cacheControl()).body(body);
     }
 
     @PostMapping
@@ -112,6 +272,50 @@ public class ProductController {
         return ResponseEntity.created(uri).body(newDto);
     }
 
+    //the whole catalog in one response, written while it´s read from the database (not a page, not a list in memory)
+    //written in the request thread, so a long export doesn´t fall in the timeout of the async requests
+    @GetMapping(value = "/export")
+    @Operation(summary = "Export the whole catalog", description = "Stream every product with its categories, ordered by id, as NDJSON (one product per line, the same json of GET /products/{id}) or CSV (the columns of the import plus the id). The data comes from one consistent snapshot of the database.", parameters = {
+            @Parameter(name = "format", description = "'ndjson' (default) or 'csv'", required = false, schema = @Schema(type = "string", defaultValue = "ndjson"))
+    }, responses = {
+            @ApiResponse(responseCode = "200", description = "Catalog exported", content = {@Content(mediaType = "application/x-ndjson"), @Content(mediaType = "text/csv")}),
+            @ApiResponse(responseCode = "400", description = "Unknown format", content = @Content),
+            @ApiResponse(responseCode = "500", description = "Internal server error, unexpected error.", content = @Content)
+    })
+    public void exportCatalog(@RequestParam(name = "format", defaultValue = "ndjson") String format, HttpServletResponse response) throws IOException {
+        ProductExportService.Format exportFormat = ProductExportService.Format.fromParameter(format);
+
+        response.setContentType(exportFormat.getContentType());
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"products." + exportFormat.getExtension() + "\"");
+
+        productExportService.exportCatalog(exportFormat, response.getOutputStream());
+    }
+
+    //the connection stays open and the events are written as they happen (the thread of tomcat is released meanwhile)
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Live stream of product changes", description = "Server-Sent Events of the products created, updated or deleted (product-created, product-updated, product-deleted) and of the new prices (price-changed), sent after the change is committed. A bulk operation of many products comes as one event with the count (products-created, products-updated, products-deleted, prices-changed). The ids of the events are sequential: a gap means that the client was too slow and lost events, then it can read GET /changes. The server closes the connection from time to time and the client connects again.", responses = {
+            @ApiResponse(responseCode = "200", description = "Stream opened", content = @Content(mediaType = "text/event-stream", schema = @Schema(implementation = ProductEventDTO.class))),
+            @ApiResponse(responseCode = "503", description = "Too many subscribers in this server, try again later", content = @Content),
+            @ApiResponse(responseCode = "500", description = "Internal server error, unexpected error.", content = @Content)
+    })
+    public Flux<ServerSentEvent<ProductEventDTO>> streamEvents() {
+        return productEventBroadcaster.subscribe();
+    }
+
+    //the catalog of a supplier in one request: the body is read as it arrives (never the whole file in memory)
+    @PostMapping(value = "/import", consumes = {MediaType.APPLICATION_JSON_VALUE, "application/x-ndjson", "text/csv"})
+    @Operation(summary = "Import products in bulk", description = "Insert many products at once. The body can be a JSON array of products, NDJSON (one product per line) or CSV with the header 'name,description,price,imageUrl,categoryIds' (the category ids separated by '|'). The valid rows are saved and the invalid ones come back in 'errors' with the row number and the reasons.", responses = {
+            @ApiResponse(responseCode = "200", description = "Import finished, see the counters and the errors of the rows", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ProductImportResultDTO.class))),
+            @ApiResponse(responseCode = "400", description = "The file can´t be read (malformed JSON, CSV without header...)", content = @Content),
+            @ApiResponse(responseCode = "415", description = "Unsupported content type", content = @Content),
+            @ApiResponse(responseCode = "500", description = "Internal server error, unexpected error.", content = @Content)
+    })
+    public ResponseEntity<ProductImportResultDTO> importProducts(@RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType, InputStream body) {
+        ProductImportResultDTO result = productImportService.importProducts(body, contentType);
+        return ResponseEntity.ok().body(result);
+    }
+
     @PutMapping(value = "/{id}")
     @Operation(summary = "Update a product", description = "Update the product switching the product´s data fields", responses = {
             @ApiResponse(responseCode = "200", description = "Product update successfully", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ProductResponseDTO.class))),
@@ -128,6 +332,56 @@ public class ProductController {
         return ResponseEntity.ok().body(newDto);
     }
 
+    //partial update, only the fields sent in the json are changed (ex: {"price": 19.90})
+    @PatchMapping(value = "/{id}")
+    @Operation(summary = "Partially update a product", description = "Change only the fields sent in the body, the null or absent fields stay the same. The categories are only changed if 'categoryIds' is sent.", responses = {
+            @ApiResponse(responseCode = "200", description = "Product updated successfully", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ProductResponseDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid request data.", content = @Content),
+            @ApiResponse(responseCode = "404", description = "Resource not found..", content = @Content),
+            @ApiResponse(responseCode = "409", description = "Conflict, some value already exists", content = @Content),
+            @ApiResponse(responseCode = "500", description = "Internal server error, unexpected error.", content = @Content)
+    })
+    public ResponseEntity<ProductResponseDTO> patch(@PathVariable Long id, @Valid @RequestBody ProductPatchDTO dto) {
+        ProductResponseDTO newDto = productService.patchProduct(id, dto);
+        return ResponseEntity.ok().body(newDto);
+    }
+
+    //the new prices of many products (the repricing job), one jdbc batch instead of one PUT by product
+    @PatchMapping(value = "/prices")
+    @Operation(summary = "Update the price of many products", description = "Set a new price for each product of the list in one batch. The ids that don´t exist are skipped and returned in 'missingIds'.", responses = {
+            @ApiResponse(responseCode = "200", description = "Prices updated successfully", content = @Content(mediaType = "application/json", schema = @Schema(implementation = BulkOperationResultDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid request data.", content = @Content),
+            @ApiResponse(responseCode = "409", description = "Validation error, empty list, invalid price or more than the limit", content = @Content),
+            @ApiResponse(responseCode = "500", description = "Internal server error, unexpected error.", content = @Content)
+    })
+    public ResponseEntity<BulkOperationResultDTO> updatePrices(@Valid @RequestBody ProductPriceUpdateBatchDTO dto) {
+        return ResponseEntity.ok().body(productBulkService.updatePrices(dto.getPrices()));
+    }
+
+    @PostMapping(value = "/price-adjustments")
+    @Operation(summary = "Adjust the prices of a category by a percentage", description = "Apply the percentage (ex: 5 = +5%, -10 = -10%) to the price of every product of the category in one update. The prices are rounded to 2 decimals and never go under 0.01.", responses = {
+            @ApiResponse(responseCode = "200", description = "Prices adjusted successfully", content = @Content(mediaType = "application/json", schema = @Schema(implementation = BulkOperationResultDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid request data.", content = @Content),
+            @ApiResponse(responseCode = "404", description = "Category not found", content = @Content),
+            @ApiResponse(responseCode = "409", description = "Validation error, percentage out of the limits", content = @Content),
+            @ApiResponse(responseCode = "500", description = "Internal server error, unexpected error.", content = @Content)
+    })
+    public ResponseEntity<BulkOperationResultDTO> adjustPrices(@Valid @RequestBody ProductPriceAdjustmentDTO dto) {
+        return ResponseEntity.ok().body(productBulkService.adjustPricesOfCategory(dto.getCategoryId(), dto.getPercentage()));
+    }
+
+    //POST and not DELETE, because the list of ids goes in the body
+    @PostMapping(value = "/bulk-delete")
+    @Operation(summary = "Delete many products", description = "Delete all the products of the list at once. The ids that don´t exist are returned in 'missingIds'.", responses = {
+            @ApiResponse(responseCode = "200", description = "Products deleted successfully", content = @Content(mediaType = "application/json", schema = @Schema(implementation = BulkOperationResultDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid request data.", content = @Content),
+            @ApiResponse(responseCode = "409", description = "Validation error, empty list or more than the limit", content = @Content),
+            @ApiResponse(responseCode = "500", description = "Internal server error, unexpected error.", content = @Content)
+    })
+    public ResponseEntity<BulkOperationResultDTO> deleteMany(@Valid @RequestBody ProductBulkDeleteDTO dto) {
+        return ResponseEntity.ok().body(productBulkService.deleteProducts(dto.getIds()));
+    }
+
     @DeleteMapping(value = "/{id}")
     @Operation(summary = "Delete a product.", description = "Delete product by id!", responses = {
             @ApiResponse(responseCode =  "200", description = "Product deleted successfully", content = @Content(mediaType = "application/json", schema = @Schema(implementation = CategoryResponseDTO.class))),
@@ -168,12 +422,27 @@ public class ProductController {
             //A http code for unavailable service... util for working with external API´S!
             @ApiResponse(responseCode = "503", description = "Service Unavailable error", content = @Content)
     })
-    public ResponseEntity<ProductQuotationResponseDTO> getConvertedPrice(@PathVariable Long productId, @RequestParam(name = "currencyCode") String currencyCode) {
+    //returning a Mono, spring MVC frees the tomcat thread and writes the response when the rate arrives
+    public Mono<ResponseEntity<ProductQuotationResponseDTO>> getConvertedPrice(@PathVariable Long productId, @RequestParam(name = "currencyCode") String currencyCode) {
 
         //using here my auxiliar method in service layer that get the product id and the currency code that´ll go convert (the default currency of products is BRL)
-        ProductQuotationResponseDTO dtoConvert = productService.getProductPriceInOtherCurrency(productId, currencyCode);
+        return productService.getProductPriceInOtherCurrency(productId, currencyCode)
+                //return the code ok()... code 200!
+                .map(dtoConvert -> ResponseEntity.ok().body(dtoConvert));
+    }
+
+    //batch of quotations: many products x many currencies in one request
+    @PostMapping(value = "/quotation/batch")
+    @Operation(summary = "Get the prices of many products in many currencies", description = "Retrieve the price of each product converted to each currency in one request. The products are loaded in one query and each currency rate is resolved once. Ids that don´t exist are listed in 'missingProductIds'.", responses = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved conversions", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ProductQuotationBatchResponseDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Bad request error, invalids data enter.", content = @Content),
+            @ApiResponse(responseCode = "409", description = "Validation error, empty lists or more than the limit", content = @Content),
+            @ApiResponse(responseCode = "500", description = "Internal server erro, unexpected error", content = @Content),
+            @ApiResponse(responseCode = "503", description = "Service Unavailable error", content = @Content)
+    })
+    public Mono<ResponseEntity<ProductQuotationBatchResponseDTO>> getConvertedPrices(@Valid @RequestBody ProductQuotationBatchRequestDTO dto) {
 
-        //return the code ok()... code 200!
-        return ResponseEntity.ok().body(dtoConvert);
+        return productService.getProductPricesInOtherCurrencies(dto.getProductIds(), dto.getCurrencyCodes())
+                .map(matrix -> ResponseEntity.ok().body(matrix));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,100 @@
+package com.lucasdev.productmanagementapi.controllers;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.lucasdev.productmanagementapi.DTO.ProductResponseDTO;
+import com.lucasdev.productmanagementapi.events.CategoryChangedEvent;
+import com.lucasdev.productmanagementapi.events.ProductsChangedEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPOutputStream;
+
+//the json of GET /products/{id} already encoded (UTF-8 bytes, and gzip), so the hot products are not serialized again in
+//each request: the response only copies the bytes. one entry by product, with the ETag of the version that was encoded;
+//an entry of another ETag is never used (it´s encoded again), the invalidation by the events only frees the memory earlier.
+//bounded by the bytes, not by the number of products
+@Component
+public class ProductJsonCache implements MeterBinder {
+
+    //the compression of tomcat starts at 2KB because it´s done in each response, here it´s done once by version, so even
+    //a small product is worth it. under this size the header of the gzip eats the gain
+    static final int GZIP_MIN_SIZE = 256;
+
+    private final ObjectMapper objectMapper;
+    private final Cache<Long, EncodedProduct> products;
+
+    //the ObjectMapper of spring MVC, so the bytes are the same json that the message converter would write
+    public ProductJsonCache(ObjectMapper objectMapper, @Value("${products.json-cache.max-size:64MB}") DataSize maxSize) {
+        this.objectMapper = objectMapper;
+        this.products = Caffeine.newBuilder()
+                .maximumWeight(maxSize.toBytes())
+                .weigher((Long id, EncodedProduct encoded) -> encoded.size())
+                .recordStats()
+                .build();
+    }
+
+    public EncodedProduct get(ProductResponseDTO dto, String etag) {
+        EncodedProduct cached = products.getIfPresent(dto.getId());
+        if (cached != null && cached.etag().equals(etag)) {
+            return cached;
+        }
+        //two requests of a new version can encode it at the same time, the result is the same
+        EncodedProduct encoded = encode(dto, etag);
+        products.put(dto.getId(), encoded);
+        return encoded;
+    }
+
+    private EncodedProduct encode(ProductResponseDTO dto, String etag) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(dto);
+            return new EncodedProduct(etag, json, json.length >= GZIP_MIN_SIZE ? gzip(json) : null);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] gzip(byte[] json) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(json.length / 2);
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMPLETION, fallbackExecution = true)
+    public void onProductsChanged(ProductsChangedEvent event) {
+        products.invalidateAll(event.productIds());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMPLETION, fallbackExecution = true)
+    public void onCategoryChanged(CategoryChangedEvent event) {
+        products.invalidateAll(event.productIds());
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, products, "product-json");
+    }
+
+    //gzip is null when the json is too small to be compressed
+    public record EncodedProduct(String etag, byte[] json, byte[] gzip) {
+
+        int size() {
+            return json.length + (gzip == null ? 0 : gzip.length);
+        }
+    }
+}
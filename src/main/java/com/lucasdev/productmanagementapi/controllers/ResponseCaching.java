@@ -0,0 +1,98 @@
+package com.lucasdev.productmanagementapi.controllers;
+
+import com.lucasdev.productmanagementapi.DTO.CategoryResponseDTO;
+import com.lucasdev.productmanagementapi.DTO.ProductResponseDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+
+//the ETags and the Cache-Control of the GETs of products and categories.
+//the controllers only put the ETag in the ResponseEntity: for a GET spring compares it with the If-None-Match and answers
+//304 without writing the body. the ETags come from the versions (@Version) already in the DTOs, so they cost nothing
+@Component
+public class ResponseCaching {
+
+    private final CacheControl cacheControl;
+
+    //public: the CDN can keep the responses too. with max-age 0 (default) every use is revalidated with If-None-Match
+    public ResponseCaching(@Value("${http.cache.max-age:PT0S}") Duration maxAge) {
+        this.cacheControl = CacheControl.maxAge(maxAge).cachePublic().mustRevalidate();
+    }
+
+    public CacheControl cacheControl() {
+        return cacheControl;
+    }
+
+    //the json of the product has the names of its categories: a renamed category changes the ETag too.
+    //the set of categories can´t change without a new version of the product, and the version of a category only goes
+    //up, so the sum of them is enough
+    public String etag(ProductResponseDTO dto) {
+        return quote(dto.getVersion() + "." + categoriesVersion(dto));
+    }
+
+    public String etag(CategoryResponseDTO dto) {
+        return quote(String.valueOf(dto.getVersion()));
+    }
+
+    //the lists: a hash of the id/version of each item, in the order of the page, and of the data of the page itself
+    public String etagOfProducts(List<ProductResponseDTO> content, Object... page) {
+        StringBuilder state = new StringBuilder();
+        for (ProductResponseDTO dto : content) {
+            state.append(dto.getId()).append(':').append(dto.getVersion()).append('.').append(categoriesVersion(dto));
+            //converted with the rate of the moment, not in the version
+            if (dto.getConvertedPrice() != null) {
+                state.append(':').append(dto.getConvertedPrice()).append(dto.getCurrencyCode());
+            }
+            state.append(';');
+        }
+        return hash(state, page);
+    }
+
+    public String etagOfCategories(List<CategoryResponseDTO> content, Object... page) {
+        StringBuilder state = new StringBuilder();
+        for (CategoryResponseDTO dto : content) {
+            state.append(dto.getId()).append(':').append(dto.getVersion()).append(';');
+        }
+        return hash(state, page);
+    }
+
+    //the ETag of the same version compressed: a strong ETag is for the exact bytes, so gzip has its own
+    public static String gzipVariant(String etag) {
+        return etag.substring(0, etag.length() - 1) + "-gzip\"";
+    }
+
+    //"gzip", "gzip, deflate, br", "br;q=1.0, gzip;q=0.8"... but not "gzip;q=0"
+    public static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                return parts.length == 1 || !parts[1].trim().replace(" ", "").matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    private static long categoriesVersion(ProductResponseDTO dto) {
+        return dto.getCategories().stream().mapToLong(CategoryResponseDTO::getVersion).sum();
+    }
+
+    private static String hash(StringBuilder state, Object... page) {
+        for (Object value : page) {
+            state.append('|').append(value);
+        }
+        return quote(DigestUtils.md5DigestAsHex(state.toString().getBytes(StandardCharsets.UTF_8)));
+    }
+
+    //strong ETag: the same value means the same bytes of the json
+    private static String quote(String value) {
+        return "\"" + value + "\"";
+    }
+}
@@ -5,6 +5,7 @@ import com.lucasdev.productmanagementapi.exceptions.*;
 import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -138,6 +139,39 @@ public class GlobalHandlerException { //this class controls all my exceptions! i
         return ResponseEntity.status(status).body(error);
     }
 
+    //the cursor token of the keyset pagination was changed or is not from us
+    @ExceptionHandler(InvalidCursorException.class)
+    public ResponseEntity<StandardError> invalidCursor(InvalidCursorException ex, HttpServletRequest request) {
+        HttpStatus status = HttpStatus.BAD_REQUEST;
+        StandardError error = new StandardError(Instant.now(), status, "Invalid Cursor", ex.getMessage(), request.getRequestURI());
+        return ResponseEntity.status(status).body(error);
+    }
+
+    //the body of the bulk import is not a file that we can read (the errors of each row go in the import result)
+    @ExceptionHandler(InvalidImportFileException.class)
+    public ResponseEntity<StandardError> invalidImportFile(InvalidImportFileException ex, HttpServletRequest request) {
+        HttpStatus status = HttpStatus.BAD_REQUEST;
+        StandardError error = new StandardError(Instant.now(), status, "Invalid Import File", ex.getMessage(), request.getRequestURI());
+        return ResponseEntity.status(status).body(error);
+    }
+
+    @ExceptionHandler(InvalidParameterException.class)
+    public ResponseEntity<StandardError> invalidParameter(InvalidParameterException ex, HttpServletRequest request) {
+        HttpStatus status = HttpStatus.BAD_REQUEST;
+        StandardError error = new StandardError(Instant.now(), status, "Invalid Parameter", ex.getMessage(), request.getRequestURI());
+        return ResponseEntity.status(status).body(error);
+    }
+
+    //two requests changed the same product (or category) at the same time: the @Version of the second one is old,
+    //it must read the resource again (new ETag) and send the change over the current data
+    @ExceptionHandler(ObjectOptimisticLockingFailureException.class)
+    public ResponseEntity<StandardError> optimisticLockingFailure(ObjectOptimisticLockingFailureException ex, HttpServletRequest request) {
+        HttpStatus status = HttpStatus.CONFLICT;
+        StandardError error = new StandardError(Instant.now(), status, "Concurrent Update",
+                "The resource was changed by another request, read it again and retry", request.getRequestURI());
+        return ResponseEntity.status(status).body(error);
+    }
+
     //a generic error (it´s interesting) with a error code 500
     @ExceptionHandler(Exception.class)
     public ResponseEntity<StandardError> exception(Exception ex, HttpServletRequest request) {
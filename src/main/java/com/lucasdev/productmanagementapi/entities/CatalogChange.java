@@ -0,0 +1,57 @@
+package com.lucasdev.productmanagementapi.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.Objects;
+
+//one change of the catalog (a product or a category created, changed or deleted), with the version of the change:
+//it only grows, so a mirror asks "what changed after the version X" (see CatalogChangeService)
+//the version is not the id: the ids are given in the order of the inserts, the versions after the commit
+//a delete stays here as a tombstone (deleted = true), the entity itself is gone
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "tb_catalog_change", indexes = @Index(name = "idx_catalog_change_entity", columnList = "entity_type, entity_id"),
+        uniqueConstraints = @UniqueConstraint(name = "uk_catalog_change_version", columnNames = "version"))
+public class CatalogChange implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public enum EntityType { PRODUCT, CATEGORY }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY) //written with jdbc batches
+    private Long id;
+
+    private Long version; //null until the change is committed and CatalogChangeService.assignVersions passes
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "entity_type", length = 20, nullable = false)
+    private EntityType entityType;
+
+    @Column(name = "entity_id", nullable = false)
+    private Long entityId;
+
+    @Column(nullable = false)
+    private boolean deleted;
+
+    @Column(name = "changed_at", nullable = false)
+    private Instant changedAt;
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == null || getClass() != o.getClass()) return false;
+        CatalogChange that = (CatalogChange) o;
+        return Objects.equals(id, that.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(id);
+    }
+}
@@ -3,6 +3,9 @@ package com.lucasdev.productmanagementapi.entities;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.io.Serializable;
 import java.util.HashSet;
@@ -13,19 +16,31 @@ import java.util.Set;
 @Setter
 @NoArgsConstructor
 @Entity
+//second level cache: the categories are few and read in every product write and feed, and almost never change.
+//READ_WRITE: a category updated is locked in the cache until the commit, so no transaction reads the old name after it
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "category")
 @Table(name = "tb_category")
 public class Category implements Serializable {
 
     private static final long serialVersionUID = 1L;
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    //pooled sequence, the same strategy of the Product id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "category_seq")
+    @SequenceGenerator(name = "category_seq", sequenceName = "tb_category_seq", allocationSize = 50)
     private Long id;
 
     @Column(length = 100, unique = true)
     @NotBlank(message = "The field 'name' cannot be empty")
     private String name;
 
+    //the ETag of the category (and a part of the ETag of its products)
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long version;
+
     @ManyToMany(mappedBy = "categories")
     private Set<Product> products = new HashSet<>();
 
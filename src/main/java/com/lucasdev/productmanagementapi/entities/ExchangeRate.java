@@ -0,0 +1,50 @@
+package com.lucasdev.productmanagementapi.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Objects;
+
+//one line of the last rate table downloaded from the external API, persisted so the app starts with rates
+//and still answers the quotations when the API is down
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "tb_exchange_rate", uniqueConstraints = @UniqueConstraint(columnNames = {"base_code", "currency_code"}))
+public class ExchangeRate implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "base_code", length = 3, nullable = false)
+    private String baseCode;
+
+    @Column(name = "currency_code", length = 3, nullable = false)
+    private String currencyCode;
+
+    @Column(nullable = false, precision = 24, scale = 10)
+    private BigDecimal rate; //1 base = rate of the currency
+
+    @Column(name = "fetched_at", nullable = false)
+    private Instant fetchedAt; //when the table was downloaded
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == null || getClass() != o.getClass()) return false;
+        ExchangeRate that = (ExchangeRate) o;
+        return Objects.equals(id, that.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(id);
+    }
+}
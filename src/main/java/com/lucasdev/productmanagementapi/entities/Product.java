@@ -5,6 +5,8 @@ import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.io.Serializable;
 import java.math.BigDecimal;
@@ -17,13 +19,17 @@ import java.util.Set;
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
+@DynamicUpdate //the UPDATE has only the changed columns, a PATCH of the price writes only the price
 @Table(name = "tb_product")
 public class Product implements Serializable {
 
     private static final long serialVersionUID = 1L;
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    //sequence with pooled allocation (50 ids per call to the database): with IDENTITY hibernate must insert one by one
+    //to know the id, and the jdbc batches of the bulk import don´t work
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "product_seq")
+    @SequenceGenerator(name = "product_seq", sequenceName = "tb_product_seq", allocationSize = 50)
     private Long id;
 
     @Column(length = 150, unique = true) //the max of length name, the name is unique
@@ -43,6 +49,13 @@ public class Product implements Serializable {
     //this field stay optional...
     private String ImageUrl;
 
+    //incremented by hibernate in each update (and by hand in the bulk updates, see ProductBulkService), it´s the ETag of
+    //the product. the default fills the rows that existed before the column
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long version;
+
     @ManyToMany
     @JoinTable(name = "tb_product_category", //table name
             joinColumns = @JoinColumn(name = "product_id"),  //columns names
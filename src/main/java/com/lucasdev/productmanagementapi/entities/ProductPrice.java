@@ -0,0 +1,68 @@
+package com.lucasdev.productmanagementapi.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.util.Objects;
+
+//the price of the product already converted to one of the currencies that we sell in
+//only written by the ProductPriceService (in batches, with jdbc), here it´s just for the reads
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "tb_product_price")
+public class ProductPrice implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @EmbeddedId
+    private ProductPricePK id;
+
+    @MapsId("productId")
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "product_id")
+    @OnDelete(action = OnDeleteAction.CASCADE) //deleting the product the database removes its prices
+    private Product product;
+
+    @Column(name = "base_price", nullable = false)
+    private BigDecimal basePrice; //the BRL price used in the conversion, if it´s not the price of the product anymore the row is old
+
+    @Column(name = "converted_price", nullable = false, precision = 38, scale = 10)
+    private BigDecimal convertedPrice;
+
+    @Column(nullable = false, precision = 24, scale = 10)
+    private BigDecimal rate; //the database keeps 10 decimals, see isConvertedWith
+
+    @Column(name = "rate_fetched_at", nullable = false)
+    private Instant rateFetchedAt; //when the rate table used was downloaded
+
+    //the row was calculated with this price, so the converted value can be used direct
+    public boolean isConvertedFrom(BigDecimal price) {
+        return basePrice.compareTo(price) == 0;
+    }
+
+    //the row was calculated with this rate (the one of the table in memory now), rounded like the column
+    public boolean isConvertedWith(BigDecimal currentRate) {
+        return rate.compareTo(currentRate.setScale(10, RoundingMode.HALF_UP)) == 0;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == null || getClass() != o.getClass()) return false;
+        ProductPrice that = (ProductPrice) o;
+        return Objects.equals(id, that.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(id);
+    }
+}
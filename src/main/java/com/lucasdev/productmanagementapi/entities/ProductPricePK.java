@@ -0,0 +1,37 @@
+package com.lucasdev.productmanagementapi.entities;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.*;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+//the key of the materialized prices: one row for each product in each currency
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Embeddable
+public class ProductPricePK implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Column(name = "product_id")
+    private Long productId;
+
+    @Column(name = "currency_code", length = 3)
+    private String currencyCode;
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == null || getClass() != o.getClass()) return false;
+        ProductPricePK that = (ProductPricePK) o;
+        return Objects.equals(productId, that.productId) && Objects.equals(currencyCode, that.currencyCode);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(productId, currencyCode);
+    }
+}
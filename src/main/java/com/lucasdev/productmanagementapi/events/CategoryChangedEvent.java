@@ -0,0 +1,8 @@
+package com.lucasdev.productmanagementapi.events;
+
+import java.util.List;
+
+//published by the CatalogChangeService when a category is saved or deleted, with the products linked to it
+//(their json has the name of the category)
+public record CategoryChangedEvent(Long categoryId, List<Long> productIds, boolean deleted) {
+}
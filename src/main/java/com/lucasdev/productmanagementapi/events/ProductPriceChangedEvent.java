@@ -0,0 +1,7 @@
+package com.lucasdev.productmanagementapi.events;
+
+import java.math.BigDecimal;
+
+//published by the ProductService when a product is created or its price changes
+public record ProductPriceChangedEvent(Long productId, BigDecimal price) {
+}
@@ -0,0 +1,9 @@
+package com.lucasdev.productmanagementapi.events;
+
+import java.util.Collection;
+
+//published by the CatalogChangeService with each change of products that it records (single or bulk)
+public record ProductsChangedEvent(Collection<Long> productIds, Kind kind) {
+
+    public enum Kind { CREATED, UPDATED, DELETED }
+}
@@ -0,0 +1,9 @@
+package com.lucasdev.productmanagementapi.events;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+//published once by the bulk operations (import, price updates of many products), with the new price of each product
+//instead of one ProductPriceChangedEvent by product
+public record ProductsRepricedEvent(Map<Long, BigDecimal> pricesById) {
+}
@@ -0,0 +1,11 @@
+package com.lucasdev.productmanagementapi.exceptions;
+
+//the file of the bulk import can´t be read at all (wrong format, no header...), different of a row with error
+public class InvalidImportFileException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public InvalidImportFileException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,11 @@
+package com.lucasdev.productmanagementapi.exceptions;
+
+//a request parameter with a value that we don´t accept (ex: an export format that doesn´t exist)
+public class InvalidParameterException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public InvalidParameterException(String message) {
+        super(message);
+    }
+}
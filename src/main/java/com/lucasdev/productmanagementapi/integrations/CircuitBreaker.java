@@ -0,0 +1,104 @@
+package com.lucasdev.productmanagementapi.integrations;
+
+import com.lucasdev.productmanagementapi.exceptions.ServiceUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+
+//protects the calls to an external API that is failing: after failureThreshold failures in a row the circuit opens,
+//and during the openDuration the calls fail direct (without waiting timeouts of an API that is down)
+//after that ONE call passes as a trial (half open): if it works the circuit closes, if not it opens again
+public class CircuitBreaker {
+
+    public enum State { CLOSED, HALF_OPEN, OPEN }
+
+    private final String name;
+    private final int failureThreshold;
+    private final Duration openDuration;
+
+    //the calls that pass here are only the table downloads (few), so a simple lock is enough
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private Instant openedAt;
+    private boolean trialInFlight;
+
+    private final Counter rejectedCalls;
+    private final MeterRegistry meterRegistry;
+
+    public CircuitBreaker(String name, int failureThreshold, Duration openDuration, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.openDuration = openDuration;
+        this.meterRegistry = meterRegistry;
+
+        this.rejectedCalls = Counter.builder("circuitbreaker.calls").tag("name", name).tag("result", "rejected").register(meterRegistry);
+        //0 = closed, 1 = half open, 2 = open
+        Gauge.builder("circuitbreaker.state", this, breaker -> breaker.getState().ordinal())
+                .tag("name", name)
+                .register(meterRegistry);
+    }
+
+    //the call only starts if the circuit lets it, and its result (or cancel) goes back to the circuit
+    public <T> Mono<T> protect(Mono<T> call) {
+        return Mono.defer(() -> {
+            if (!tryAcquire()) {
+                return Mono.error(new ServiceUnavailableException("External " + name + " API unavailable, circuit open"));
+            }
+            return call
+                    .doOnSuccess(value -> onSuccess())
+                    .doOnError(e -> onFailure())
+                    .doOnCancel(this::onCancel);
+        });
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    private synchronized boolean tryAcquire() {
+        if (state == State.OPEN && !openedAt.plus(openDuration).isAfter(Instant.now())) {
+            transitionTo(State.HALF_OPEN);
+        }
+        if (state == State.CLOSED) {
+            return true;
+        }
+        if (state == State.HALF_OPEN && !trialInFlight) {
+            trialInFlight = true;
+            return true;
+        }
+        rejectedCalls.increment();
+        return false;
+    }
+
+    private synchronized void onSuccess() {
+        trialInFlight = false;
+        consecutiveFailures = 0;
+        if (state != State.CLOSED) {
+            transitionTo(State.CLOSED);
+        }
+    }
+
+    private synchronized void onFailure() {
+        trialInFlight = false;
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+            openedAt = Instant.now();
+            transitionTo(State.OPEN);
+        }
+    }
+
+    //a trial that was canceled didn´t say anything about the API, the next call can try
+    private synchronized void onCancel() {
+        trialInFlight = false;
+    }
+
+    private void transitionTo(State newState) {
+        System.err.println("Circuit breaker '" + name + "': " + state + " -> " + newState);
+        state = newState;
+        Counter.builder("circuitbreaker.transitions").tag("name", name).tag("to", newState.name()).register(meterRegistry).increment();
+    }
+}
@@ -0,0 +1,194 @@
+package com.lucasdev.productmanagementapi.integrations;
+
+import com.lucasdev.productmanagementapi.exceptions.ServiceUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+//several sources of the rate table: the live ones (the APIs) are tried from the fastest to the slowest, by the latency
+//that we observed in the last calls, and the fallback (the persisted table) only when no live source answered
+//with hedging on, if the first source takes more than its usual time (the percentile of its latency) the second one is
+//called too, and the first table that arrives wins... one slow API doesn´t make the download slow
+public class CompositeRateTableProvider implements RateTableProvider {
+
+    private final List<LiveSource> liveSources;
+    private final RateTableProvider fallback; //can be null
+
+    private final boolean hedgingEnabled;
+    private final double hedgePercentile;
+    private final Duration minHedgeDelay;
+
+    //a source that failed in this time goes to the end of the line, even being the fastest
+    private final Duration failurePenalty;
+
+    private final Counter hedgedCalls;
+
+    public CompositeRateTableProvider(List<RateTableProvider> liveProviders, RateTableProvider fallback,
+                                      boolean hedgingEnabled, double hedgePercentile, Duration minHedgeDelay,
+                                      Duration failurePenalty, MeterRegistry meterRegistry) {
+        this.liveSources = liveProviders.stream().map(p -> new LiveSource(p, meterRegistry)).toList();
+        this.fallback = fallback;
+        this.hedgingEnabled = hedgingEnabled;
+        this.hedgePercentile = hedgePercentile;
+        this.minHedgeDelay = minHedgeDelay;
+        this.failurePenalty = failurePenalty;
+        this.hedgedCalls = Counter.builder("exchangerate.provider.hedges").register(meterRegistry);
+    }
+
+    @Override
+    public String name() {
+        return "composite";
+    }
+
+    @Override
+    public Mono<RateTableSnapshot> fetchRateTable(String baseCode) {
+        //the order is decided in each download, with the latencies of now
+        return Mono.defer(() -> fetchFrom(routingOrder(), 0, baseCode));
+    }
+
+    //healthy sources first, and between them the fastest first (a source without calls yet goes first, so it gets measured)
+    private List<LiveSource> routingOrder() {
+        Instant now = Instant.now();
+        return liveSources.stream()
+                .sorted(Comparator.<LiveSource>comparingInt(s -> s.failedRecently(now, failurePenalty) ? 1 : 0)
+                        .thenComparingDouble(LiveSource::averageMillis))
+                .toList();
+    }
+
+    private Mono<RateTableSnapshot> fetchFrom(List<LiveSource> ordered, int index, String baseCode) {
+        if (index >= ordered.size()) {
+            return fallback(baseCode);
+        }
+        LiveSource primary = ordered.get(index);
+        if (!hedgingEnabled || index + 1 >= ordered.size()) {
+            return primary.fetch(baseCode).onErrorResume(e -> fetchFrom(ordered, index + 1, baseCode));
+        }
+
+        //the second source starts when the first passes its usual latency, or at the moment that the first fails
+        LiveSource backup = ordered.get(index + 1);
+        Sinks.Empty<Void> primaryFailed = Sinks.empty();
+        AtomicLong winnerNanos = new AtomicLong(-1);
+        Mono<RateTableSnapshot> primaryCall = primary.fetch(baseCode, winnerNanos)
+                .doOnError(e -> primaryFailed.tryEmitEmpty());
+        Mono<Boolean> hedgeTime = Mono.delay(primary.hedgeDelay(hedgePercentile, minHedgeDelay)).thenReturn(true);
+        Mono<RateTableSnapshot> backupCall = Mono.firstWithSignal(hedgeTime, primaryFailed.asMono().thenReturn(false))
+                .flatMap(hedge -> {
+                    if (hedge) {
+                        hedgedCalls.increment(); //the first was only slow, this is a hedge
+                    }
+                    return backup.fetch(baseCode, winnerNanos);
+                });
+
+        //the first table wins and the other call is canceled, with both failing we go to the next sources
+        return Mono.firstWithValue(primaryCall, backupCall)
+                .onErrorResume(e -> fetchFrom(ordered, index + 2, baseCode));
+    }
+
+    private Mono<RateTableSnapshot> fallback(String baseCode) {
+        if (fallback == null) {
+            return Mono.error(new ServiceUnavailableException("No exchange rate provider available"));
+        }
+        System.err.println("No exchange rate API answered, using the " + fallback.name() + " rate table");
+        return fallback.fetchRateTable(baseCode);
+    }
+
+    //a live source with what we know about it: the average latency (EWMA), the last latencies (for the percentile)
+    //and when it failed for the last time
+    private static final class LiveSource {
+
+        private static final double EWMA_WEIGHT = 0.3; //weight of the newest call in the average
+        private static final int WINDOW = 64;
+
+        private final RateTableProvider provider;
+        private final Timer latency;
+        private final Counter failures;
+
+        private final long[] lastLatencies = new long[WINDOW];
+        private int samples;
+        private double averageMillis;
+        private Instant lastFailureAt;
+
+        LiveSource(RateTableProvider provider, MeterRegistry meterRegistry) {
+            this.provider = provider;
+            this.latency = Timer.builder("exchangerate.provider.latency").tag("provider", provider.name()).register(meterRegistry);
+            this.failures = Counter.builder("exchangerate.provider.failures").tag("provider", provider.name()).register(meterRegistry);
+        }
+
+        Mono<RateTableSnapshot> fetch(String baseCode) {
+            return fetch(baseCode, null);
+        }
+
+        //in a hedged race the loser is canceled, and its partial time is not a latency (a backup that started late
+        //would look faster than the winner). so the loser takes at least the time of the winner, and without a winner
+        //(the caller gave up) nothing is recorded
+        Mono<RateTableSnapshot> fetch(String baseCode, AtomicLong raceWinnerNanos) {
+            return Mono.defer(() -> {
+                long start = System.nanoTime();
+                return provider.fetchRateTable(baseCode)
+                        .doOnNext(table -> {
+                            long nanos = System.nanoTime() - start;
+                            if (raceWinnerNanos != null) {
+                                raceWinnerNanos.compareAndSet(-1, nanos);
+                            }
+                            onSuccess(nanos);
+                        })
+                        .doOnError(e -> onFailure(e))
+                        .doOnCancel(() -> {
+                            long winner = (raceWinnerNanos == null) ? -1 : raceWinnerNanos.get();
+                            if (winner >= 0) {
+                                addSample(Math.max(System.nanoTime() - start, winner));
+                            }
+                        });
+            });
+        }
+
+        synchronized void onSuccess(long nanos) {
+            latency.record(nanos, TimeUnit.NANOSECONDS);
+            addSample(nanos);
+        }
+
+        synchronized void addSample(long nanos) {
+            long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+            lastLatencies[samples % WINDOW] = millis;
+            averageMillis = (samples == 0) ? millis : EWMA_WEIGHT * millis + (1 - EWMA_WEIGHT) * averageMillis;
+            samples++;
+        }
+
+        synchronized void onFailure(Throwable e) {
+            failures.increment();
+            lastFailureAt = Instant.now();
+            System.err.println("Exchange rate provider " + provider.name() + " failed: " + e.getMessage());
+        }
+
+        synchronized double averageMillis() {
+            return averageMillis;
+        }
+
+        synchronized boolean failedRecently(Instant now, Duration penalty) {
+            return lastFailureAt != null && lastFailureAt.plus(penalty).isAfter(now);
+        }
+
+        //the latency that the source passes only in few calls, without history the min delay
+        synchronized Duration hedgeDelay(double percentile, Duration minDelay) {
+            int count = Math.min(samples, WINDOW);
+            if (count == 0) {
+                return minDelay;
+            }
+            long[] sorted = Arrays.copyOf(lastLatencies, count);
+            Arrays.sort(sorted);
+            int position = (int) Math.ceil(percentile * count) - 1;
+            long millis = sorted[Math.max(0, Math.min(position, count - 1))];
+            return Duration.ofMillis(Math.max(millis, minDelay.toMillis()));
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.lucasdev.productmanagementapi.integrations;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+//a conversion rate with the time of the table it came from
+//stale = the table is older than the max-stale, served only because the external API is not answering
+public record ConversionQuote(BigDecimal rate, Instant fetchedAt, boolean stale) {
+}
@@ -1,46 +1,327 @@
 package com.lucasdev.productmanagementapi.integrations;
 
-import com.lucasdev.productmanagementapi.DTO.ExchangeRateApiResponseDTO;
 import com.lucasdev.productmanagementapi.exceptions.ServiceUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
-import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Component("exchangeRateIntegrationClient") //changing component name for avoid conflicts
 public class ExchangeRateApiClient {
 
-    //WebClient declaration for doing the HTTP callings
-    private final WebClient exchangeRateApiClient;
+    //where the tables come from: the external APIs, routed by latency, and the persisted table (see CompositeRateTableProvider)
+    private final RateTableProvider rateTableProvider;
+
+    //the currency of the table that we download, all the other pairs are derived from it
+    private final String baseCurrencyCode;
+
+    //older than this the snapshot is not used anymore, and the request waits for a new table
+    //(except when the API is down, then the old one is still served, marked as stale)
+    private final Duration maxStale;
+
+    //the max time that one request waits for a table that is being downloaded, the download itself continues for the others
+    private final Duration lookupTimeout;
+
+    //after a failed download the requests don´t try the API again during this time, they get the last table (stale) direct
+    private final Duration outageBackoff;
+
+    //the last table downloaded stays in the database, for the next startup and for the outages
+    private final RateSnapshotStore snapshotStore;
+
+    //the new tables are announced (RateTableRefreshedEvent), the materialized prices are recalculated with them
+    private final ApplicationEventPublisher eventPublisher;
+
+    //the whole rate table in memory, the scheduled refresh swaps it for a new one (the requests only read it)
+    private final AtomicReference<RateTableSnapshot> snapshot = new AtomicReference<>();
+
+    //all the requests that find the table missing (or too old) at the same time share one download
+    private final SingleFlight<String, RateTableSnapshot> tableLoads = new SingleFlight<>();
+
+    //when the last download failed, null after a download that worked
+    private volatile Instant lastFailureAt;
+
+    //the rates of the last table announced: a refresh that brings the same rates (only a new fetchedAt) is not announced
+    private volatile RateTableSnapshot lastAnnounced;
+
+    private final Counter memoryLookups;
+    private final Counter coldLookups;
+    private final Counter staleLookups;
+    private final Counter refreshSuccesses;
+    private final Counter refreshFailures;
 
     // our Bean name!! ensure the API name tha we wanted
-    public ExchangeRateApiClient(@Qualifier("exchangeRateApiClient") WebClient exchangeRateApiClient){
-        this.exchangeRateApiClient = exchangeRateApiClient;
+    public ExchangeRateApiClient(@Qualifier("exchangeRateProvider") RateTableProvider rateTableProvider,
+                                 @Value("${exchangerate.base-currency:BRL}") String baseCurrencyCode,
+                                 @Value("${exchangerate.snapshot.max-stale:PT1H}") Duration maxStale,
+                                 @Value("${exchangerate.lookup-timeout:PT3S}") Duration lookupTimeout,
+                                 @Value("${exchangerate.outage-backoff:PT30S}") Duration outageBackoff,
+                                 RateSnapshotStore snapshotStore,
+                                 ApplicationEventPublisher eventPublisher,
+                                 MeterRegistry meterRegistry){
+        this.rateTableProvider = rateTableProvider;
+        this.baseCurrencyCode = baseCurrencyCode;
+        this.maxStale = maxStale;
+        this.lookupTimeout = lookupTimeout;
+        this.outageBackoff = outageBackoff;
+        this.snapshotStore = snapshotStore;
+        this.eventPublisher = eventPublisher;
+
+        //memory = answered by the snapshot, cold = the request had to wait the API (startup or snapshot too old),
+        //stale = the API is down and the request got the last table, older than the max-stale
+        this.memoryLookups = Counter.builder("exchangerate.lookups").tag("result", "memory").register(meterRegistry);
+        this.coldLookups = Counter.builder("exchangerate.lookups").tag("result", "cold").register(meterRegistry);
+        this.staleLookups = Counter.builder("exchangerate.lookups").tag("result", "stale").register(meterRegistry);
+        this.refreshSuccesses = Counter.builder("exchangerate.refreshes").tag("result", "success").register(meterRegistry);
+        this.refreshFailures = Counter.builder("exchangerate.refreshes").tag("result", "failure").register(meterRegistry);
+        Gauge.builder("exchangerate.snapshot.age", snapshot, ref -> ageInSeconds(ref.get()))
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    //warm start: the table persisted by the last run is put in memory before the first request arrives
+    //if it´s younger than the max-stale it´s served as normal, otherwise it´s only the fallback while the API doesn´t answer
+    @PostConstruct
+    public void loadPersistedSnapshot() {
+        try {
+            snapshotStore.findLatest(baseCurrencyCode).ifPresent(persisted -> snapshot.compareAndSet(null, persisted));
+        } catch (RuntimeException e) {
+            //without the persisted table the app still works, the first request downloads it
+            System.err.println("Could not load the persisted exchange rates: " + e.getMessage());
+        }
     }
 
     //this method get the conversion rate between the base currency and the target currency
+    //answered from memory, without any call to the external API (except when there´s no usable table yet)
     public BigDecimal getConversionRate(String baseCurrencyCode, String targetCurrencyCode) {
 
+        return quoteFrom(currentSnapshot(), baseCurrencyCode, targetCurrencyCode).rate();
+    }
+
+    //the same lookup without blocking the caller thread: with the table in memory the Mono is already complete,
+    //and when the table is being downloaded the Mono completes when the (shared) download finishes
+    public Mono<BigDecimal> getConversionRateAsync(String baseCurrencyCode, String targetCurrencyCode) {
+
+        return getConversionQuoteAsync(baseCurrencyCode, targetCurrencyCode).map(ConversionQuote::rate);
+    }
+
+    //the rate with the time of its table, and if it´s stale (served only because the API is down)
+    public Mono<ConversionQuote> getConversionQuoteAsync(String baseCurrencyCode, String targetCurrencyCode) {
+
+        return currentSnapshotAsync().map(current -> quoteFrom(current, baseCurrencyCode, targetCurrencyCode));
+    }
+
+    //the table that is in memory now, without downloading anything (empty before the first table)
+    public Optional<RateTableSnapshot> lastSnapshot() {
+        return Optional.ofNullable(snapshot.get());
+    }
+
+    //the table in memory if it´s not stale, without downloading anything: the materialized prices are compared with it
+    public Optional<RateTableSnapshot> freshSnapshot() {
+        RateTableSnapshot current = snapshot.get();
+        return isUsable(current) ? Optional.of(current) : Optional.empty();
+    }
+
+    //a rate of a table downloaded in this time is stale (older than the max-stale)
+    public boolean isStale(Instant fetchedAt) {
+        return fetchedAt.plus(maxStale).isBefore(Instant.now());
+    }
+
+    //downloads the whole table of the base currency and swaps the snapshot, the fixed delay is counted after the end of each refresh
+    //if the API fails the last snapshot keeps being used (until the max-stale as normal, after it marked as stale)
+    @Scheduled(fixedDelayString = "${exchangerate.refresh-interval:PT10M}")
+    public void refreshRates() {
         try {
-            ExchangeRateApiResponseDTO dto = exchangeRateApiClient.get()
-                    .uri("/pair/{baseCode}/{targetCode}", baseCurrencyCode, targetCurrencyCode)
-                    .retrieve().bodyToMono(ExchangeRateApiResponseDTO.class).block();
+            awaitSnapshot(loadSnapshot(true));
+            refreshSuccesses.increment();
+        } catch (ServiceUnavailableException e) {
+            refreshFailures.increment();
+            System.err.println("Exchange rate refresh failed, keeping the last rate table: " + e.getMessage());
+        }
+    }
+
+    private RateTableSnapshot currentSnapshot() {
+        RateTableSnapshot current = snapshot.get();
+        if (isUsable(current)) {
+            memoryLookups.increment();
+            return current;
+        }
+        if (inOutage(current)) {
+            staleLookups.increment();
+            return current;
+        }
+        coldLookups.increment();
+        try {
+            return awaitSnapshot(loadSnapshot(false));
+        } catch (ServiceUnavailableException e) {
+            return staleOrThrow(e);
+        }
+    }
 
-            if (dto == null || dto.getConversionrate() == null) {
+    private Mono<RateTableSnapshot> currentSnapshotAsync() {
+        RateTableSnapshot current = snapshot.get();
+        if (isUsable(current)) {
+            memoryLookups.increment();
+            return Mono.just(current);
+        }
+        if (inOutage(current)) {
+            staleLookups.increment();
+            return Mono.just(current);
+        }
+        coldLookups.increment();
+        return Mono.fromFuture(() -> withTimeout(loadSnapshot(false)))
+                .onErrorMap(this::translate)
+                .onErrorResume(ServiceUnavailableException.class, e -> Mono.fromCallable(() -> staleOrThrow(e)));
+    }
+
+    //the download failed (or took too long): an old table is better than an error, the response says that it´s stale
+    //the exception only goes to the user when there´s no table at all (first run, without anything persisted)
+    private RateTableSnapshot staleOrThrow(ServiceUnavailableException e) {
+        RateTableSnapshot last = snapshot.get();
+        if (last == null) {
+            throw e;
+        }
+        staleLookups.increment();
+        return last;
+    }
+
+    //the API failed a moment ago, so the requests don´t wait the lookup-timeout again for each new download
+    private boolean inOutage(RateTableSnapshot current) {
+        Instant failedAt = lastFailureAt;
+        return current != null && failedAt != null && failedAt.plus(outageBackoff).isAfter(Instant.now());
+    }
+
+    private ConversionQuote quoteFrom(RateTableSnapshot current, String baseCurrencyCode, String targetCurrencyCode) {
+        BigDecimal rate = current.conversionRate(baseCurrencyCode, targetCurrencyCode)
+                .orElseThrow(() -> new ServiceUnavailableException("No conversion rate available from " + baseCurrencyCode + " to " + targetCurrencyCode));
+        return new ConversionQuote(rate, current.fetchedAt(), !isUsable(current));
+    }
+
+    //force = the scheduled refresh, that always downloads; the requests only download if the table is still missing
+    private CompletableFuture<RateTableSnapshot> loadSnapshot(boolean force) {
+        return tableLoads.execute(baseCurrencyCode, () -> {
+            //checking again inside the single-flight: a download that finished a moment ago already swapped the table
+            RateTableSnapshot current = snapshot.get();
+            if (!force && isUsable(current)) {
+                return CompletableFuture.completedFuture(current);
+            }
+            return rateTableProvider.fetchRateTable(baseCurrencyCode)
+                    .map(this::accept)
+                    .doOnError(e -> lastFailureAt = Instant.now())
+                    .toFuture();
+        });
+    }
+
+    //a table arrived: it replaces the one in memory if it´s newer, and the answer is the table that stays in memory
+    private RateTableSnapshot accept(RateTableSnapshot table) {
+        RateTableSnapshot previous = snapshot.get();
+        boolean newer = previous == null || table.fetchedAt().isAfter(previous.fetchedAt());
+        if (newer) {
+            snapshot.set(table);
+        }
+        if (isUsable(table)) {
+            lastFailureAt = null;
+            if (newer) {
+                publish(table, changedRates(table));
+            }
+        } else {
+            //only an old table came (the persisted one): the APIs are down, the same as a failed download
+            lastFailureAt = Instant.now();
+        }
+        return newer ? table : previous;
+    }
+
+    //the first table of this run is always announced (the materialized prices can be of any older table),
+    //after it only a table with other rates
+    private synchronized boolean changedRates(RateTableSnapshot table) {
+        if (lastAnnounced != null && lastAnnounced.hasSameRates(table)) {
+            return false;
+        }
+        lastAnnounced = table;
+        return true;
+    }
 
-                System.err.println("Error. external api response null");
-                throw new ServiceUnavailableException("Failed to retrieve conversion rate from external API. Response was null or missing 'conversion_rate'.");
+    //saving and announcing the new table out of the thread of the download (it´s a netty thread, no JDBC there),
+    //the requests don´t wait it. the table is always saved (its fetchedAt is the warm start of the next run)
+    private void publish(RateTableSnapshot fresh, boolean announce) {
+        Schedulers.boundedElastic().schedule(() -> {
+            try {
+                snapshotStore.save(fresh);
+            } catch (RuntimeException e) {
+                System.err.println("Could not persist the exchange rates: " + e.getMessage());
+            }
+            if (!announce) {
+                return;
             }
-            return dto.getConversionrate();
+            try {
+                eventPublisher.publishEvent(new RateTableRefreshedEvent(fresh));
+            } catch (RuntimeException e) {
+                System.err.println("Could not recalculate the prices with the new exchange rates: " + e.getMessage());
+            }
+        });
+    }
 
-        } catch (WebClientResponseException e) {
+    private RateTableSnapshot awaitSnapshot(CompletableFuture<RateTableSnapshot> load) {
+        try {
+            return withTimeout(load).join();
+        } catch (CompletionException e) {
+            throw translate(e.getCause());
+        }
+    }
+
+    //each caller waits with its own timeout, a copy of the shared future is used so the timeout of one doesn´t cancel the others
+    private CompletableFuture<RateTableSnapshot> withTimeout(CompletableFuture<RateTableSnapshot> load) {
+        return load.copy().orTimeout(lookupTimeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private boolean isUsable(RateTableSnapshot current) {
+        return current != null && !current.isOlderThan(maxStale);
+    }
+
+    //the errors of the download arrive wrapped by the future, here they become the same ServiceUnavailableException of before
+    private ServiceUnavailableException translate(Throwable cause) {
+        while (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (cause instanceof ServiceUnavailableException e) {
+            return e;
+        }
+        if (cause instanceof TimeoutException) {
+            System.err.println("Timed out waiting for the external currency API");
+            return new ServiceUnavailableException("Timed out waiting for the external currency API");
+        }
+        if (cause instanceof DataBufferLimitException) {
+            System.err.println("External currency API response bigger than the limit: " + cause.getMessage());
+            return new ServiceUnavailableException("External currency API response too big");
+        }
+        if (cause instanceof WebClientResponseException e) {
             System.err.println("External currency API error: (HTTP Status: " + e.getStatusCode() + "): " + e.getResponseBodyAsString());
-            throw new ServiceUnavailableException("External currency API error: " + e.getResponseBodyAsString());
-        }catch (Exception e){
-            System.err.println("Failed to connect to external currency API: " + e.getMessage());
-            throw new ServiceUnavailableException("Failed to connect to external currency API: " + e.getMessage());
+            return new ServiceUnavailableException("External currency API error: " + e.getResponseBodyAsString());
         }
+        String message = (cause == null) ? "unknown error" : cause.getMessage();
+        System.err.println("Failed to connect to external currency API: " + message);
+        return new ServiceUnavailableException("Failed to connect to external currency API: " + message);
+    }
+
+    private static double ageInSeconds(RateTableSnapshot current) {
+        return (current == null) ? Double.NaN : Duration.between(current.fetchedAt(), Instant.now()).toSeconds();
     }
 }
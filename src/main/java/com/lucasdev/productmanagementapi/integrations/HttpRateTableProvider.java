@@ -0,0 +1,62 @@
+package com.lucasdev.productmanagementapi.integrations;
+
+import com.lucasdev.productmanagementapi.DTO.ExchangeRateApiResponseDTO;
+import com.lucasdev.productmanagementapi.exceptions.ServiceUnavailableException;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+
+//an external API that answers "/latest/{baseCode}" with the whole table of the base (ExchangeRate-API and its open version)
+//each API has its own circuit breaker, one API down doesn´t open the circuit of the other
+public class HttpRateTableProvider implements RateTableProvider {
+
+    private final String name;
+
+    //WebClient declaration for doing the HTTP callings
+    private final WebClient webClient;
+
+    //deadline of one call to the API, from the connection to the last byte of the response
+    private final Duration requestTimeout;
+
+    //with the API failing the calls fail direct, without waiting the timeouts (see CircuitBreaker)
+    private final CircuitBreaker circuitBreaker;
+
+    public HttpRateTableProvider(String name, WebClient webClient, Duration requestTimeout, CircuitBreaker circuitBreaker) {
+        this.name = name;
+        this.webClient = webClient;
+        this.requestTimeout = requestTimeout;
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public Mono<RateTableSnapshot> fetchRateTable(String baseCode) {
+        return circuitBreaker.protect(callRateTable(baseCode));
+    }
+
+    //the real call to the external API: "/latest/{baseCode}" brings the rates of the base for all the currencies
+    private Mono<RateTableSnapshot> callRateTable(String baseCode) {
+        return webClient.get()
+                .uri("/latest/{baseCode}", baseCode)
+                .retrieve().bodyToMono(ExchangeRateApiResponseDTO.class)
+                .map(dto -> {
+                    if (dto.getConversionRates() == null || dto.getConversionRates().isEmpty()) {
+                        throw nullResponse();
+                    }
+                    return new RateTableSnapshot(baseCode, dto.getConversionRates(), Instant.now());
+                })
+                .switchIfEmpty(Mono.error(this::nullResponse))
+                .timeout(requestTimeout);
+    }
+
+    private ServiceUnavailableException nullResponse() {
+        System.err.println("Error. external api response null (" + name + ")");
+        return new ServiceUnavailableException("Failed to retrieve conversion rates from external API " + name + ". Response was null or missing 'conversion_rates'.");
+    }
+}
@@ -0,0 +1,54 @@
+package com.lucasdev.productmanagementapi.integrations;
+
+import com.lucasdev.productmanagementapi.entities.ExchangeRate;
+import com.lucasdev.productmanagementapi.repositories.ExchangeRateRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+//keeps the rate table in the tb_exchange_rate, one row per currency
+@Component
+public class JpaRateSnapshotStore implements RateSnapshotStore {
+
+    private final ExchangeRateRepository exchangeRateRepository;
+
+    public JpaRateSnapshotStore(ExchangeRateRepository exchangeRateRepository) {
+        this.exchangeRateRepository = exchangeRateRepository;
+    }
+
+    @Override
+    @Transactional
+    public void save(RateTableSnapshot snapshot) {
+        //the old table goes away in the same transaction, so the readers see the old one or the new one (never half)
+        exchangeRateRepository.deleteAllByBaseCode(snapshot.baseCode());
+
+        List<ExchangeRate> rows = snapshot.rates().entrySet().stream()
+                .map(e -> new ExchangeRate(null, snapshot.baseCode(), e.getKey(), e.getValue(), snapshot.fetchedAt()))
+                .toList();
+        exchangeRateRepository.saveAll(rows);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<RateTableSnapshot> findLatest(String baseCode) {
+        List<ExchangeRate> rows = exchangeRateRepository.findByBaseCode(baseCode);
+        if (rows.isEmpty()) {
+            return Optional.empty();
+        }
+
+        Map<String, BigDecimal> rates = new HashMap<>();
+        rows.forEach(row -> rates.put(row.getCurrencyCode(), row.getRate()));
+
+        //all the rows are from the same download, but the oldest time is the safe one
+        Instant fetchedAt = rows.stream().map(ExchangeRate::getFetchedAt).min(Comparator.naturalOrder()).orElseThrow();
+
+        return Optional.of(new RateTableSnapshot(baseCode, rates, fetchedAt));
+    }
+}
@@ -0,0 +1,30 @@
+package com.lucasdev.productmanagementapi.integrations;
+
+import com.lucasdev.productmanagementapi.exceptions.ServiceUnavailableException;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+//the last table saved in the database, the last option when no API answers
+//the table keeps its old fetchedAt, so the quotations made with it go out marked as stale
+public class PersistedRateTableProvider implements RateTableProvider {
+
+    private final RateSnapshotStore snapshotStore;
+
+    public PersistedRateTableProvider(RateSnapshotStore snapshotStore) {
+        this.snapshotStore = snapshotStore;
+    }
+
+    @Override
+    public String name() {
+        return "persisted";
+    }
+
+    @Override
+    public Mono<RateTableSnapshot> fetchRateTable(String baseCode) {
+        //jdbc out of the netty threads
+        return Mono.fromCallable(() -> snapshotStore.findLatest(baseCode))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(Mono::justOrEmpty)
+                .switchIfEmpty(Mono.error(() -> new ServiceUnavailableException("No persisted conversion rates for " + baseCode)));
+    }
+}
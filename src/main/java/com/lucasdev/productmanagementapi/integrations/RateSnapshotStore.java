@@ -0,0 +1,12 @@
+package com.lucasdev.productmanagementapi.integrations;
+
+import java.util.Optional;
+
+//where the last rate table is kept between restarts
+public interface RateSnapshotStore {
+
+    //replaces the persisted table of the base currency by this one
+    void save(RateTableSnapshot snapshot);
+
+    Optional<RateTableSnapshot> findLatest(String baseCode);
+}
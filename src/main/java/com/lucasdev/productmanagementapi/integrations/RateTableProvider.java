@@ -0,0 +1,14 @@
+package com.lucasdev.productmanagementapi.integrations;
+
+import reactor.core.publisher.Mono;
+
+//a source of the rate table: an external API, the persisted table, or a composite of them (CompositeRateTableProvider)
+//the ExchangeRateApiClient keeps the table in memory, the providers only bring a new one when asked
+public interface RateTableProvider {
+
+    //used in the logs and in the metrics tags
+    String name();
+
+    //the table of the base currency, or an error (never empty)
+    Mono<RateTableSnapshot> fetchRateTable(String baseCode);
+}
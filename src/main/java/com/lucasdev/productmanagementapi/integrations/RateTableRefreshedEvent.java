@@ -0,0 +1,5 @@
+package com.lucasdev.productmanagementapi.integrations;
+
+//published by the ExchangeRateApiClient when a downloaded table has rates different from the last one announced
+public record RateTableRefreshedEvent(RateTableSnapshot snapshot) {
+}
@@ -0,0 +1,45 @@
+package com.lucasdev.productmanagementapi.integrations;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+
+//an immutable picture of the rate table of the base currency, in the moment it was fetched
+//a new table never changes this one, the client only swaps the reference for a new snapshot
+public record RateTableSnapshot(String baseCode, Map<String, BigDecimal> rates, Instant fetchedAt) {
+
+    public RateTableSnapshot {
+        rates = Map.copyOf(rates);
+    }
+
+    //from the base the rate is direct, between two other currencies it´s derived: (base -> to) / (base -> from)
+    public Optional<BigDecimal> conversionRate(String fromCode, String toCode) {
+        BigDecimal toRate = rates.get(toCode);
+        if (toRate == null) {
+            return Optional.empty();
+        }
+        if (fromCode.equals(baseCode)) {
+            return Optional.of(toRate);
+        }
+        BigDecimal fromRate = rates.get(fromCode);
+        if (fromRate == null || fromRate.signum() == 0) {
+            return Optional.empty();
+        }
+        return Optional.of(toRate.divide(fromRate, MathContext.DECIMAL64));
+    }
+
+    //the same currencies with the same values (0.18 and 0.180 are the same rate), the fetchedAt doesn´t matter
+    public boolean hasSameRates(RateTableSnapshot other) {
+        if (!baseCode.equals(other.baseCode()) || !rates.keySet().equals(other.rates().keySet())) {
+            return false;
+        }
+        return rates.entrySet().stream().allMatch(e -> e.getValue().compareTo(other.rates().get(e.getKey())) == 0);
+    }
+
+    public boolean isOlderThan(Duration age) {
+        return fetchedAt.plus(age).isBefore(Instant.now());
+    }
+}
@@ -0,0 +1,38 @@
+package com.lucasdev.productmanagementapi.integrations;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+//coalescing of concurrent loads: while a load of a key is running, the other callers of the same key
+//receive the same future instead of starting a new one (no thundering herd on the external API)
+//the success and the failure of the load are delivered to everybody that was waiting
+public class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    public CompletableFuture<V> execute(K key, Supplier<CompletableFuture<V>> loader) {
+
+        CompletableFuture<V> created = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, created);
+        if (existing != null) {
+            return existing; //someone is already loading, waiting for the same result
+        }
+
+        try {
+            loader.get().whenComplete((value, error) -> {
+                //completing before removing, so nobody starts a second load while the first one is finishing
+                if (error != null) {
+                    created.completeExceptionally(error);
+                } else {
+                    created.complete(value);
+                }
+                inFlight.remove(key, created);
+            });
+        } catch (RuntimeException e) {
+            created.completeExceptionally(e);
+            inFlight.remove(key, created);
+        }
+        return created;
+    }
+}
@@ -0,0 +1,25 @@
+package com.lucasdev.productmanagementapi.repositories;
+
+import com.lucasdev.productmanagementapi.entities.CatalogChange;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface CatalogChangeRepository extends JpaRepository<CatalogChange, Long> {
+
+    //seek by the version (unique index), a feed far behind costs the same as one up to date
+    //the changes without version yet are not returned
+    @Query("SELECT c FROM CatalogChange c WHERE c.version > :since ORDER BY c.version")
+    List<CatalogChange> findChangesAfter(Long since, Limit limit);
+
+    //compaction: an old change that has a newer one of the same entity says nothing that the newer doesn´t say
+    //(the last change of each entity is never deleted, so any version asked still gets the current state)
+    @Modifying
+    @Query("DELETE FROM CatalogChange c WHERE c.changedAt < :before AND EXISTS "
+            + "(SELECT 1 FROM CatalogChange n WHERE n.entityType = c.entityType AND n.entityId = c.entityId AND n.version > c.version)")
+    int deleteSupersededBefore(Instant before);
+}
@@ -1,11 +1,37 @@
 package com.lucasdev.productmanagementapi.repositories;
 
 import com.lucasdev.productmanagementapi.entities.Category;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+import java.util.Set;
+
 @Repository
-public interface CategoryRepository extends JpaRepository<Category, Long> {
+public interface CategoryRepository extends JpaRepository<Category, Long>, CategoryRepositoryCustom {
 
+    //in the query cache: the result (the id) is kept by name, and the category itself comes from the second level cache.
+    //any write in tb_category makes hibernate discard the cached results
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "category-queries")
+    })
     Category findByName(String name);
+
+    //only the ids, the bulk import checks the categories of all the rows against them (without one query by row)
+    @Query("SELECT c.id FROM Category c")
+    Set<Long> findAllIds();
+
+    //the seek queries for the cursor pagination, always sorted by name and id (the id is the tie-break)
+    @Query("SELECT c FROM Category c ORDER BY c.name, c.id")
+    List<Category> findFirstSlice(Limit limit);
+
+    //row value: postgres reads it as one range of the (name, id) index starting at the cursor (see search-indexes.sql)
+    @Query("SELECT c FROM Category c WHERE (c.name, c.id) > (:name, :id) ORDER BY c.name, c.id")
+    List<Category> findSliceAfter(String name, Long id, Limit limit);
 }
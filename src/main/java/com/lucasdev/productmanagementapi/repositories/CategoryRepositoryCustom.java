@@ -0,0 +1,12 @@
+package com.lucasdev.productmanagementapi.repositories;
+
+import com.lucasdev.productmanagementapi.entities.Category;
+
+import java.util.Collection;
+import java.util.List;
+
+//the methods of the CategoryRepository that spring data can´t derive (see CategoryRepositoryCustomImpl)
+public interface CategoryRepositoryCustom {
+
+    List<Category> findAllByIdCached(Collection<Long> ids);
+}
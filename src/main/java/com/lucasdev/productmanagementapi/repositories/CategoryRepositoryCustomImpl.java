@@ -0,0 +1,29 @@
+package com.lucasdev.productmanagementapi.repositories;
+
+import com.lucasdev.productmanagementapi.entities.Category;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+
+public class CategoryRepositoryCustomImpl implements CategoryRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    //findAllById is a query (WHERE id IN ...), it always goes to the database. the multi load looks first in the
+    //persistence context and in the second level cache, and only the ids missing there go to the database in one query.
+    //the ids that don´t exist are not in the list
+    @Override
+    public List<Category> findAllByIdCached(Collection<Long> ids) {
+        return entityManager.unwrap(Session.class)
+                .byMultipleIds(Category.class)
+                .multiLoad(List.copyOf(ids))
+                .stream()
+                .filter(Objects::nonNull)
+                .toList();
+    }
+}
@@ -0,0 +1,18 @@
+package com.lucasdev.productmanagementapi.repositories;
+
+import com.lucasdev.productmanagementapi.entities.ExchangeRate;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.List;
+
+public interface ExchangeRateRepository extends JpaRepository<ExchangeRate, Long> {
+
+    List<ExchangeRate> findByBaseCode(String baseCode);
+
+    //one DELETE for the whole table of the base, instead of loading and removing row by row
+    @Modifying
+    @Query("DELETE FROM ExchangeRate e WHERE e.baseCode = :baseCode")
+    void deleteAllByBaseCode(String baseCode);
+}
@@ -0,0 +1,25 @@
+package com.lucasdev.productmanagementapi.repositories;
+
+import com.lucasdev.productmanagementapi.entities.ProductPrice;
+import com.lucasdev.productmanagementapi.entities.ProductPricePK;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface ProductPriceRepository extends JpaRepository<ProductPrice, ProductPricePK> {
+
+    //the quotation: the row by the primary key, with the product (name and price) in the same query
+    @Query("SELECT pp FROM ProductPrice pp JOIN FETCH pp.product WHERE pp.id.productId = :productId AND pp.id.currencyCode = :currencyCode")
+    Optional<ProductPrice> findWithProduct(Long productId, String currencyCode);
+
+    //the converted prices of a list page, in one query
+    @Query("SELECT pp FROM ProductPrice pp WHERE pp.id.currencyCode = :currencyCode AND pp.id.productId IN :productIds")
+    List<ProductPrice> findByCurrencyCodeAndProductIds(String currencyCode, Collection<Long> productIds);
+
+    //the batch quotation: all the products in all the currencies of the request, in one query
+    @Query("SELECT pp FROM ProductPrice pp WHERE pp.id.productId IN :productIds AND pp.id.currencyCode IN :currencyCodes")
+    List<ProductPrice> findByProductIdsAndCurrencyCodes(Collection<Long> productIds, Collection<String> currencyCodes);
+}
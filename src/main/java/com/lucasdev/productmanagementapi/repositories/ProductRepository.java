@@ -1,29 +1,84 @@
 package com.lucasdev.productmanagementapi.repositories;
 
 import com.lucasdev.productmanagementapi.entities.Product;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
-import org.springframework.data.repository.query.Param;
+import org.springframework.data.jpa.repository.QueryHints;
 
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
-public interface ProductRepository extends JpaRepository<Product, Long> {
-
-    // a personalized method for search by productName and categoryName with query
-    @Query("SELECT DISTINCT p FROM Product p JOIN p.categories c " +
-            "WHERE (:productName IS NULL OR LOWER(p.name) LIKE LOWER(CONCAT('%', :productName, '%'))) " +
-            "AND (:categoryName IS NULL OR LOWER(c.name) LIKE LOWER(CONCAT('%', :categoryName, '%')))")
-    Page<Product> findByProductAndCategoryNames(@Param("productName") String productName, @Param("categoryName") String categoryName, Pageable pageable);
+//the JpaSpecificationExecutor gives the Specification support used by the search with filters (see ProductSpecifications),
+//the ProductRepositoryCustom runs those filters selecting only the keys
+public interface ProductRepository extends JpaRepository<Product, Long>, JpaSpecificationExecutor<Product>, ProductRepositoryCustom {
 
     @Query("SELECT p FROM Product p JOIN FETCH p.categories WHERE p.id = :id")
     Optional<Product> findByIdWithCategory(Long id);
 
-    //findALL
-    @Query(value = "SELECT DISTINCT p FROM Product p JOIN FETCH p.categories",
-            countQuery = "SELECT COUNT(DISTINCT p) FROM Product p JOIN p.categories")
-    Page<Product> findAllProductsWithCategories(Pageable pageable);
+    //the lists are done in two phases, because JOIN FETCH + Pageable makes hibernate bring ALL the rows and paginate in memory
+    //first phase: paginate only the ids, here the LIMIT/OFFSET goes to the SQL
+    @Query(value = "SELECT p.id FROM Product p",
+            countQuery = "SELECT COUNT(p) FROM Product p")
+    Page<Long> findPageOfIds(Pageable pageable);
+
+    //second phase: the products of the page with their categories, in one query (never bigger than the page)
+    @Query("SELECT DISTINCT p FROM Product p LEFT JOIN FETCH p.categories WHERE p.id IN :ids")
+    List<Product> findAllWithCategoriesByIdIn(Collection<Long> ids);
+
+    //only the id and the price of the products after an id, for recalculating the converted prices page by page (keyset)
+    //without loading the entities nor the whole catalog
+    @Query("SELECT p.id AS id, p.price AS price FROM Product p WHERE p.id > :afterId ORDER BY p.id")
+    List<IdAndPrice> findIdsAndPricesAfter(Long afterId, Limit limit);
+
+    //forward-only cursor over all the products for the export: the driver brings 500 rows per round trip (in postgres only
+    //inside a transaction), and the entities are read only (hibernate doesn´t keep the copies for the dirty checking)
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT p FROM Product p ORDER BY p.id")
+    Stream<Product> streamAllOrderById();
+
+    //the names (unique) of a chunk of the bulk import that are already in the database, one query for the whole chunk
+    @Query("SELECT p.name FROM Product p WHERE p.name IN :names")
+    Set<String> findExistingNames(Collection<String> names);
+
+    @Query("SELECT p.id FROM Product p WHERE p.id IN :ids")
+    Set<Long> findExistingIds(Collection<Long> ids);
+
+    //the bulk operations are one statement for all the products (set based), the entities are never loaded
+    //clearAutomatically: a product already in the persistence context would keep the old price
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Product p SET p.price = GREATEST(ROUND(p.price * :factor, 2), :minPrice), p.version = p.version + 1 "
+            + "WHERE p.id IN (SELECT cp.id FROM Product cp JOIN cp.categories c WHERE c.id = :categoryId)")
+    int adjustPricesOfCategory(Long categoryId, BigDecimal factor, BigDecimal minPrice);
+
+    @Query("SELECT p.id AS id, p.price AS price FROM Product p JOIN p.categories c WHERE c.id = :categoryId")
+    List<IdAndPrice> findIdsAndPricesByCategoryId(Long categoryId);
+
+    @Query("SELECT p.id FROM Product p JOIN p.categories c WHERE c.id = :categoryId")
+    List<Long> findIdsByCategoryId(Long categoryId);
+
+    //the links with the categories first (the foreign key of the join table), the converted prices go by the ON DELETE CASCADE
+    @Modifying(flushAutomatically = true)
+    @Query(value = "DELETE FROM tb_product_category WHERE product_id IN :ids", nativeQuery = true)
+    int deleteCategoryLinksOf(Collection<Long> ids);
+
+    interface IdAndPrice {
+        Long getId();
+        BigDecimal getPrice();
+    }
 
 }
 //the repository do the connection with the database, and with the services layer...important understand this
\ No newline at end of file
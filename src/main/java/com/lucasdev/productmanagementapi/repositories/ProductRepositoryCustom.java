@@ -0,0 +1,23 @@
+package com.lucasdev.productmanagementapi.repositories;
+
+import com.lucasdev.productmanagementapi.entities.Product;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+//the methods of the ProductRepository that spring data can´t derive (see ProductRepositoryCustomImpl)
+//the findAll/findBy of the JpaSpecificationExecutor always select the whole entity, these select only the keys
+public interface ProductRepositoryCustom {
+
+    //first phase of the paged search: only the ids of the page (and the count, when the page needs it)
+    Page<Long> findPageOfIds(Specification<Product> spec, Pageable pageable);
+
+    //first phase of the cursor lists: only the (name, id) of the slice, the sort key of the cursor
+    List<NameAndId> findNamesAndIds(Specification<Product> spec, Sort sort, int limit);
+
+    record NameAndId(String name, Long id) {
+    }
+}
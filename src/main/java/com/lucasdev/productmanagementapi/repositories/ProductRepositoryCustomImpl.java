@@ -0,0 +1,81 @@
+package com.lucasdev.productmanagementapi.repositories;
+
+import com.lucasdev.productmanagementapi.entities.Product;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+
+import java.util.List;
+
+public class ProductRepositoryCustomImpl implements ProductRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    //SELECT p.id ... instead of SELECT p.*, no Product is hydrated only to read its id
+    @Override
+    public Page<Long> findPageOfIds(Specification<Product> spec, Pageable pageable) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<Product> root = query.from(Product.class);
+        query.select(root.<Long>get("id"));
+        where(query, root, cb, spec);
+        query.orderBy(QueryUtils.toOrders(pageable.getSort(), root, cb));
+
+        List<Long> ids = pageable.isUnpaged()
+                ? entityManager.createQuery(query).getResultList()
+                : entityManager.createQuery(query)
+                        .setFirstResult((int) pageable.getOffset())
+                        .setMaxResults(pageable.getPageSize())
+                        .getResultList();
+
+        //the same of the findAll(Specification, Pageable): the COUNT only runs when the page alone can´t tell the total
+        return PageableExecutionUtils.getPage(ids, pageable, () -> count(spec));
+    }
+
+    @Override
+    public List<NameAndId> findNamesAndIds(Specification<Product> spec, Sort sort, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Product> root = query.from(Product.class);
+        query.multiselect(root.<String>get("name"), root.<Long>get("id"));
+        where(query, root, cb, spec);
+        query.orderBy(QueryUtils.toOrders(sort, root, cb));
+
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultStream()
+                .map(t -> new NameAndId(t.get(0, String.class), t.get(1, Long.class)))
+                .toList();
+    }
+
+    private long count(Specification<Product> spec) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<Product> root = query.from(Product.class);
+        query.select(cb.count(root));
+        where(query, root, cb, spec);
+        return entityManager.createQuery(query).getSingleResult();
+    }
+
+    //a null specification (or one where every filter was ignored) means no WHERE
+    private static void where(CriteriaQuery<?> query, Root<Product> root, CriteriaBuilder cb, Specification<Product> spec) {
+        if (spec == null) {
+            return;
+        }
+        Predicate predicate = spec.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.lucasdev.productmanagementapi.repositories;
+
+import com.lucasdev.productmanagementapi.entities.Category;
+import com.lucasdev.productmanagementapi.entities.Product;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+import org.springframework.data.jpa.domain.Specification;
+
+//filters for the product search, each filter only enters in the SQL when the user really sent the value
+//so the database never receives a "(:param IS NULL OR ...)" predicate that stops it from using the trigram indexes
+public final class ProductSpecifications {
+
+    private static final char ESCAPE = '\\';
+
+    private ProductSpecifications() {
+    }
+
+    public static Specification<Product> nameContains(String productName) {
+        return (root, query, cb) -> {
+            if (productName == null) {
+                return null; //null predicate = filter ignored
+            }
+            //LOWER(name) LIKE '%x%'... in postgres this is answered by the gin_trgm_ops index over lower(name)
+            return cb.like(cb.lower(root.get("name")), containsPattern(productName), ESCAPE);
+        };
+    }
+
+    public static Specification<Product> categoryNameContains(String categoryName) {
+        return (root, query, cb) -> {
+            if (categoryName == null) {
+                return null;
+            }
+            //EXISTS instead of JOIN + DISTINCT, the product is returned once and the database can stop at the first category that matches
+            Subquery<Long> subquery = query.subquery(Long.class);
+            Root<Product> correlated = subquery.correlate(root);
+            Join<Product, Category> category = correlated.join("categories");
+            subquery.select(category.get("id"))
+                    .where(cb.like(cb.lower(category.get("name")), containsPattern(categoryName), ESCAPE));
+
+            return cb.exists(subquery);
+        };
+    }
+
+    //seek predicate of the cursor pagination: everything after (name, id) in the order "name, id", the same of the row
+    //value (name, id) > (:name, :id) (the criteria api doesn´t have row values). the "name >= :name" alone in the AND is
+    //the start of the range in the (name, id) index (see search-indexes.sql), the OR is only checked in the rows of
+    //that name, so no OFFSET rows are read and the table is not sorted
+    public static Specification<Product> after(String name, Long id) {
+        return (root, query, cb) -> {
+            if (name == null || id == null) {
+                return null; //first slice
+            }
+            return cb.and(
+                    cb.greaterThanOrEqualTo(root.<String>get("name"), name),
+                    cb.or(cb.greaterThan(root.<String>get("name"), name), cb.greaterThan(root.<Long>get("id"), id)));
+        };
+    }
+
+    //escaping the wildcards that the user typed, "50%" must search for the text "50%" and not for "50" + anything
+    private static String containsPattern(String value) {
+        String escaped = value.toLowerCase()
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+        return "%" + escaped + "%";
+    }
+}
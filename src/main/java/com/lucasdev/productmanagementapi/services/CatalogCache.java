@@ -0,0 +1,95 @@
+package com.lucasdev.productmanagementapi.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.lucasdev.productmanagementapi.DTO.CategoryResponseDTO;
+import com.lucasdev.productmanagementapi.DTO.ProductResponseDTO;
+import com.lucasdev.productmanagementapi.events.CategoryChangedEvent;
+import com.lucasdev.productmanagementapi.events.ProductsChangedEvent;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+//cache of the lookups by id (GET /products/{id}, GET /categories/{id}), the catalog changes much less than it´s read.
+//size bounded (caffeine evicts by W-TinyLFU: the products read often stay, a crawler reading everything once doesn´t
+//clean the cache), and invalidated after the transaction of the write ends (after the commit the next read loads the new
+//data, after a rollback whatever was loaded inside the transaction is thrown away).
+//a load and an invalidation of the same id don´t cross: caffeine makes the invalidation wait the load in progress, so a
+//value read before the commit can´t stay in the cache after it.
+//the DTOs are shared between the requests, nobody can change them after they come from here
+@Component
+public class CatalogCache implements MeterBinder {
+
+    private final Cache<Long, ProductResponseDTO> products;
+    private final Cache<Long, CategoryResponseDTO> categories;
+
+    public CatalogCache(@Value("${catalog.cache.products.max-size:10000}") long productsMaxSize,
+                        @Value("${catalog.cache.categories.max-size:1000}") long categoriesMaxSize,
+                        //only a safety net for changes done out of the API (direct in the database)
+                        @Value("${catalog.cache.expire-after-write:PT10M}") Duration expireAfterWrite) {
+        this.products = Caffeine.newBuilder().maximumSize(productsMaxSize).expireAfterWrite(expireAfterWrite).recordStats().build();
+        this.categories = Caffeine.newBuilder().maximumSize(categoriesMaxSize).expireAfterWrite(expireAfterWrite).recordStats().build();
+    }
+
+    public ProductResponseDTO getProduct(Long id, Function<Long, ProductResponseDTO> loader) {
+        return insideWrite() ? loader.apply(id) : products.get(id, loader);
+    }
+
+    //the hits from the cache and all the misses in one load. what was loaded doesn´t go to the cache: a bulk load doesn´t
+    //lock the keys like get() does, an invalidation in the middle of it would be lost and the old value would stay
+    public Map<Long, ProductResponseDTO> getProducts(Set<Long> ids, Function<Set<Long>, Map<Long, ProductResponseDTO>> loader) {
+        if (insideWrite()) {
+            return loader.apply(ids);
+        }
+        Map<Long, ProductResponseDTO> found = new HashMap<>(products.getAllPresent(ids));
+        if (found.size() < ids.size()) {
+            Set<Long> missing = new HashSet<>(ids);
+            missing.removeAll(found.keySet());
+            found.putAll(loader.apply(missing));
+        }
+        return found;
+    }
+
+    public CategoryResponseDTO getCategory(Long id, Function<Long, CategoryResponseDTO> loader) {
+        return insideWrite() ? loader.apply(id) : categories.get(id, loader);
+    }
+
+    //a transaction that writes can see its own data not committed yet, that can´t go to the other requests
+    private static boolean insideWrite() {
+        return TransactionSynchronizationManager.isActualTransactionActive() && !TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMPLETION, fallbackExecution = true)
+    public void onProductsChanged(ProductsChangedEvent event) {
+        products.invalidateAll(event.productIds());
+    }
+
+    //the products have the name of the category in their json
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMPLETION, fallbackExecution = true)
+    public void onCategoryChanged(CategoryChangedEvent event) {
+        categories.invalidate(event.categoryId());
+        products.invalidateAll(event.productIds());
+    }
+
+    //bound by spring boot to the registry of the actuator: cache.gets (hit/miss), cache.evictions, cache.size... by cache
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, products, "products");
+        CaffeineCacheMetrics.monitor(registry, categories, "categories");
+        Gauge.builder("cache.hit.ratio", products, cache -> cache.stats().hitRate()).tag("cache", "products").register(registry);
+        Gauge.builder("cache.hit.ratio", categories, cache -> cache.stats().hitRate()).tag("cache", "categories").register(registry);
+    }
+}
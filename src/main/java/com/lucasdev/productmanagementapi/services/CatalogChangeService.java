@@ -0,0 +1,212 @@
+package com.lucasdev.productmanagementapi.services;
+
+import com.lucasdev.productmanagementapi.DTO.CatalogChangeDTO;
+import com.lucasdev.productmanagementapi.DTO.CategoryResponseDTO;
+import com.lucasdev.productmanagementapi.DTO.ChangeFeedDTO;
+import com.lucasdev.productmanagementapi.DTO.ProductResponseDTO;
+import com.lucasdev.productmanagementapi.entities.CatalogChange;
+import com.lucasdev.productmanagementapi.entities.CatalogChange.EntityType;
+import com.lucasdev.productmanagementapi.entities.Category;
+import com.lucasdev.productmanagementapi.entities.Product;
+import com.lucasdev.productmanagementapi.events.CategoryChangedEvent;
+import com.lucasdev.productmanagementapi.events.ProductsChangedEvent;
+import com.lucasdev.productmanagementapi.exceptions.InvalidCursorException;
+import com.lucasdev.productmanagementapi.repositories.CatalogChangeRepository;
+import com.lucasdev.productmanagementapi.repositories.CategoryRepository;
+import com.lucasdev.productmanagementapi.repositories.ProductRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+//the change feed of the catalog: every write of products and categories leaves a row in tb_catalog_change (in the same
+//transaction of the write, so a change rolled back never appears), and the mirrors ask only what changed after their version
+//the version is given after the commit by assignVersions, only the changes with version are in the feed
+@Service
+public class CatalogChangeService {
+
+    public static final int MAX_FEED_SIZE = 1000;
+
+    private static final int VERSIONING_BATCH = 1000;
+
+    private static final String INSERT_CHANGE = "INSERT INTO tb_catalog_change (entity_type, entity_id, deleted, changed_at) VALUES (?, ?, ?, ?)";
+
+    //a category renamed changes the json of all its products, one INSERT ... SELECT for all of them
+    private static final String INSERT_PRODUCTS_OF_CATEGORY = "INSERT INTO tb_catalog_change (entity_type, entity_id, deleted, changed_at) "
+            + "SELECT 'PRODUCT', product_id, FALSE, ? FROM tb_product_category WHERE category_id = ?";
+
+    private static final String SELECT_LAST_VERSION = "SELECT COALESCE(MAX(version), 0) FROM tb_catalog_change";
+    private static final String SELECT_UNVERSIONED = "SELECT id FROM tb_catalog_change WHERE version IS NULL ORDER BY id LIMIT ?";
+    private static final String UPDATE_VERSION = "UPDATE tb_catalog_change SET version = ? WHERE id = ?";
+
+    private final CatalogChangeRepository catalogChangeRepository;
+    private final ProductRepository productRepository;
+    private final CategoryRepository categoryRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final Duration retention;
+
+    public CatalogChangeService(CatalogChangeRepository catalogChangeRepository,
+                                ProductRepository productRepository,
+                                CategoryRepository categoryRepository,
+                                JdbcTemplate jdbcTemplate,
+                                ApplicationEventPublisher eventPublisher,
+                                @Value("${catalog.changes.retention:P7D}") Duration retention) {
+        this.catalogChangeRepository = catalogChangeRepository;
+        this.productRepository = productRepository;
+        this.categoryRepository = categoryRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.eventPublisher = eventPublisher;
+        this.retention = retention;
+    }
+
+    //MANDATORY: the change must be written in the transaction of the write itself, never alone
+    //the events go to the live stream and to the cache of the lookups (ProductEventBroadcaster, CatalogCache)
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordNewProducts(Collection<Long> productIds) {
+        record(EntityType.PRODUCT, productIds, false);
+        eventPublisher.publishEvent(new ProductsChangedEvent(List.copyOf(productIds), ProductsChangedEvent.Kind.CREATED));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordProducts(Collection<Long> productIds) {
+        record(EntityType.PRODUCT, productIds, false);
+        eventPublisher.publishEvent(new ProductsChangedEvent(List.copyOf(productIds), ProductsChangedEvent.Kind.UPDATED));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordProductDeletes(Collection<Long> productIds) {
+        record(EntityType.PRODUCT, productIds, true);
+        eventPublisher.publishEvent(new ProductsChangedEvent(List.copyOf(productIds), ProductsChangedEvent.Kind.DELETED));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordCategory(Long categoryId) {
+        record(EntityType.CATEGORY, List.of(categoryId), false);
+        //links of products saved in this same transaction can still be only in the persistence context
+        productRepository.flush();
+        jdbcTemplate.update(INSERT_PRODUCTS_OF_CATEGORY, Timestamp.from(Instant.now()), categoryId);
+        eventPublisher.publishEvent(new CategoryChangedEvent(categoryId, productRepository.findIdsByCategoryId(categoryId), false));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordCategoryDelete(Long categoryId) {
+        record(EntityType.CATEGORY, List.of(categoryId), true);
+        //a category with products can´t be deleted (foreign key), so no product changes here
+        eventPublisher.publishEvent(new CategoryChangedEvent(categoryId, List.of(), true));
+    }
+
+    private void record(EntityType type, Collection<Long> ids, boolean deleted) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.from(Instant.now());
+        List<Object[]> rows = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            rows.add(new Object[]{type.name(), id, deleted, now});
+        }
+        jdbcTemplate.batchUpdate(INSERT_CHANGE, rows);
+    }
+
+    //the changes after the version 'since' (0 = from the beginning), each entity only once with its current state
+    @Transactional(readOnly = true)
+    public ChangeFeedDTO findChanges(long since, int size) {
+        if (since < 0) {
+            throw new InvalidCursorException("Invalid version: " + since);
+        }
+        int pageSize = Math.max(1, Math.min(size, MAX_FEED_SIZE));
+
+        List<CatalogChange> rows = catalogChangeRepository.findChangesAfter(since, Limit.of(pageSize + 1));
+        boolean hasMore = rows.size() > pageSize;
+        if (hasMore) {
+            rows = rows.subList(0, pageSize);
+        }
+        long lastVersion = rows.isEmpty() ? since : rows.get(rows.size() - 1).getVersion();
+
+        //a product changed 5 times in the slice goes once, in the position of its last change
+        Map<String, CatalogChange> latest = new LinkedHashMap<>();
+        for (CatalogChange row : rows) {
+            String key = row.getEntityType() + ":" + row.getEntityId();
+            latest.remove(key);
+            latest.put(key, row);
+        }
+
+        //the current state of the slice: one query for the products (with categories) and one for the categories
+        List<Long> productIds = idsToLoad(latest.values(), EntityType.PRODUCT);
+        List<Long> categoryIds = idsToLoad(latest.values(), EntityType.CATEGORY);
+        Map<Long, Product> products = new HashMap<>();
+        if (!productIds.isEmpty()) {
+            productRepository.findAllWithCategoriesByIdIn(productIds).forEach(p -> products.put(p.getId(), p));
+        }
+        Map<Long, Category> categories = new HashMap<>();
+        if (!categoryIds.isEmpty()) {
+            categoryRepository.findAllByIdCached(categoryIds).forEach(c -> categories.put(c.getId(), c));
+        }
+
+        List<CatalogChangeDTO> changes = new ArrayList<>(latest.size());
+        for (CatalogChange row : latest.values()) {
+            CatalogChangeDTO dto = new CatalogChangeDTO(row.getVersion(), row.getEntityType().name(), row.getEntityId(), row.isDeleted(), row.getChangedAt(), null, null);
+            if (!row.isDeleted()) {
+                if (row.getEntityType() == EntityType.PRODUCT && products.containsKey(row.getEntityId())) {
+                    dto.setProduct(new ProductResponseDTO(products.get(row.getEntityId())));
+                } else if (row.getEntityType() == EntityType.CATEGORY && categories.containsKey(row.getEntityId())) {
+                    dto.setCategory(new CategoryResponseDTO(categories.get(row.getEntityId())));
+                } else {
+                    //deleted after this change (its tombstone comes in a next slice), for the mirror it´s already gone
+                    dto.setDeleted(true);
+                }
+            }
+            changes.add(dto);
+        }
+
+        return new ChangeFeedDTO(changes, changes.size(), lastVersion, hasMore);
+    }
+
+    private static List<Long> idsToLoad(Collection<CatalogChange> changes, EntityType type) {
+        return changes.stream().filter(c -> c.getEntityType() == type && !c.isDeleted()).map(CatalogChange::getEntityId).toList();
+    }
+
+    //the ids come from the database in the order of the inserts, but the transactions commit in any order: the id 10 can
+    //become visible after a mirror already read the id 11, and it would never be read. so the version is given here, after
+    //the commit, by only one writer: this query sees only the committed changes, and each run gives them the versions after
+    //the last one in one transaction. a mirror sees all the versions of a run or none, the visible versions have no holes
+    //(two nodes running at the same time: the unique version makes one of them fail, its changes go in the next run)
+    @Scheduled(fixedDelayString = "${catalog.changes.versioning-interval:PT0.2S}")
+    @Transactional
+    public void assignVersions() {
+        long version = jdbcTemplate.queryForObject(SELECT_LAST_VERSION, Long.class);
+        List<Long> ids;
+        do {
+            ids = jdbcTemplate.queryForList(SELECT_UNVERSIONED, Long.class, VERSIONING_BATCH);
+            List<Object[]> rows = new ArrayList<>(ids.size());
+            for (Long id : ids) {
+                rows.add(new Object[]{++version, id});
+            }
+            if (!rows.isEmpty()) {
+                jdbcTemplate.batchUpdate(UPDATE_VERSION, rows);
+            }
+        } while (ids.size() == VERSIONING_BATCH);
+    }
+
+    //the feed doesn´t grow forever: the old changes that were superseded by a newer one of the same entity are removed
+    @Scheduled(cron = "${catalog.changes.compaction-cron:0 30 3 * * *}")
+    @Transactional
+    public void compact() {
+        catalogChangeRepository.deleteSupersededBefore(Instant.now().minus(retention));
+    }
+}
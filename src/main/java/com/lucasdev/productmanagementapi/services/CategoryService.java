@@ -2,6 +2,7 @@ package com.lucasdev.productmanagementapi.services;
 
 import com.lucasdev.productmanagementapi.DTO.CategoryRequestDTO;
 import com.lucasdev.productmanagementapi.DTO.CategoryResponseDTO;
+import com.lucasdev.productmanagementapi.DTO.CursorPageDTO;
 import com.lucasdev.productmanagementapi.entities.Category;
 import com.lucasdev.productmanagementapi.exceptions.DataBaseException;
 import com.lucasdev.productmanagementapi.exceptions.IntegrityDataException;
@@ -9,33 +10,39 @@ import com.lucasdev.productmanagementapi.exceptions.ResourceNotFoundException;
 import com.lucasdev.productmanagementapi.repositories.CategoryRepository;
 import org.springframework.beans.BeanUtils;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
+
 
 @Service
 public class CategoryService {
 
     //starts to doing a dependency with a constructor
     private final CategoryRepository categoryRepository;
+    private final CatalogChangeService catalogChangeService;
+    private final CatalogCache catalogCache;
 
-    public CategoryService(CategoryRepository categoryRepository) {
+    public CategoryService(CategoryRepository categoryRepository, CatalogChangeService catalogChangeService, CatalogCache catalogCache) {
         this.categoryRepository = categoryRepository;
+        this.catalogChangeService = catalogChangeService;
+        this.catalogCache = catalogCache;
     }
 
-    //method for find the category for id
-    @Transactional(readOnly = true)
+    //method for find the category for id (from the cache, so no @Transactional: the repository has its own)
     public CategoryResponseDTO findById(Long id){
         try {
-            //if categoryRepository back´s empty, i'll throw my personalized exception!
-            Category entity = categoryRepository.findById(id)
-                    .orElseThrow(() -> new ResourceNotFoundException("Category not found with id " + id));
-            //doing the new instance
-            CategoryResponseDTO responseDTO = new CategoryResponseDTO(entity);
-            //returning the DTO!
-            return responseDTO;
+            return catalogCache.getCategory(id, key -> {
+                //if categoryRepository back´s empty, i'll throw my personalized exception!
+                Category entity = categoryRepository.findById(key)
+                        .orElseThrow(() -> new ResourceNotFoundException("Category not found with id " + key));
+                //returning the new instance of the DTO!
+                return new CategoryResponseDTO(entity);
+            });
         }catch (DataIntegrityViolationException e){
             throw new DataBaseException("data with invalid format entered");
         }
@@ -51,6 +58,22 @@ public class CategoryService {
         return entitiesPage.map(e -> new CategoryResponseDTO(e));
     }
 
+    //cursor (keyset) version of the list, no OFFSET and no COUNT, so the page 1000 costs the same as the page 1
+    @Transactional(readOnly = true)
+    public CursorPageDTO<CategoryResponseDTO> findAllByCursor(String cursor, int size) {
+
+        int pageSize = KeysetCursor.clampSize(size);
+        KeysetCursor after = KeysetCursor.decode(cursor);
+
+        //asking for one more, if it came there´s a next slice
+        Limit limit = Limit.of(pageSize + 1);
+        List<Category> entities = (after == null)
+                ? categoryRepository.findFirstSlice(limit)
+                : categoryRepository.findSliceAfter(after.getName(), after.getId(), limit);
+
+        return KeysetCursor.toPage(entities, pageSize, c -> new KeysetCursor(c.getName(), c.getId()), CategoryResponseDTO::new);
+    }
+
     //makes transactional for respects the ACID principles
     @Transactional
     public CategoryResponseDTO insert(CategoryRequestDTO dto){
@@ -63,6 +86,7 @@ public class CategoryService {
 
             //save the entity on the repository
             entity = categoryRepository.save(entity);
+            catalogChangeService.recordCategory(entity.getId());
 
             //return the dto
             return new CategoryResponseDTO(entity);
@@ -81,6 +105,8 @@ public class CategoryService {
 
             BeanUtils.copyProperties(dto, entity, "id");
             entity = categoryRepository.save(entity);
+            //the category and its products (their json has the name of the category)
+            catalogChangeService.recordCategory(entity.getId());
             return new CategoryResponseDTO(entity);
 
         }catch (DataIntegrityViolationException e){
@@ -96,6 +122,7 @@ public class CategoryService {
                 throw new ResourceNotFoundException("Category not found with id " + id);
             }
             categoryRepository.deleteById(id);
+            catalogChangeService.recordCategoryDelete(id);
 
         }catch (DataIntegrityViolationException e){
             throw new DataIntegrityViolationException(e.getMessage());
@@ -0,0 +1,66 @@
+package com.lucasdev.productmanagementapi.services;
+
+import com.lucasdev.productmanagementapi.DTO.CursorPageDTO;
+import com.lucasdev.productmanagementapi.exceptions.InvalidCursorException;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.data.domain.Sort;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+//the position of a keyset (seek) pagination: the sort key (name) and the id of the last element returned
+//the client receives this encoded as an opaque token, and sends it back to get the next slice
+@Getter
+@AllArgsConstructor
+public final class KeysetCursor {
+
+    //the cursor pages are always sorted by name and id, the id is the tie-break so the order is total
+    public static final Sort SORT = Sort.by("name", "id");
+
+    public static final int MAX_PAGE_SIZE = 100;
+
+    private final String name;
+    private final Long id;
+
+    public String encode() {
+        //id first, so the name can have any character (including ':')
+        String raw = id + ":" + name;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    //null or blank token means the first slice
+    public static KeysetCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(':');
+            if (separator < 1) {
+                throw new InvalidCursorException("Invalid cursor: " + token);
+            }
+            return new KeysetCursor(raw.substring(separator + 1), Long.valueOf(raw.substring(0, separator)));
+
+        } catch (IllegalArgumentException e) { //bad base64 or bad number
+            throw new InvalidCursorException("Invalid cursor: " + token);
+        }
+    }
+
+    public static int clampSize(int size) {
+        return Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+    }
+
+    //the queries ask for size + 1 rows, if the extra row came there´s a next slice
+    public static <E, D> CursorPageDTO<D> toPage(List<E> rows, int size, Function<E, KeysetCursor> keyOf, Function<E, D> mapper) {
+        boolean hasNext = rows.size() > size;
+        List<E> content = hasNext ? rows.subList(0, size) : rows;
+
+        String next = hasNext ? keyOf.apply(content.get(content.size() - 1)).encode() : null;
+
+        List<D> dtos = content.stream().map(mapper).toList();
+        return new CursorPageDTO<>(dtos, dtos.size(), next);
+    }
+}
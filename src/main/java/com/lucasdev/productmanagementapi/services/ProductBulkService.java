@@ -0,0 +1,113 @@
+package com.lucasdev.productmanagementapi.services;
+
+import com.lucasdev.productmanagementapi.DTO.BulkOperationResultDTO;
+import com.lucasdev.productmanagementapi.DTO.ProductPriceUpdateDTO;
+import com.lucasdev.productmanagementapi.events.ProductsRepricedEvent;
+import com.lucasdev.productmanagementapi.exceptions.ResourceNotFoundException;
+import com.lucasdev.productmanagementapi.repositories.CategoryRepository;
+import com.lucasdev.productmanagementapi.repositories.ProductRepository;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+//the operations over many products at once (the nightly repricing, promotions of a category, cleanups)
+//each one is set based SQL in one transaction: no entity is loaded, and the work doesn´t grow in statements with the products
+@Service
+public class ProductBulkService {
+
+    //the version goes up like in an update of hibernate, so the ETag of the product changes
+    private static final String UPDATE_PRICE = "UPDATE tb_product SET price = ?, version = version + 1 WHERE id = ?";
+    private static final BigDecimal MIN_PRICE = new BigDecimal("0.01");
+    private static final BigDecimal HUNDRED = new BigDecimal("100");
+
+    private final ProductRepository productRepository;
+    private final CategoryRepository categoryRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CatalogChangeService catalogChangeService;
+
+    public ProductBulkService(ProductRepository productRepository, CategoryRepository categoryRepository,
+                              JdbcTemplate jdbcTemplate, ApplicationEventPublisher eventPublisher,
+                              CatalogChangeService catalogChangeService) {
+        this.productRepository = productRepository;
+        this.categoryRepository = categoryRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.eventPublisher = eventPublisher;
+        this.catalogChangeService = catalogChangeService;
+    }
+
+    //a new price for each product of the list, sent to the database as ONE jdbc batch of updates
+    //the ids that don´t exist are skipped and returned, the others are updated anyway
+    @Transactional
+    public BulkOperationResultDTO updatePrices(List<ProductPriceUpdateDTO> prices) {
+
+        //the same id twice: the last price wins
+        Map<Long, BigDecimal> pricesById = new LinkedHashMap<>();
+        prices.forEach(p -> pricesById.put(p.getId(), p.getPrice()));
+
+        List<Long> missingIds = missingIds(pricesById.keySet());
+        missingIds.forEach(pricesById::remove);
+
+        List<Object[]> rows = new ArrayList<>(pricesById.size());
+        pricesById.forEach((id, price) -> rows.add(new Object[]{price, id}));
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPDATE_PRICE, rows);
+            catalogChangeService.recordProducts(pricesById.keySet());
+            eventPublisher.publishEvent(new ProductsRepricedEvent(pricesById));
+        }
+
+        return new BulkOperationResultDTO(pricesById.size(), missingIds);
+    }
+
+    //+percentage% on the price of all the products of the category, in one UPDATE (rounded to 2 decimals, never under 0.01)
+    @Transactional
+    public BulkOperationResultDTO adjustPricesOfCategory(Long categoryId, BigDecimal percentage) {
+        if (!categoryRepository.existsById(categoryId)) {
+            throw new ResourceNotFoundException("Category not found with id " + categoryId);
+        }
+
+        BigDecimal factor = BigDecimal.ONE.add(percentage.divide(HUNDRED));
+        int affected = productRepository.adjustPricesOfCategory(categoryId, factor, MIN_PRICE);
+
+        if (affected > 0) {
+            //the new prices, for the converted prices and the change feed of these products
+            Map<Long, BigDecimal> pricesById = new HashMap<>();
+            productRepository.findIdsAndPricesByCategoryId(categoryId).forEach(p -> pricesById.put(p.getId(), p.getPrice()));
+            catalogChangeService.recordProducts(pricesById.keySet());
+            eventPublisher.publishEvent(new ProductsRepricedEvent(pricesById));
+        }
+
+        return new BulkOperationResultDTO(affected, new ArrayList<>());
+    }
+
+    //two DELETEs for all the products (the links with the categories, then the products), the ids that don´t exist are returned
+    @Transactional
+    public BulkOperationResultDTO deleteProducts(Set<Long> ids) {
+
+        Set<Long> existingIds = productRepository.findExistingIds(ids);
+        List<Long> missingIds = ids.stream().filter(id -> !existingIds.contains(id)).sorted().toList();
+
+        if (!existingIds.isEmpty()) {
+            productRepository.deleteCategoryLinksOf(existingIds);
+            productRepository.deleteAllByIdInBatch(existingIds);
+            catalogChangeService.recordProductDeletes(existingIds);
+        }
+
+        return new BulkOperationResultDTO(existingIds.size(), missingIds);
+    }
+
+    private List<Long> missingIds(Collection<Long> ids) {
+        Set<Long> existing = productRepository.findExistingIds(ids);
+        return ids.stream().filter(id -> !existing.contains(id)).sorted().toList();
+    }
+}
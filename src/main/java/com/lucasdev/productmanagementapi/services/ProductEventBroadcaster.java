@@ -0,0 +1,155 @@
+package com.lucasdev.productmanagementapi.services;
+
+import com.lucasdev.productmanagementapi.DTO.ProductEventDTO;
+import com.lucasdev.productmanagementapi.events.ProductPriceChangedEvent;
+import com.lucasdev.productmanagementapi.events.ProductsChangedEvent;
+import com.lucasdev.productmanagementapi.events.ProductsRepricedEvent;
+import com.lucasdev.productmanagementapi.exceptions.ServiceUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+//live stream of the product changes (GET /products/events): the events of the writes are pushed to all the subscribers
+//after the commit, so a client never sees a change that was rolled back.
+//each subscriber has its own bounded buffer: a slow client loses its oldest events (and sees a gap in the ids), it never
+//makes the others wait or the heap grow. who needs every change reads the change feed (GET /changes) from its last version
+@Service
+public class ProductEventBroadcaster {
+
+    public static final String PRODUCT_CREATED = "product-created";
+    public static final String PRODUCT_UPDATED = "product-updated";
+    public static final String PRODUCT_DELETED = "product-deleted";
+    public static final String PRICE_CHANGED = "price-changed";
+
+    private static final ServerSentEvent<ProductEventDTO> HEARTBEAT = ServerSentEvent.<ProductEventDTO>builder().comment("heartbeat").build();
+
+    //directBestEffort: the sink never buffers, each subscriber receives in its own buffer (onBackpressureBuffer below)
+    private final Sinks.Many<ServerSentEvent<ProductEventDTO>> sink = Sinks.many().multicast().directBestEffort();
+    private long lastEventId;
+
+    private final AtomicInteger subscribers = new AtomicInteger();
+    private final Counter droppedEvents;
+
+    private final int maxSubscribers;
+    private final int bufferSize;
+    //a bulk operation of 100k products is one event with the count, not 100k events for each subscriber
+    private final int maxIdsPerEvent;
+    private final Duration heartbeatInterval;
+    private final Duration maxConnectionTime;
+    private final Duration reconnectDelay;
+
+    public ProductEventBroadcaster(MeterRegistry meterRegistry,
+                                   @Value("${products.events.max-subscribers:5000}") int maxSubscribers,
+                                   @Value("${products.events.buffer-size:256}") int bufferSize,
+                                   @Value("${products.events.max-ids-per-event:100}") int maxIdsPerEvent,
+                                   @Value("${products.events.heartbeat-interval:PT15S}") Duration heartbeatInterval,
+                                   @Value("${products.events.max-connection-time:PT30M}") Duration maxConnectionTime,
+                                   @Value("${products.events.reconnect-delay:PT3S}") Duration reconnectDelay) {
+        this.maxSubscribers = maxSubscribers;
+        this.bufferSize = bufferSize;
+        this.maxIdsPerEvent = maxIdsPerEvent;
+        this.heartbeatInterval = heartbeatInterval;
+        this.maxConnectionTime = maxConnectionTime;
+        this.reconnectDelay = reconnectDelay;
+        this.droppedEvents = Counter.builder("products.events.dropped").register(meterRegistry);
+        Gauge.builder("products.events.subscribers", subscribers, AtomicInteger::get).register(meterRegistry);
+    }
+
+    public Flux<ServerSentEvent<ProductEventDTO>> subscribe() {
+        //refusing here already answers 503 before the stream starts, but the slot is only taken by the subscription below
+        if (subscribers.get() >= maxSubscribers) {
+            throw tooManySubscribers();
+        }
+        //the slot is taken and released by the same subscription: a Flux that is never subscribed (the client left
+        //before the stream started) holds no slot, and one subscribed twice holds two and releases two
+        return Flux.defer(() -> {
+            if (subscribers.incrementAndGet() > maxSubscribers) {
+                subscribers.decrementAndGet();
+                return Flux.error(tooManySubscribers());
+            }
+            return stream().doFinally(signal -> subscribers.decrementAndGet());
+        });
+    }
+
+    private Flux<ServerSentEvent<ProductEventDTO>> stream() {
+        Flux<ServerSentEvent<ProductEventDTO>> events = sink.asFlux()
+                .onBackpressureBuffer(bufferSize, dropped -> droppedEvents.increment(), BufferOverflowStrategy.DROP_OLDEST);
+        //the heartbeat keeps the proxies from closing an idle connection, and finds the clients that are gone
+        Flux<ServerSentEvent<ProductEventDTO>> heartbeats = Flux.interval(heartbeatInterval)
+                .onBackpressureDrop()
+                .map(tick -> HEARTBEAT);
+
+        //the connection is closed after the max time (EventSource connects again after the retry), so the subscribers
+        //are spread again between the nodes after a deploy or a scale up
+        ServerSentEvent<ProductEventDTO> connected = ServerSentEvent.<ProductEventDTO>builder().comment("connected").retry(reconnectDelay).build();
+        return Flux.merge(events, heartbeats)
+                .startWith(connected)
+                .take(maxConnectionTime);
+    }
+
+    private static ServiceUnavailableException tooManySubscribers() {
+        return new ServiceUnavailableException("Too many subscribers of the product events, try again later");
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.get();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onProductsChanged(ProductsChangedEvent event) {
+        String type = switch (event.kind()) {
+            case CREATED -> PRODUCT_CREATED;
+            case UPDATED -> PRODUCT_UPDATED;
+            case DELETED -> PRODUCT_DELETED;
+        };
+        Instant now = Instant.now();
+        if (event.productIds().size() > maxIdsPerEvent) {
+            //products-created, products-updated, products-deleted
+            emit(type.replace("product-", "products-"), new ProductEventDTO(null, null, event.productIds().size(), now));
+            return;
+        }
+        for (Long id : event.productIds()) {
+            emit(type, new ProductEventDTO(id, null, null, now));
+        }
+    }
+
+    //also sent for a new product (its first price)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onProductPriceChanged(ProductPriceChangedEvent event) {
+        emit(PRICE_CHANGED, new ProductEventDTO(event.productId(), event.price(), null, Instant.now()));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onProductsRepriced(ProductsRepricedEvent event) {
+        Instant now = Instant.now();
+        if (event.pricesById().size() > maxIdsPerEvent) {
+            emit("prices-changed", new ProductEventDTO(null, null, event.pricesById().size(), now));
+            return;
+        }
+        for (Map.Entry<Long, BigDecimal> price : event.pricesById().entrySet()) {
+            emit(PRICE_CHANGED, new ProductEventDTO(price.getKey(), price.getValue(), null, now));
+        }
+    }
+
+    //the sink accepts one thread at a time (the commits come from many), and the ids must go in order.
+    //it doesn´t wait any client: each subscriber only receives the event in its buffer
+    private synchronized void emit(String type, ProductEventDTO data) {
+        lastEventId++;
+        //without subscribers the event is only discarded (FAIL_ZERO_SUBSCRIBER)
+        sink.tryEmitNext(ServerSentEvent.builder(data).id(String.valueOf(lastEventId)).event(type).build());
+    }
+}
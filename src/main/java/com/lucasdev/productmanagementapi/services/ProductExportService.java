@@ -0,0 +1,204 @@
+package com.lucasdev.productmanagementapi.services;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.lucasdev.productmanagementapi.DTO.CategoryResponseDTO;
+import com.lucasdev.productmanagementapi.DTO.ProductResponseDTO;
+import com.lucasdev.productmanagementapi.entities.Product;
+import com.lucasdev.productmanagementapi.exceptions.InvalidParameterException;
+import com.lucasdev.productmanagementapi.repositories.ProductRepository;
+import jakarta.persistence.EntityManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+//the full dump of the catalog for the downstream systems: the products come from a forward-only cursor and go to the
+//response in batches, the memory is the same for 1 thousand or 1 million products
+@Service
+public class ProductExportService {
+
+    //products by batch, the same of the fetch size of the cursor (see ProductRepository.streamAllOrderById)
+    static final int BATCH_SIZE = 500;
+
+    public enum Format {
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv", "csv");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        public static Format fromParameter(String value) {
+            try {
+                return Format.valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new InvalidParameterException("Unknown export format '" + value + "', use 'ndjson' or 'csv'");
+            }
+        }
+    }
+
+    private final ProductRepository productRepository;
+    private final EntityManager entityManager;
+    private final ObjectWriter productWriter;
+
+    public ProductExportService(ProductRepository productRepository, EntityManager entityManager, ObjectMapper objectMapper) {
+        this.productRepository = productRepository;
+        this.entityManager = entityManager;
+        //the flush is ours (one by batch), not one by product
+        this.productWriter = objectMapper.writerFor(ProductResponseDTO.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    //one read only transaction for the whole export: in postgres the cursor only works inside a transaction, and the
+    //repeatable read makes the categories of the last batch come from the same snapshot of the first one
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public long exportCatalog(Format format, OutputStream out) throws IOException {
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        RowWriter rows = (format == Format.CSV) ? new CsvRowWriter(writer) : new NdjsonRowWriter(writer, productWriter);
+
+        long exported = 0;
+        List<Product> batch = new ArrayList<>(BATCH_SIZE);
+        try (Stream<Product> products = productRepository.streamAllOrderById()) {
+            Iterator<Product> iterator = products.iterator();
+            while (iterator.hasNext()) {
+                batch.add(iterator.next());
+                if (batch.size() == BATCH_SIZE) {
+                    exported += writeBatch(batch, rows);
+                }
+            }
+            exported += writeBatch(batch, rows);
+        }
+        rows.flush(); //the header of an empty catalog
+        return exported;
+    }
+
+    private int writeBatch(List<Product> batch, RowWriter rows) throws IOException {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        //the categories of the whole batch in one query, hibernate fills the collections of the same instances of the cursor
+        productRepository.findAllWithCategoriesByIdIn(batch.stream().map(Product::getId).toList());
+        for (Product product : batch) {
+            rows.write(new ProductResponseDTO(product));
+        }
+        rows.flush();
+
+        int written = batch.size();
+        batch.clear();
+        //the products already written leave the persistence context, so it never has more than one batch
+        entityManager.clear();
+        return written;
+    }
+
+    private interface RowWriter {
+        void write(ProductResponseDTO product) throws IOException;
+
+        void flush() throws IOException;
+    }
+
+    //one json object by line, the same json of the GET /products/{id}
+    private static final class NdjsonRowWriter implements RowWriter {
+
+        private final JsonGenerator generator;
+        private final ObjectWriter productWriter;
+
+        NdjsonRowWriter(Writer writer, ObjectWriter productWriter) throws IOException {
+            this.generator = productWriter.createGenerator(writer);
+            this.generator.setRootValueSeparator(null); //the default is a space before each value, here it´s the line break
+            this.productWriter = productWriter;
+        }
+
+        @Override
+        public void write(ProductResponseDTO product) throws IOException {
+            productWriter.writeValue(generator, product);
+            generator.writeRaw('\n');
+        }
+
+        @Override
+        public void flush() throws IOException {
+            generator.flush();
+        }
+    }
+
+    //the same columns that the import (POST /products/import) reads, plus the id, so an export can be imported in another base
+    private static final class CsvRowWriter implements RowWriter {
+
+        private final Writer writer;
+
+        CsvRowWriter(Writer writer) throws IOException {
+            this.writer = writer;
+            writer.write("id,name,description,price,imageUrl,categoryIds\n");
+        }
+
+        @Override
+        public void write(ProductResponseDTO product) throws IOException {
+            String categoryIds = product.getCategories().stream()
+                    .map(CategoryResponseDTO::getId)
+                    .sorted()
+                    .map(String::valueOf)
+                    .collect(Collectors.joining("|"));
+
+            writer.write(String.valueOf(product.getId()));
+            writer.write(',');
+            writer.write(escape(product.getName()));
+            writer.write(',');
+            writer.write(escape(product.getDescription()));
+            writer.write(',');
+            writer.write(plain(product.getPrice()));
+            writer.write(',');
+            writer.write(escape(product.getImageUrl()));
+            writer.write(',');
+            writer.write(categoryIds);
+            writer.write('\n');
+        }
+
+        @Override
+        public void flush() throws IOException {
+            writer.flush();
+        }
+
+        private static String plain(BigDecimal value) {
+            return value == null ? "" : value.toPlainString();
+        }
+
+        //between quotes only when needed, a quote inside becomes two
+        private static String escape(String value) {
+            if (value == null) {
+                return "";
+            }
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+                return value;
+            }
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package com.lucasdev.productmanagementapi.services;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lucasdev.productmanagementapi.DTO.ProductRequestDTO;
+import com.lucasdev.productmanagementapi.exceptions.InvalidImportFileException;
+import org.springframework.http.MediaType;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+//reads the products of a bulk import from the body, one row at a time (the file is never entirely in memory)
+//formats: json array, ndjson (one product per line) and csv with header
+//a row that can´t be read comes with the error, and the reading continues (except a broken json array, that can´t be resynchronized)
+abstract class ProductImportReader implements AutoCloseable {
+
+    public static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    public static final MediaType CSV = MediaType.parseMediaType("text/csv");
+
+    //a product read from the file, or the error of the row
+    record Row(long number, ProductRequestDTO product, String error) {
+    }
+
+    protected long rowNumber;
+
+    static ProductImportReader open(InputStream body, MediaType contentType, ObjectMapper objectMapper) throws IOException {
+        if (NDJSON.isCompatibleWith(contentType)) {
+            return new NdjsonReader(body, objectMapper);
+        }
+        if (CSV.isCompatibleWith(contentType)) {
+            return new CsvReader(body);
+        }
+        return new JsonArrayReader(body, objectMapper);
+    }
+
+    //the next row, null at the end of the file
+    abstract Row next() throws IOException;
+
+    //a 'null' in the place of a product is read by jackson as no product at all, it´s an error of its row
+    protected Row productRow(ProductRequestDTO product) {
+        if (product == null) {
+            return new Row(rowNumber, null, "Invalid product: null instead of a product object");
+        }
+        return new Row(rowNumber, product, null);
+    }
+
+    //JSON array: [ {...}, {...} ], each object parsed as a tree first, so a wrong field only fails its own row
+    private static final class JsonArrayReader extends ProductImportReader {
+
+        private final JsonParser parser;
+        private final ObjectMapper objectMapper;
+        private boolean finished;
+
+        JsonArrayReader(InputStream body, ObjectMapper objectMapper) throws IOException {
+            this.objectMapper = objectMapper;
+            this.parser = objectMapper.getFactory().createParser(body);
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new InvalidImportFileException("The body must be a JSON array of products");
+            }
+        }
+
+        @Override
+        Row next() throws IOException {
+            if (finished) {
+                return null;
+            }
+            rowNumber++;
+            JsonNode node;
+            try {
+                JsonToken token = parser.nextToken();
+                if (token == null || token == JsonToken.END_ARRAY) {
+                    finished = true;
+                    return null;
+                }
+                node = parser.readValueAsTree();
+            } catch (JsonProcessingException e) {
+                //broken json: there´s no way to know where the next product starts
+                finished = true;
+                return new Row(rowNumber, null, "Malformed JSON, the rest of the file was not read: " + e.getOriginalMessage());
+            }
+            try {
+                return productRow(objectMapper.treeToValue(node, ProductRequestDTO.class));
+            } catch (JsonProcessingException e) {
+                return new Row(rowNumber, null, "Invalid product: " + e.getOriginalMessage());
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            parser.close();
+        }
+    }
+
+    //NDJSON: one JSON object per line, the empty lines are ignored
+    private static final class NdjsonReader extends ProductImportReader {
+
+        private final BufferedReader reader;
+        private final ObjectMapper objectMapper;
+
+        NdjsonReader(InputStream body, ObjectMapper objectMapper) {
+            this.reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+            this.objectMapper = objectMapper;
+        }
+
+        @Override
+        Row next() throws IOException {
+            String line;
+            do {
+                line = reader.readLine();
+                if (line == null) {
+                    return null;
+                }
+            } while (line.isBlank());
+
+            rowNumber++;
+            try {
+                return productRow(objectMapper.readValue(line, ProductRequestDTO.class));
+            } catch (JsonProcessingException e) {
+                return new Row(rowNumber, null, "Invalid product: " + e.getOriginalMessage());
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+
+    //CSV with header: name,description,price,imageUrl,categoryIds (the ids separated by '|', ex: "1|3")
+    //the values can be between double quotes (with "" for a quote inside), but not with line breaks
+    private static final class CsvReader extends ProductImportReader {
+
+        private final BufferedReader reader;
+        private final Map<String, Integer> columns = new HashMap<>();
+
+        CsvReader(InputStream body) throws IOException {
+            this.reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+            String header = reader.readLine();
+            if (header == null) {
+                throw new InvalidImportFileException("The CSV is empty, the header is required");
+            }
+            List<String> names = split(header.replace("﻿", ""));
+            for (int i = 0; i < names.size(); i++) {
+                columns.put(names.get(i).trim().toLowerCase(Locale.ROOT), i);
+            }
+            for (String required : List.of("name", "description", "price", "categoryids")) {
+                if (!columns.containsKey(required)) {
+                    throw new InvalidImportFileException("The CSV header must have the column '" + required + "'");
+                }
+            }
+        }
+
+        @Override
+        Row next() throws IOException {
+            String line;
+            do {
+                line = reader.readLine();
+                if (line == null) {
+                    return null;
+                }
+            } while (line.isBlank());
+
+            rowNumber++;
+            try {
+                List<String> values = split(line);
+                ProductRequestDTO dto = new ProductRequestDTO();
+                dto.setName(value(values, "name"));
+                dto.setDescription(value(values, "description"));
+                String price = value(values, "price");
+                dto.setPrice(price == null ? null : new BigDecimal(price));
+                dto.setImageUrl(columns.containsKey("imageurl") ? value(values, "imageurl") : null);
+                dto.setCategoryIds(categoryIds(value(values, "categoryids")));
+                return new Row(rowNumber, dto, null);
+            } catch (NumberFormatException e) {
+                return new Row(rowNumber, null, "Invalid number in the row: " + e.getMessage());
+            } catch (IllegalArgumentException e) {
+                return new Row(rowNumber, null, e.getMessage());
+            }
+        }
+
+        private String value(List<String> values, String column) {
+            int index = columns.get(column);
+            if (index >= values.size()) {
+                throw new IllegalArgumentException("The row has " + values.size() + " columns, the header has " + columns.size());
+            }
+            String value = values.get(index).trim();
+            return value.isEmpty() ? null : value;
+        }
+
+        private Set<Long> categoryIds(String value) {
+            Set<Long> ids = new HashSet<>();
+            if (value != null) {
+                for (String id : value.split("\\|")) {
+                    if (!id.isBlank()) {
+                        ids.add(Long.valueOf(id.trim()));
+                    }
+                }
+            }
+            return ids;
+        }
+
+        private static List<String> split(String line) {
+            List<String> values = new ArrayList<>();
+            StringBuilder current = new StringBuilder();
+            boolean quoted = false;
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (quoted) {
+                    if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        current.append('"');
+                        i++;
+                    } else if (c == '"') {
+                        quoted = false;
+                    } else {
+                        current.append(c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    values.add(current.toString());
+                    current.setLength(0);
+                } else {
+                    current.append(c);
+                }
+            }
+            values.add(current.toString());
+            return values;
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+
+    @Override
+    public abstract void close() throws IOException;
+}
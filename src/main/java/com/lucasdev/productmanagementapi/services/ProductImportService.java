@@ -0,0 +1,211 @@
+package com.lucasdev.productmanagementapi.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lucasdev.productmanagementapi.DTO.ProductImportErrorDTO;
+import com.lucasdev.productmanagementapi.DTO.ProductImportResultDTO;
+import com.lucasdev.productmanagementapi.DTO.ProductRequestDTO;
+import com.lucasdev.productmanagementapi.entities.Category;
+import com.lucasdev.productmanagementapi.entities.Product;
+import com.lucasdev.productmanagementapi.events.ProductsRepricedEvent;
+import com.lucasdev.productmanagementapi.exceptions.InvalidImportFileException;
+import com.lucasdev.productmanagementapi.repositories.CategoryRepository;
+import com.lucasdev.productmanagementapi.repositories.ProductRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+//bulk import of products (the catalog of a supplier): the file is read row by row, the valid rows are saved in chunks,
+//each chunk in one transaction with jdbc batches (the ids come from the pooled sequence, so hibernate can batch the inserts)
+//and the invalid rows come back in the result with the reason, without stopping the others
+@Service
+public class ProductImportService {
+
+    private final ProductRepository productRepository;
+    private final CategoryRepository categoryRepository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate chunkTransaction;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CatalogChangeService catalogChangeService;
+
+    private final int chunkSize;
+    private final int maxErrors; //the errors in the response are limited, the counters are not
+
+    public ProductImportService(ProductRepository productRepository,
+                                CategoryRepository categoryRepository,
+                                EntityManager entityManager,
+                                PlatformTransactionManager transactionManager,
+                                ObjectMapper objectMapper,
+                                Validator validator,
+                                ApplicationEventPublisher eventPublisher,
+                                CatalogChangeService catalogChangeService,
+                                @Value("${products.import.chunk-size:1000}") int chunkSize,
+                                @Value("${products.import.max-errors:1000}") int maxErrors) {
+        this.productRepository = productRepository;
+        this.categoryRepository = categoryRepository;
+        this.entityManager = entityManager;
+        this.chunkTransaction = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.eventPublisher = eventPublisher;
+        this.catalogChangeService = catalogChangeService;
+        this.chunkSize = chunkSize;
+        this.maxErrors = maxErrors;
+    }
+
+    //without @Transactional: a chunk that failed doesn´t undo the chunks already saved
+    public ProductImportResultDTO importProducts(InputStream body, MediaType contentType) {
+
+        ProductImportResultDTO result = new ProductImportResultDTO();
+
+        //the categories are checked in memory, one query for the whole import
+        Set<Long> categoryIds = categoryRepository.findAllIds();
+
+        Set<String> namesInFile = new HashSet<>(); //the name is unique, a repeated name in the file only the first one passes
+        Map<Long, BigDecimal> imported = new HashMap<>();
+        List<PendingRow> chunk = new ArrayList<>(chunkSize);
+
+        try (ProductImportReader reader = ProductImportReader.open(body, contentType, objectMapper)) {
+            ProductImportReader.Row row;
+            while ((row = reader.next()) != null) {
+                result.setReceived(result.getReceived() + 1);
+
+                if (row.error() != null) {
+                    addError(result, row.number(), null, List.of(row.error()));
+                    continue;
+                }
+                List<String> messages = validate(row.product(), categoryIds);
+                if (messages.isEmpty() && !namesInFile.add(row.product().getName())) {
+                    messages.add("The name '" + row.product().getName() + "' is repeated in the file");
+                }
+                if (!messages.isEmpty()) {
+                    addError(result, row.number(), row.product().getName(), messages);
+                    continue;
+                }
+
+                chunk.add(new PendingRow(row.number(), row.product()));
+                if (chunk.size() >= chunkSize) {
+                    saveChunk(chunk, result, imported);
+                    chunk.clear();
+                }
+            }
+            saveChunk(chunk, result, imported);
+        } catch (JsonProcessingException e) {
+            throw new InvalidImportFileException("The body is not valid JSON: " + e.getOriginalMessage());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read the import file", e);
+        }
+
+        //the converted prices of all the new products at once
+        if (!imported.isEmpty()) {
+            eventPublisher.publishEvent(new ProductsRepricedEvent(imported));
+        }
+        return result;
+    }
+
+    //the same rules of the POST /products (the annotations of the dto) plus the categories that exist
+    private List<String> validate(ProductRequestDTO dto, Set<Long> categoryIds) {
+        List<String> messages = new ArrayList<>();
+        for (ConstraintViolation<ProductRequestDTO> violation : validator.validate(dto)) {
+            messages.add(violation.getMessage());
+        }
+        if (dto.getCategoryIds() != null) {
+            Set<Long> missingIds = new TreeSet<>(dto.getCategoryIds());
+            missingIds.removeAll(categoryIds);
+            if (!missingIds.isEmpty()) {
+                messages.add("Category not found with id(s) " + missingIds);
+            }
+        }
+        return messages;
+    }
+
+    private void saveChunk(List<PendingRow> chunk, ProductImportResultDTO result, Map<Long, BigDecimal> imported) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+
+        //the names that already are in the database, one query by chunk
+        Set<String> existingNames = productRepository.findExistingNames(chunk.stream().map(r -> r.product().getName()).toList());
+        List<PendingRow> toSave = new ArrayList<>(chunk.size());
+        for (PendingRow row : chunk) {
+            if (existingNames.contains(row.product().getName())) {
+                addError(result, row.number(), row.product().getName(), List.of("A product with the name '" + row.product().getName() + "' already exists"));
+            } else {
+                toSave.add(row);
+            }
+        }
+        if (toSave.isEmpty()) {
+            return;
+        }
+
+        try {
+            Map<Long, BigDecimal> saved = chunkTransaction.execute(status -> persist(toSave));
+            imported.putAll(saved);
+            result.setImported(result.getImported() + saved.size());
+        } catch (DataAccessException | PersistenceException e) {
+            //the transaction of the chunk was rolled back, none of its rows is in the database
+            System.err.println("Failed to save a chunk of the product import: " + e.getMessage());
+            for (PendingRow row : toSave) {
+                addError(result, row.number(), row.product().getName(), List.of("The row was not saved, the database refused its chunk of rows"));
+            }
+        }
+    }
+
+    //persist (not repository.save, that would do a merge) and flush at the end, so hibernate sends the inserts in batches
+    //of hibernate.jdbc.batch_size; the clear() keeps the persistence context small between the chunks
+    private Map<Long, BigDecimal> persist(List<PendingRow> rows) {
+        Map<Long, Category> categories = new HashMap<>();
+        List<Product> products = new ArrayList<>(rows.size());
+        for (PendingRow row : rows) {
+            ProductRequestDTO dto = row.product();
+            Product product = new Product(null, dto.getName(), dto.getDescription(), dto.getPrice(), dto.getImageUrl());
+            for (Long categoryId : dto.getCategoryIds()) {
+                //a reference is enough for the join table, no select of the category
+                product.getCategories().add(categories.computeIfAbsent(categoryId, id -> entityManager.getReference(Category.class, id)));
+            }
+            entityManager.persist(product);
+            products.add(product);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        Map<Long, BigDecimal> saved = new HashMap<>();
+        products.forEach(p -> saved.put(p.getId(), p.getPrice()));
+        catalogChangeService.recordNewProducts(saved.keySet());
+        return saved;
+    }
+
+    private void addError(ProductImportResultDTO result, long row, String name, List<String> messages) {
+        result.setFailed(result.getFailed() + 1);
+        if (result.getErrors().size() < maxErrors) {
+            result.getErrors().add(new ProductImportErrorDTO(row, name, new ArrayList<>(messages)));
+        } else {
+            result.setErrorsTruncated(true);
+        }
+    }
+
+    private record PendingRow(long number, ProductRequestDTO product) {
+    }
+}
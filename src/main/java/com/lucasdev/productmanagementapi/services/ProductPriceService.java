@@ -0,0 +1,206 @@
+package com.lucasdev.productmanagementapi.services;
+
+import com.lucasdev.productmanagementapi.events.ProductPriceChangedEvent;
+import com.lucasdev.productmanagementapi.events.ProductsRepricedEvent;
+import com.lucasdev.productmanagementapi.integrations.ExchangeRateApiClient;
+import com.lucasdev.productmanagementapi.integrations.RateTableRefreshedEvent;
+import com.lucasdev.productmanagementapi.integrations.RateTableSnapshot;
+import com.lucasdev.productmanagementapi.repositories.ProductRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+//keeps the tb_product_price: the price of each product already converted to the currencies that we sell in
+//so the quotation and the converted lists only read the value, without the rate lookup and the multiplication
+@Service
+public class ProductPriceService {
+
+    private static final String DELETE_ROWS = "DELETE FROM tb_product_price WHERE product_id = ?";
+    private static final String INSERT_ROW = "INSERT INTO tb_product_price "
+            + "(product_id, currency_code, base_price, converted_price, rate, rate_fetched_at) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private final ProductRepository productRepository;
+    private final ExchangeRateApiClient exchangeRateApiClient;
+    private final JdbcTemplate jdbcTemplate;
+
+    //each batch in its own transaction, separated from the transaction (if any) of who called
+    private final TransactionTemplate batchTransaction;
+
+    private final String baseCurrencyCode; //the currency of the product prices, the same base of the rate table
+    private final Set<String> currencyCodes;
+    private final int batchSize;
+    private final int parallelism;
+
+    //the batches are written in parallel, each thread with its own connection (keep it smaller than the connection pool)
+    private final ExecutorService recalculationExecutor;
+
+    //one thread that runs the recalculations (reads the pages and waits the batches), one at a time: the thread that
+    //announced the table (or committed the bulk operation) is free right away, and two runs never overlap
+    private final ExecutorService coordinatorExecutor = Executors.newSingleThreadExecutor();
+
+    //the newest table waiting for its run, the tables announced while a run is going only the last one is written
+    private final AtomicReference<RateTableSnapshot> pendingTable = new AtomicReference<>();
+
+    public ProductPriceService(ProductRepository productRepository,
+                               ExchangeRateApiClient exchangeRateApiClient,
+                               JdbcTemplate jdbcTemplate,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${exchangerate.base-currency:BRL}") String baseCurrencyCode,
+                               @Value("${products.price-table.currencies:USD,EUR,GBP}") Set<String> currencyCodes,
+                               @Value("${products.price-table.batch-size:500}") int batchSize,
+                               @Value("${products.price-table.parallelism:4}") int parallelism) {
+        this.productRepository = productRepository;
+        this.exchangeRateApiClient = exchangeRateApiClient;
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchTransaction = new TransactionTemplate(transactionManager);
+        this.batchTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.baseCurrencyCode = baseCurrencyCode.toUpperCase();
+        this.currencyCodes = currencyCodes.stream().map(String::toUpperCase).collect(Collectors.toUnmodifiableSet());
+        this.batchSize = batchSize;
+        this.parallelism = parallelism;
+        this.recalculationExecutor = Executors.newFixedThreadPool(parallelism);
+    }
+
+    //a table with new rates: all the products are recalculated (the same rates don´t come here, see ExchangeRateApiClient)
+    @EventListener
+    public void onRateTableRefreshed(RateTableRefreshedEvent event) {
+        if (pendingTable.getAndSet(event.snapshot()) == null) {
+            coordinatorExecutor.execute(() -> recalculateAll(pendingTable.getAndSet(null)));
+        }
+    }
+
+    //a product was created or had the price changed: only its rows, after the commit (so the new price is already there)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onProductPriceChanged(ProductPriceChangedEvent event) {
+        //without a table in memory there´s nothing to calculate, the first refresh does it
+        exchangeRateApiClient.lastSnapshot().ifPresent(snapshot -> {
+            try {
+                writeBatch(List.of(new PriceSource(event.productId(), event.price())), snapshot);
+            } catch (DataAccessException e) {
+                //the reads check the base price of the row, so a row not updated is never used with the wrong price
+                System.err.println("Could not recalculate the prices of the product " + event.productId() + ": " + e.getMessage());
+            }
+        });
+    }
+
+    //a bulk operation (import, price update of many products): only those products, in background (the operation answers
+    //without waiting the prices, and until the rows are there the reads convert in the request)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onProductsRepriced(ProductsRepricedEvent event) {
+        exchangeRateApiClient.lastSnapshot().ifPresent(snapshot -> {
+            List<PriceSource> products = event.pricesById().entrySet().stream()
+                    .map(e -> new PriceSource(e.getKey(), e.getValue()))
+                    .toList();
+            //not in the recalculationExecutor: recalculate() waits its batches there
+            coordinatorExecutor.execute(() -> recalculate(products, snapshot));
+        });
+    }
+
+    //the catalog is read one page (batch-size products, keyset by id) at a time and each page is written while the next
+    //ones are read. at most 'parallelism' pages are in memory: when all the threads are busy the reading waits the oldest
+    public void recalculateAll(RateTableSnapshot snapshot) {
+        Deque<CompletableFuture<Void>> running = new ArrayDeque<>();
+        long afterId = 0;
+        List<ProductRepository.IdAndPrice> page;
+        do {
+            page = productRepository.findIdsAndPricesAfter(afterId, Limit.of(batchSize));
+            if (page.isEmpty()) {
+                break;
+            }
+            afterId = page.get(page.size() - 1).getId();
+
+            List<PriceSource> batch = page.stream().map(p -> new PriceSource(p.getId(), p.getPrice())).toList();
+            if (running.size() >= parallelism) {
+                await(running.poll());
+            }
+            running.add(CompletableFuture.runAsync(() -> writeBatch(batch, snapshot), recalculationExecutor));
+        } while (page.size() == batchSize);
+
+        while (!running.isEmpty()) {
+            await(running.poll());
+        }
+    }
+
+    private void recalculate(List<PriceSource> products, RateTableSnapshot snapshot) {
+        List<CompletableFuture<Void>> batches = new ArrayList<>();
+        for (int from = 0; from < products.size(); from += batchSize) {
+            List<PriceSource> batch = products.subList(from, Math.min(from + batchSize, products.size()));
+            batches.add(CompletableFuture.runAsync(() -> writeBatch(batch, snapshot), recalculationExecutor));
+        }
+        batches.forEach(this::await);
+    }
+
+    //a failed batch doesn´t stop the others (the next table tries again)
+    private void await(CompletableFuture<Void> batch) {
+        try {
+            batch.join();
+        } catch (RuntimeException e) {
+            System.err.println("Failed to recalculate a batch of product prices: " + e.getMessage());
+        }
+    }
+
+    //the rows of the batch are replaced (delete + insert) in one transaction, with jdbc batches for both
+    private void writeBatch(List<PriceSource> batch, RateTableSnapshot snapshot) {
+        List<Object[]> ids = new ArrayList<>(batch.size());
+        List<Object[]> rows = new ArrayList<>(batch.size() * currencyCodes.size());
+        Timestamp fetchedAt = Timestamp.from(snapshot.fetchedAt());
+
+        //the prices of the products are in the base currency
+        for (String code : currencyCodes) {
+            BigDecimal rate = snapshot.conversionRate(baseCurrencyCode, code).orElse(null);
+            if (rate == null) {
+                continue; //currency that the API doesn´t have, converted in the request (and fails there)
+            }
+            for (PriceSource product : batch) {
+                rows.add(new Object[]{product.id(), code, product.price(), product.price().multiply(rate), rate, fetchedAt});
+            }
+        }
+        batch.forEach(product -> ids.add(new Object[]{product.id()}));
+
+        try {
+            replaceRows(ids, rows);
+        } catch (DuplicateKeyException e) {
+            //another recalculation wrote the same product at the same time, once more and it´s ours
+            replaceRows(ids, rows);
+        }
+    }
+
+    private void replaceRows(List<Object[]> ids, List<Object[]> rows) {
+        batchTransaction.executeWithoutResult(status -> {
+            jdbcTemplate.batchUpdate(DELETE_ROWS, ids);
+            jdbcTemplate.batchUpdate(INSERT_ROW, rows);
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        coordinatorExecutor.shutdownNow();
+        recalculationExecutor.shutdownNow();
+    }
+
+    private record PriceSource(Long id, BigDecimal price) {
+    }
+}
@@ -1,64 +1,183 @@
 package com.lucasdev.productmanagementapi.services;
 
+import com.lucasdev.productmanagementapi.DTO.CursorPageDTO;
+import com.lucasdev.productmanagementapi.DTO.ProductBatchResponseDTO;
+import com.lucasdev.productmanagementapi.DTO.ProductPatchDTO;
+import com.lucasdev.productmanagementapi.DTO.ProductQuotationBatchResponseDTO;
 import com.lucasdev.productmanagementapi.DTO.ProductQuotationResponseDTO;
+import com.lucasdev.productmanagementapi.DTO.ProductQuotationRowDTO;
 import com.lucasdev.productmanagementapi.DTO.ProductRequestDTO;
 import com.lucasdev.productmanagementapi.DTO.ProductResponseDTO;
 import com.lucasdev.productmanagementapi.entities.Category;
 import com.lucasdev.productmanagementapi.entities.Product;
+import com.lucasdev.productmanagementapi.entities.ProductPrice;
+import com.lucasdev.productmanagementapi.events.ProductPriceChangedEvent;
+import com.lucasdev.productmanagementapi.exceptions.InvalidParameterException;
 import com.lucasdev.productmanagementapi.exceptions.ResourceNotFoundException;
+import com.lucasdev.productmanagementapi.integrations.ConversionQuote;
 import com.lucasdev.productmanagementapi.integrations.ExchangeRateApiClient;
+import com.lucasdev.productmanagementapi.integrations.RateTableSnapshot;
 import com.lucasdev.productmanagementapi.repositories.CategoryRepository;
+import com.lucasdev.productmanagementapi.repositories.ProductPriceRepository;
 import com.lucasdev.productmanagementapi.repositories.ProductRepository;
+import com.lucasdev.productmanagementapi.repositories.ProductRepositoryCustom;
+import com.lucasdev.productmanagementapi.repositories.ProductSpecifications;
 import org.springframework.beans.BeanUtils;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
+import java.util.TreeSet;
 
 @Service
 public class ProductService {
 
-    //this class will be have three dependencies
+    //the same limit of ProductBatchRequestDTO, for the GET that has no body to validate
+    public static final int MAX_BATCH_SIZE = 200;
+
+    //this class will be have five dependencies
     private final ProductRepository productRepository;
     private final CategoryRepository categoryRepository;
+    private final ProductPriceRepository productPriceRepository; //the prices already converted (see ProductPriceService)
     private final ExchangeRateApiClient exchangeRateApiClient;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CatalogChangeService catalogChangeService; //the change feed of the mirrors
+    private final CatalogCache catalogCache; //the lookups by id
 
     //injected dependencies via constructor
-    public ProductService(ProductRepository productRepository, CategoryRepository categoryRepository, ExchangeRateApiClient exchangeRateApiClient) {
+    public ProductService(ProductRepository productRepository, CategoryRepository categoryRepository,
+                          ProductPriceRepository productPriceRepository, ExchangeRateApiClient exchangeRateApiClient,
+                          ApplicationEventPublisher eventPublisher, CatalogChangeService catalogChangeService,
+                          CatalogCache catalogCache) {
         this.productRepository = productRepository;
         this.categoryRepository = categoryRepository;
+        this.productPriceRepository = productPriceRepository;
         this.exchangeRateApiClient = exchangeRateApiClient;
+        this.eventPublisher = eventPublisher;
+        this.catalogChangeService = catalogChangeService;
+        this.catalogCache = catalogCache;
     }
 
-    //makes a transactional, but only read.
-    @Transactional(readOnly = true)
+    //without @Transactional: a hit in the cache doesn´t take a connection of the pool. the query has its own transaction
+    //and brings the categories with JOIN FETCH, so the dto is built after it without lazy loading
     public ProductResponseDTO findProductById(Long id) {
-        //throw a exception if the user put a invalid ID!
-        Product product = productRepository.findByIdWithCategory(id).orElseThrow(()-> new ResourceNotFoundException("Product not found with id " + id));
-        //return a new instance of dto receiving a entity product, respecting the layers
-        return new ProductResponseDTO(product);
+        return catalogCache.getProduct(id, key -> {
+            //throw a exception if the user put a invalid ID! (nothing is cached then)
+            Product product = productRepository.findByIdWithCategory(key).orElseThrow(()-> new ResourceNotFoundException("Product not found with id " + key));
+            //return a new instance of dto receiving a entity product, respecting the layers
+            return new ProductResponseDTO(product);
+        });
+    }
+
+    //many products by id at once: the ones in the cache and one query (with the categories) for the others.
+    //the products come in the order of the ids, a repeated id only once, and the ids that don´t exist go in 'missingIds'
+    public ProductBatchResponseDTO findProductsByIds(List<Long> ids) {
+        Set<Long> wanted = new LinkedHashSet<>();
+        ids.stream().filter(Objects::nonNull).forEach(wanted::add);
+        if (wanted.isEmpty() || wanted.size() > MAX_BATCH_SIZE) {
+            throw new InvalidParameterException("Send between 1 and " + MAX_BATCH_SIZE + " product ids");
+        }
+
+        Map<Long, ProductResponseDTO> found = catalogCache.getProducts(wanted, missing -> {
+            Map<Long, ProductResponseDTO> loaded = new HashMap<>();
+            productRepository.findAllWithCategoriesByIdIn(missing).forEach(p -> loaded.put(p.getId(), new ProductResponseDTO(p)));
+            return loaded;
+        });
+
+        ProductBatchResponseDTO response = new ProductBatchResponseDTO();
+        for (Long id : wanted) {
+            ProductResponseDTO dto = found.get(id);
+            if (dto != null) {
+                response.getProducts().add(dto);
+            } else {
+                response.getMissingIds().add(id);
+            }
+        }
+        return response;
     }
 
     @Transactional(readOnly = true)
     public Page<ProductResponseDTO> findAllPaged(String productName, String categoryName, Pageable pageable) {
 
-        Page<Product> entityPage = productRepository.findByProductAndCategoryNames(productName, categoryName, pageable);
+        //first phase: only the ids of the page, so the LIMIT stays in the SQL and no product is loaded twice
+        Page<Long> idsPage = productRepository.findPageOfIds(searchFilters(productName, categoryName), pageable);
+
+        return toDtoPage(idsPage);
+    }
+
+    //cursor (keyset) version of the lists, serves the "/products" (with filters) and the "/products/all" (without)
+    //no OFFSET and no COUNT, the seek predicate makes a deep page cost the same as the first one
+    @Transactional(readOnly = true)
+    public CursorPageDTO<ProductResponseDTO> findAllByCursor(String productName, String categoryName, String cursor, int size) {
+
+        int pageSize = KeysetCursor.clampSize(size);
+        KeysetCursor after = KeysetCursor.decode(cursor);
+
+        Specification<Product> filters = searchFilters(productName, categoryName);
+        if (after != null) {
+            filters = filters.and(ProductSpecifications.after(after.getName(), after.getId()));
+        }
+
+        //asking for one more, if it came there´s a next slice
+        //first phase: only the (name, id) of the slice, the products are loaded once in the second phase
+        List<ProductRepositoryCustom.NameAndId> slice = productRepository.findNamesAndIds(filters, KeysetCursor.SORT, pageSize + 1);
+
+        //second phase: the products of the whole slice with their categories in one query
+        List<Product> entities = fetchWithCategories(slice.stream().map(ProductRepositoryCustom.NameAndId::id).toList());
 
-        // create a new instance of dto at each iteration of map
-        return entityPage.map(e -> new ProductResponseDTO(e));
+        return KeysetCursor.toPage(entities, pageSize, p -> new KeysetCursor(p.getName(), p.getId()), ProductResponseDTO::new);
+    }
+
+    //only the filters that the user sent go to the SQL, so postgres can use the trigram indexes of name
+    private Specification<Product> searchFilters(String productName, String categoryName) {
+        return Specification.where(ProductSpecifications.nameContains(productName))
+                .and(ProductSpecifications.categoryNameContains(categoryName));
     }
 
     //NEW METHOD FOR NOT PROBLEM WITH SQL QUERIES IN HOUR OF SEARCH
     @Transactional(readOnly = true)
     public Page<ProductResponseDTO> findAllSimplePaged(Pageable pageable) {
 
-        Page<Product> entitiesPage = productRepository.findAllProductsWithCategories(pageable);
+        //first phase: only the ids of the page
+        Page<Long> idsPage = productRepository.findPageOfIds(pageable);
+
+        return toDtoPage(idsPage);
+    }
+
+    //second phase of the paged lists, loads the products of the page with the categories and keeps the page metadata
+    private Page<ProductResponseDTO> toDtoPage(Page<Long> idsPage) {
+        List<ProductResponseDTO> content = fetchWithCategories(idsPage.getContent()).stream().map(ProductResponseDTO::new).toList();
 
-        return entitiesPage.map(p -> new ProductResponseDTO(p));
+        return new PageImpl<>(content, idsPage.getPageable(), idsPage.getTotalElements());
+    }
+
+    //one query for the products of the ids with their categories, the result comes in the same order of the ids
+    private List<Product> fetchWithCategories(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, Product> byId = new HashMap<>();
+        for (Product product : productRepository.findAllWithCategoriesByIdIn(ids)) {
+            byId.put(product.getId(), product);
+        }
+        //the IN don´t keep the order of the page, so i put it back (and skip a product deleted between the two queries)
+        return ids.stream().map(byId::get).filter(Objects::nonNull).toList();
     }
 
     @Transactional
@@ -75,6 +194,10 @@ public class ProductService {
 
             //save the ENTITY in the repository... respect the layers
             entity = productRepository.save(entity);
+            catalogChangeService.recordNewProducts(List.of(entity.getId()));
+
+            //the converted prices of the new product are calculated after the commit
+            eventPublisher.publishEvent(new ProductPriceChangedEvent(entity.getId(), entity.getPrice()));
 
             //the DTO i´ll show to the final user!
             return new ProductResponseDTO(entity);
@@ -88,6 +211,7 @@ public class ProductService {
 
         try {
             Product entity = productRepository.findByIdWithCategory(id).orElseThrow(() -> new ResourceNotFoundException("Product not found with id " + id));
+            BigDecimal oldPrice = entity.getPrice();
 
             //pass the droRef properties to entity
             BeanUtils.copyProperties(dtoRef, entity, "id");
@@ -95,6 +219,12 @@ public class ProductService {
             associateCategoriesToProduct(entity, dtoRef.getCategoryIds());
 
             entity = productRepository.save(entity);
+            catalogChangeService.recordProducts(List.of(entity.getId()));
+
+            //only a new price changes the converted prices
+            if (oldPrice.compareTo(entity.getPrice()) != 0) {
+                eventPublisher.publishEvent(new ProductPriceChangedEvent(entity.getId(), entity.getPrice()));
+            }
 
             return new ProductResponseDTO(entity);
         }catch (DataIntegrityViolationException e) {
@@ -102,22 +232,80 @@ public class ProductService {
         }
     }
 
-    public void associateCategoriesToProduct(Product entity, Set<Long> categoryIds) {
-        //clear the list first
-        entity.getCategories().clear();
+    //partial update: only the fields sent are changed, and with the @DynamicUpdate of Product only their columns go in the
+    //UPDATE (a PATCH of the price is "UPDATE tb_product SET price = ?"). the categories are only touched if they were sent
+    @Transactional
+    public ProductResponseDTO patchProduct(Long id, ProductPatchDTO dtoRef) {
+
+        try {
+            Product entity = productRepository.findById(id).orElseThrow(() -> new ResourceNotFoundException("Product not found with id " + id));
+            BigDecimal oldPrice = entity.getPrice();
+
+            if (dtoRef.getName() != null) {
+                entity.setName(dtoRef.getName());
+            }
+            if (dtoRef.getDescription() != null) {
+                entity.setDescription(dtoRef.getDescription());
+            }
+            if (dtoRef.getPrice() != null) {
+                entity.setPrice(dtoRef.getPrice());
+            }
+            if (dtoRef.getImageUrl() != null) {
+                entity.setImageUrl(dtoRef.getImageUrl());
+            }
+            if (dtoRef.getCategoryIds() != null) {
+                associateCategoriesToProduct(entity, dtoRef.getCategoryIds());
+            }
 
-        if(categoryIds != null && !categoryIds.isEmpty()) {
+            //flushing here, so a repeated name falls in the catch below
+            productRepository.flush();
+            catalogChangeService.recordProducts(List.of(entity.getId()));
 
-            for (Long cats : categoryIds) {
-                //taking the category from repository if exists, or i throw my exception
-                Category category = categoryRepository.findById(cats).orElseThrow(()-> new ResourceNotFoundException("Category not found with id " + cats + " operation failed"));
-                entity.getCategories().add(category); //add the category to the entity list
+            if (oldPrice.compareTo(entity.getPrice()) != 0) {
+                eventPublisher.publishEvent(new ProductPriceChangedEvent(entity.getId(), entity.getPrice()));
             }
+
+            return new ProductResponseDTO(entity);
+        }catch (DataIntegrityViolationException e) {
+            throw new DataIntegrityViolationException("one or more fields in the product are causing integrity error", e);
         }
     }
 
-    @Transactional(readOnly = true)
-    public ProductQuotationResponseDTO getProductPriceInOtherCurrency(Long productId, String targetCurrencyCode){
+    public void associateCategoriesToProduct(Product entity, Set<Long> categoryIds) {
+
+        Set<Long> wantedIds = (categoryIds == null) ? Set.of() : categoryIds;
+
+        //all the categories at once, from the second level cache (only the ids not cached go to the database, in one query)
+        List<Category> categories = wantedIds.isEmpty() ? List.of() : categoryRepository.findAllByIdCached(wantedIds);
+
+        if (categories.size() != wantedIds.size()) {
+            //showing exactly which ids don´t exist
+            Set<Long> missingIds = new TreeSet<>(wantedIds);
+            categories.forEach(c -> missingIds.remove(c.getId()));
+            throw new ResourceNotFoundException("Category not found with id(s) " + missingIds + " operation failed");
+        }
+
+        //diff instead of clear(): removing only the categories that left and adding only the new ones,
+        //so hibernate deletes/inserts only the changed rows of tb_product_category
+        entity.getCategories().removeIf(c -> !wantedIds.contains(c.getId()));
+        entity.getCategories().addAll(categories); //it´s a Set, the categories already associated stay the same
+    }
+
+    //without @Transactional on purpose: the product is read first (the repository has its own short transaction, and the
+    //connection goes back to the pool), and only after that the rate is composed, without blocking the request thread
+    public Mono<ProductQuotationResponseDTO> getProductPriceInOtherCurrency(Long productId, String targetCurrencyCode){
+
+        String targetCode = targetCurrencyCode.toUpperCase(); // the final user can se the name of currency code more friendly
+
+        //the currencies that we sell in have the price already converted: one lookup by the key, no rate and no multiplication
+        //(a row of an old price or of other rate is ignored, and the conversion is done below as before)
+        RateTableSnapshot table = exchangeRateApiClient.freshSnapshot().orElse(null);
+        Optional<ProductPrice> materialized = productPriceRepository.findWithProduct(productId, targetCode)
+                .filter(row -> isUsable(row, row.getProduct().getPrice(), table));
+        if (materialized.isPresent()) {
+            ProductPrice row = materialized.get();
+            return Mono.just(materializedQuotation(row.getProduct(), row, table));
+        }
 
         //take the product from repository
         Product product = productRepository.findById(productId).orElseThrow(()-> new ResourceNotFoundException("Product not found with id " + productId));
@@ -125,23 +313,124 @@ public class ProductService {
         //TURNING MORE EXPLICT THE CURRENCY BASE!
         String BRL = "BRL";
 
-        //the operation for doing the conversion
-        BigDecimal conversionRate = exchangeRateApiClient.getConversionRate(BRL, targetCurrencyCode.toUpperCase());
+        //the operation for doing the conversion, when the rate arrives
+        return exchangeRateApiClient.getConversionQuoteAsync(BRL, targetCode)
+                .map(quote -> convertedQuotation(product, quote, targetCode));
+    }
 
-        BigDecimal originalPriceBRL = product.getPrice();
+    //a materialized price is only used if it was converted from the current price with the rate of the table in memory
+    //(not stale), the same rule for the single quotation, the batch quotation and the converted lists. the rows are only
+    //rewritten when the rates change, so a row of the same rates is as good as a conversion with the table of now
+    private static boolean isUsable(ProductPrice row, BigDecimal currentPrice, RateTableSnapshot table) {
+        if (row == null || table == null || !row.isConvertedFrom(currentPrice)) {
+            return false;
+        }
+        return table.conversionRate(table.baseCode(), row.getId().getCurrencyCode()).map(row::isConvertedWith).orElse(false);
+    }
 
-        BigDecimal convertedPrice = originalPriceBRL.multiply(conversionRate);
+    private static ProductQuotationResponseDTO materializedQuotation(Product product, ProductPrice row, RateTableSnapshot table) {
+        return new ProductQuotationResponseDTO(product.getId(), product.getName(), row.getBasePrice(), row.getConvertedPrice(),
+                row.getId().getCurrencyCode(), table.fetchedAt(), false);
+    }
 
+    private static ProductQuotationResponseDTO convertedQuotation(Product product, ConversionQuote quote, String targetCode) {
+        return new ProductQuotationResponseDTO(product.getId(), product.getName(), product.getPrice(), product.getPrice().multiply(quote.rate()),
+                targetCode, quote.fetchedAt(), quote.stale());
+    }
 
-        //new instance of ProductQuatation for return to the program
-        ProductQuotationResponseDTO newDto = new ProductQuotationResponseDTO(
-                product.getId(),
-                product.getName(),
-                originalPriceBRL,
-                convertedPrice,
-                targetCurrencyCode.toUpperCase() // the final user can se the name of currency code more friendly
-        );
-        return newDto;  //or return direct in instanciation, but this way becomes clearly
+    //the batch version of the quotation: all the products in one query, their materialized prices in another one, and
+    //each distinct currency rate resolved once (only for the currencies where some product has no usable row). each
+    //price follows the rules of the single quotation (same idea too: no transaction and no blocked thread while waiting)
+    public Mono<ProductQuotationBatchResponseDTO> getProductPricesInOtherCurrencies(List<Long> productIds, List<String> currencyCodes) {
+
+        List<Long> ids = productIds.stream().distinct().toList();
+        Map<Long, Product> productsById = new HashMap<>();
+        for (Product product : productRepository.findAllById(ids)) {
+            productsById.put(product.getId(), product);
+        }
+
+        List<String> targetCodes = currencyCodes.stream().map(String::toUpperCase).distinct().toList();
+
+        //product id -> currency code -> row
+        RateTableSnapshot table = exchangeRateApiClient.freshSnapshot().orElse(null);
+        Map<Long, Map<String, ProductPrice>> materialized = new HashMap<>();
+        if (!productsById.isEmpty()) {
+            for (ProductPrice row : productPriceRepository.findByProductIdsAndCurrencyCodes(productsById.keySet(), targetCodes)) {
+                materialized.computeIfAbsent(row.getId().getProductId(), id -> new HashMap<>()).put(row.getId().getCurrencyCode(), row);
+            }
+        }
+        List<String> codesToLookup = targetCodes.stream()
+                .filter(code -> productsById.values().stream().anyMatch(p -> !isUsable(materializedRow(materialized, p, code), p.getPrice(), table)))
+                .toList();
+
+        String BRL = "BRL";
+        return Flux.fromIterable(codesToLookup)
+                .concatMap(code -> exchangeRateApiClient.getConversionQuoteAsync(BRL, code).map(quote -> Map.entry(code, quote)))
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue)
+                .map(quotes -> {
+                    ProductQuotationBatchResponseDTO response = new ProductQuotationBatchResponseDTO();
+
+                    //keeping the order of the request
+                    for (Long id : ids) {
+                        Product product = productsById.get(id);
+                        if (product == null) {
+                            response.getMissingProductIds().add(id);
+                            continue;
+                        }
+                        ProductQuotationRowDTO line = new ProductQuotationRowDTO();
+                        line.setProductId(product.getId());
+                        line.setProductName(product.getName());
+                        line.setOriginalPriceBRL(product.getPrice());
+                        for (String code : targetCodes) {
+                            ProductPrice row = materializedRow(materialized, product, code);
+                            ProductQuotationResponseDTO quotation = isUsable(row, product.getPrice(), table)
+                                    ? materializedQuotation(product, row, table)
+                                    : convertedQuotation(product, quotes.get(code), code);
+                            line.getConvertedPrices().put(code, quotation.getConvertedPrice());
+                            line.getRatesFetchedAt().put(code, quotation.getRateFetchedAt());
+                            line.setStale(line.isStale() || quotation.isStale());
+                        }
+                        response.getQuotations().add(line);
+                    }
+                    return response;
+                });
+    }
+
+    private static ProductPrice materializedRow(Map<Long, Map<String, ProductPrice>> materialized, Product product, String code) {
+        return materialized.getOrDefault(product.getId(), Map.of()).get(code);
+    }
+
+    //converts the prices of a list page for the currency that the user wants
+    //the materialized prices of the page come in one query, the rate is only looked up if some product doesn´t have its row
+    //called after the transaction of the list (not inside it), so no connection is held if the rate needs to be downloaded
+    public void convertPrices(Collection<ProductResponseDTO> dtos, String targetCurrencyCode) {
+
+        if (targetCurrencyCode == null || dtos.isEmpty()) {
+            return;
+        }
+        String targetCode = targetCurrencyCode.toUpperCase();
+
+        RateTableSnapshot table = exchangeRateApiClient.freshSnapshot().orElse(null);
+        Map<Long, ProductPrice> materialized = new HashMap<>();
+        List<Long> ids = dtos.stream().map(ProductResponseDTO::getId).toList();
+        for (ProductPrice row : productPriceRepository.findByCurrencyCodeAndProductIds(targetCode, ids)) {
+            materialized.put(row.getId().getProductId(), row);
+        }
+
+        BigDecimal conversionRate = null;
+        for (ProductResponseDTO dto : dtos) {
+            ProductPrice row = materialized.get(dto.getId());
+            if (isUsable(row, dto.getPrice(), table)) {
+                dto.setConvertedPrice(row.getConvertedPrice());
+            } else {
+                //currency not materialized, a product newer than its row, or a row of other rates (or no fresh table)
+                if (conversionRate == null) {
+                    conversionRate = exchangeRateApiClient.getConversionRate("BRL", targetCode);
+                }
+                dto.setConvertedPrice(dto.getPrice().multiply(conversionRate));
+            }
+            dto.setCurrencyCode(targetCode);
+        }
     }
 
     @Transactional
@@ -150,5 +439,6 @@ public class ProductService {
             throw new ResourceNotFoundException("Product not found with id " + productId);
         }
         productRepository.deleteById(productId);
+        catalogChangeService.recordProductDeletes(List.of(productId));
     }
 }
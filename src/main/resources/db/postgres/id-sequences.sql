@@ -0,0 +1,9 @@
+-- the ids of tb_product and tb_category come from sequences with increment 50 (pooled allocation of hibernate)
+-- the old rows were created by the identity columns, so the sequences are moved after the biggest id (never backwards)
+CREATE SEQUENCE IF NOT EXISTS tb_product_seq START WITH 1 INCREMENT BY 50;
+
+CREATE SEQUENCE IF NOT EXISTS tb_category_seq START WITH 1 INCREMENT BY 50;
+
+SELECT setval('tb_product_seq', GREATEST((SELECT COALESCE(MAX(id), 0) + 50 FROM tb_product), (SELECT last_value FROM tb_product_seq)));
+
+SELECT setval('tb_category_seq', GREATEST((SELECT COALESCE(MAX(id), 0) + 50 FROM tb_category), (SELECT last_value FROM tb_category_seq)));
@@ -0,0 +1,20 @@
+-- trigram indexes for the product search (GET /products?productName=&categoryName=)
+-- a b-tree can't help a LIKE '%x%', but a GIN index with gin_trgm_ops answers it without reading the whole table
+-- the indexes are over lower(name) because the search compares LOWER(name) LIKE '%x%'
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE INDEX IF NOT EXISTS idx_product_name_trgm ON tb_product USING gin (lower(name) gin_trgm_ops);
+
+CREATE INDEX IF NOT EXISTS idx_category_name_trgm ON tb_category USING gin (lower(name) gin_trgm_ops);
+
+-- the EXISTS of the category filter walks the join table starting by the category side
+CREATE INDEX IF NOT EXISTS idx_product_category_category_id ON tb_product_category (category_id, product_id);
+
+-- the cursor lists are sorted by (name, id) and seek with (name, id) > (last name, last id): with these indexes each
+-- slice is one range of the index from the position of the cursor, without sorting the table
+CREATE INDEX IF NOT EXISTS idx_product_name_id ON tb_product (name, id);
+
+CREATE INDEX IF NOT EXISTS idx_category_name_id ON tb_category (name, id);
+
+-- the versioning of the change feed looks only for the changes without version yet, a few rows at the end of the table
+CREATE INDEX IF NOT EXISTS idx_catalog_change_unversioned ON tb_catalog_change (id) WHERE version IS NULL;
@@ -0,0 +1,84 @@
+package com.lucasdev.productmanagementapi.DTO;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lucasdev.productmanagementapi.entities.Category;
+import com.lucasdev.productmanagementapi.entities.Product;
+import com.lucasdev.productmanagementapi.exceptions.InvalidParameterException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductViewDTOTest {
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    @Test
+    @DisplayName("Must write the same json of ProductResponseDTO when no field is selected")
+    void shouldWriteFullJsonWithoutSelection() throws IOException {
+        ProductResponseDTO dto = product(1L, null);
+
+        assertSame(ProductFields.ALL, ProductFields.of(null, false));
+        assertArrayEquals(objectMapper.writeValueAsBytes(dto), objectMapper.writeValueAsBytes(new ProductViewDTO(dto, ProductFields.ALL)));
+    }
+
+    @Test
+    @DisplayName("Must write only the selected fields, with the id and the selected nulls")
+    void shouldWriteOnlySelectedFields() throws IOException {
+        ProductResponseDTO dto = product(1L, null);
+
+        JsonNode json = objectMapper.readTree(objectMapper.writeValueAsBytes(new ProductViewDTO(dto, ProductFields.of("name, price,imageUrl", false))));
+
+        assertEquals(List.of("id", "name", "price", "imageUrl"), fieldNames(json));
+        assertTrue(json.get("imageUrl").isNull());
+        assertEquals(0, new BigDecimal("49.90").compareTo(json.get("price").decimalValue()));
+    }
+
+    @Test
+    @DisplayName("Must write the categories once in the normalized page without changing the dtos")
+    void shouldNormalizeCategoriesOfThePage() throws IOException {
+        List<ProductResponseDTO> content = List.of(product(1L, "a.png"), product(2L, "b.png"), product(3L, "c.png"));
+        byte[] before = objectMapper.writeValueAsBytes(content.get(0));
+
+        NormalizedProductPageDTO page = new NormalizedProductPageDTO(new PageImpl<>(content, PageRequest.of(0, 3), 3), ProductFields.of("name,categories", true));
+        JsonNode json = objectMapper.readTree(objectMapper.writeValueAsBytes(page));
+
+        assertEquals(3, json.get("categories").size());
+        assertEquals(3, json.get("totalElements").asInt());
+        JsonNode first = json.get("content").get(0);
+        assertEquals(List.of("id", "name", "categoryIds"), fieldNames(first));
+        assertEquals(2, first.get("categoryIds").size());
+        //the dto can be the one of the cache, the next request must see it as it was
+        assertArrayEquals(before, objectMapper.writeValueAsBytes(content.get(0)));
+    }
+
+    @Test
+    @DisplayName("Must refuse a field that doesn´t exist")
+    void shouldRefuseUnknownField() {
+        InvalidParameterException thrown = assertThrows(InvalidParameterException.class, () -> ProductFields.of("name,stock", false));
+        assertTrue(thrown.getMessage().contains("stock"));
+    }
+
+    //every product in 2 of the 3 categories, like a real page where the categories repeat a lot
+    private static ProductResponseDTO product(Long id, String imageUrl) {
+        Product product = new Product(id, "Product " + id, "A description of the product " + id, new BigDecimal("49.90"), imageUrl);
+        product.getCategories().add(new Category(10L, "Electronics"));
+        product.getCategories().add(new Category(10L + (id % 2) + 1, "Category " + ((id % 2) + 1)));
+        return new ProductResponseDTO(product);
+    }
+
+    private static List<String> fieldNames(JsonNode json) {
+        List<String> names = new ArrayList<>();
+        json.fieldNames().forEachRemaining(names::add);
+        return names;
+    }
+}
@@ -0,0 +1,33 @@
+package com.lucasdev.productmanagementapi;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+//hibernate calls this for each SQL before sending it to the database, so the tests can see what was really executed
+//registered in the test with the property "spring.jpa.properties.hibernate.session_factory.statement_inspector"
+public class SqlStatementRecorder implements StatementInspector {
+
+    private static final List<String> STATEMENTS = new ArrayList<>();
+
+    @Override
+    public String inspect(String sql) {
+        synchronized (STATEMENTS) {
+            STATEMENTS.add(sql.toLowerCase());
+        }
+        return sql;
+    }
+
+    public static List<String> statements() {
+        synchronized (STATEMENTS) {
+            return new ArrayList<>(STATEMENTS);
+        }
+    }
+
+    public static void clear() {
+        synchronized (STATEMENTS) {
+            STATEMENTS.clear();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.lucasdev.productmanagementapi.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lucasdev.productmanagementapi.DTO.NormalizedProductPageDTO;
+import com.lucasdev.productmanagementapi.DTO.ProductFields;
+import com.lucasdev.productmanagementapi.DTO.ProductResponseDTO;
+import com.lucasdev.productmanagementapi.DTO.ProductViewDTO;
+import com.lucasdev.productmanagementapi.entities.Category;
+import com.lucasdev.productmanagementapi.entities.Product;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+//a page of 100 products of GET /products: the full json, only some fields (?fields=name,price,categories), the
+//normalized one (?normalized=true) and both together. the size of each body is printed in the setup.
+//run: the main method, like ProductResponseSerializationBenchmark
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProductListSerializationBenchmark {
+
+    private static final int PAGE_SIZE = 100;
+
+    private ObjectMapper objectMapper;
+    private Page<ProductResponseDTO> page;
+    private ProductFields sparse;
+
+    @Setup
+    public void setUp() throws IOException {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+        //20 categories, each product in 3 of them: a page repeats every category many times
+        List<Category> categories = new ArrayList<>();
+        for (long i = 1; i <= 20; i++) {
+            categories.add(new Category(i, "Category of the catalog " + i));
+        }
+        List<ProductResponseDTO> content = new ArrayList<>();
+        for (long id = 1; id <= PAGE_SIZE; id++) {
+            Product product = new Product(id, "Product of the catalog " + id, "A description of the product " + id
+                    + " with its details, the size, the color, the material and what comes in the box",
+                    new BigDecimal("199.90"), "https://images.example.com/products/product-" + id + ".png");
+            for (int c = 0; c < 3; c++) {
+                product.getCategories().add(categories.get((int) ((id + c * 7) % categories.size())));
+            }
+            content.add(new ProductResponseDTO(product));
+        }
+        page = new PageImpl<>(content, PageRequest.of(0, PAGE_SIZE), 10_000);
+        sparse = ProductFields.of("name,price,categories", false);
+
+        System.err.println("Page of " + PAGE_SIZE + " products in bytes: full=" + full().length + ", sparse=" + sparse().length
+                + ", normalized=" + normalized().length + ", sparse+normalized=" + sparseNormalized().length);
+    }
+
+    @Benchmark
+    public byte[] full() throws IOException {
+        return objectMapper.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public byte[] sparse() throws IOException {
+        return objectMapper.writeValueAsBytes(page.map(dto -> new ProductViewDTO(dto, sparse)));
+    }
+
+    @Benchmark
+    public byte[] normalized() throws IOException {
+        return objectMapper.writeValueAsBytes(new NormalizedProductPageDTO(page, ProductFields.of(null, true)));
+    }
+
+    @Benchmark
+    public byte[] sparseNormalized() throws IOException {
+        return objectMapper.writeValueAsBytes(new NormalizedProductPageDTO(page, ProductFields.of("name,price,categories", true)));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ProductListSerializationBenchmark.class.getSimpleName()).build()).run();
+    }
+}
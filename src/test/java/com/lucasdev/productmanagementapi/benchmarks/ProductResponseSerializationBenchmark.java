@@ -0,0 +1,96 @@
+package com.lucasdev.productmanagementapi.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lucasdev.productmanagementapi.DTO.ProductResponseDTO;
+import com.lucasdev.productmanagementapi.controllers.ProductJsonCache;
+import com.lucasdev.productmanagementapi.entities.Category;
+import com.lucasdev.productmanagementapi.entities.Product;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.ByteArrayHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.mock.http.MockHttpOutputMessage;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+//the body of GET /products/{id}: the current path (ResponseEntity<ProductResponseDTO>, the jackson message converter of
+//spring writes the dto in each request, and the compression of the server gzips it) against the bytes of the
+//ProductJsonCache written by the byte array converter.
+//run: the main method (from the IDE, or mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=...)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProductResponseSerializationBenchmark {
+
+    private static final String ETAG = "\"4.12\"";
+
+    private MappingJackson2HttpMessageConverter jsonConverter;
+    private ByteArrayHttpMessageConverter bytesConverter;
+    private ProductJsonCache productJsonCache;
+    private ProductResponseDTO dto;
+
+    @Setup
+    public void setUp() {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        jsonConverter = new MappingJackson2HttpMessageConverter(objectMapper);
+        bytesConverter = new ByteArrayHttpMessageConverter();
+        productJsonCache = new ProductJsonCache(objectMapper, DataSize.ofMegabytes(16));
+
+        //a product like the ones of the catalog: full description and 3 categories
+        Product product = new Product(1L, "Smartphone Galaxy Ultra 256GB", "Smartphone with 6.8 inch screen, 256GB of storage, "
+                + "12GB of RAM, camera of 200MP and battery of 5000mAh, with charger and protective case included in the box",
+                new BigDecimal("7499.90"), "https://images.example.com/products/smartphone-galaxy-ultra-256gb.png");
+        product.getCategories().add(new Category(1L, "Electronics"));
+        product.getCategories().add(new Category(2L, "Smartphones"));
+        product.getCategories().add(new Category(3L, "Offers of the Week"));
+        dto = new ProductResponseDTO(product);
+        productJsonCache.get(dto, ETAG);
+    }
+
+    @Benchmark
+    public void currentJson(Blackhole blackhole) throws IOException {
+        MockHttpOutputMessage out = new MockHttpOutputMessage();
+        jsonConverter.write(dto, MediaType.APPLICATION_JSON, out);
+        blackhole.consume(out.getBodyAsBytes());
+    }
+
+    @Benchmark
+    public void cachedJson(Blackhole blackhole) throws IOException {
+        MockHttpOutputMessage out = new MockHttpOutputMessage();
+        bytesConverter.write(productJsonCache.get(dto, ETAG).json(), MediaType.APPLICATION_JSON, out);
+        blackhole.consume(out.getBodyAsBytes());
+    }
+
+    @Benchmark
+    public void currentJsonGzip(Blackhole blackhole) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+            jsonConverter.getObjectMapper().writeValue(gzip, dto);
+        }
+        blackhole.consume(bytes.toByteArray());
+    }
+
+    @Benchmark
+    public void cachedJsonGzip(Blackhole blackhole) throws IOException {
+        MockHttpOutputMessage out = new MockHttpOutputMessage();
+        bytesConverter.write(productJsonCache.get(dto, ETAG).gzip(), MediaType.APPLICATION_JSON, out);
+        blackhole.consume(out.getBodyAsBytes());
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ProductResponseSerializationBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,208 @@
+package com.lucasdev.productmanagementapi.controllers;
+
+import com.lucasdev.productmanagementapi.entities.Category;
+import com.lucasdev.productmanagementapi.entities.Product;
+import com.lucasdev.productmanagementapi.integrations.ExchangeRateApiClient;
+import com.lucasdev.productmanagementapi.repositories.CatalogChangeRepository;
+import com.lucasdev.productmanagementapi.repositories.CategoryRepository;
+import com.lucasdev.productmanagementapi.repositories.ProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+//the whole api with a database only for this class, the requests commit like in production (so the data is deleted after each test)
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase
+@ActiveProfiles("test")
+class ProductControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private CatalogChangeRepository catalogChangeRepository;
+
+    @MockitoBean
+    private ExchangeRateApiClient exchangeRateApiClient;
+
+    private Category games;
+    private Long productId;
+
+    @BeforeEach
+    void setUp() {
+        games = categoryRepository.save(new Category(null, "Games"));
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 15; i++) {
+            Product product = new Product(null, String.format("Product %02d", i), "A product for tests", new BigDecimal("10.00"), null);
+            product.getCategories().add(games);
+            products.add(product);
+        }
+        productId = productRepository.saveAll(products).get(0).getId();
+    }
+
+    @AfterEach
+    void tearDown() {
+        catalogChangeRepository.deleteAll();
+        productRepository.deleteAll();
+        categoryRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("Must answer 400 for a cursor that was not made by the API")
+    void shouldAnswerBadRequestForInvalidCursor() throws Exception {
+        mockMvc.perform(get("/products").param("cursor", "%%%not-base64"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Invalid Cursor"));
+        mockMvc.perform(get("/categories").param("cursor", "UHJvZHVjdA"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("Must look up the rate once for a page without materialized prices")
+    void shouldLookUpRateOncePerPage() throws Exception {
+        when(exchangeRateApiClient.getConversionRate("BRL", "USD")).thenReturn(new BigDecimal("0.20"));
+
+        mockMvc.perform(get("/products/all").param("currencyCode", "usd").param("size", "10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(10))
+                .andExpect(jsonPath("$.content[0].convertedPrice").value(2.0))
+                .andExpect(jsonPath("$.content[9].currencyCode").value("USD"));
+
+        verify(exchangeRateApiClient, times(1)).getConversionRate("BRL", "USD");
+    }
+
+    @Test
+    @DisplayName("Must walk the list by the 'next' token of each slice")
+    void shouldWalkListByNextToken() throws Exception {
+        mockMvc.perform(get("/products/all").param("cursor", "").param("size", "10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size").value(10))
+                .andExpect(jsonPath("$.content[0].name").value("Product 00"))
+                .andExpect(jsonPath("$.next").isNotEmpty());
+    }
+
+    @Test
+    @DisplayName("Must answer 304 without body when the If-None-Match is the current ETag")
+    void shouldAnswerNotModifiedForCurrentEtag() throws Exception {
+        String etag = etagOf(get("/products/{id}", productId));
+
+        mockMvc.perform(get("/products/{id}", productId).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    @DisplayName("Must change the ETag of the product after an update of the product and after an update of its category")
+    void shouldChangeEtagAfterProductAndCategoryUpdate() throws Exception {
+        String original = etagOf(get("/products/{id}", productId));
+
+        mockMvc.perform(patch("/products/{id}", productId).contentType(MediaType.APPLICATION_JSON).content("{\"price\": 20.00}"))
+                .andExpect(status().isOk());
+        String afterProductUpdate = etagOf(get("/products/{id}", productId));
+        assertNotEquals(original, afterProductUpdate);
+
+        //the json of the product has the name of the category
+        mockMvc.perform(put("/categories/{id}", games.getId()).contentType(MediaType.APPLICATION_JSON).content("{\"name\": \"Video Games\"}"))
+                .andExpect(status().isOk());
+        String afterCategoryUpdate = etagOf(get("/products/{id}", productId));
+        assertNotEquals(afterProductUpdate, afterCategoryUpdate);
+
+        //an old ETag gets the new json
+        mockMvc.perform(get("/products/{id}", productId).header(HttpHeaders.IF_NONE_MATCH, afterProductUpdate))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, afterCategoryUpdate))
+                .andExpect(jsonPath("$.categories[0].name").value("Video Games"));
+    }
+
+    @Test
+    @DisplayName("Must give the POST /products/batch the same ETag of the GET for the same ids")
+    void shouldGiveBatchPostTheEtagOfGet() throws Exception {
+        String getEtag = etagOf(get("/products/batch").param("ids", productId + ",999999"));
+
+        String postEtag = etagOf(post("/products/batch").contentType(MediaType.APPLICATION_JSON).content("{\"ids\": [" + productId + ", 999999]}"));
+
+        assertEquals(getEtag, postEtag);
+    }
+
+    @Test
+    @DisplayName("Must write only the fields asked, the id always")
+    void shouldWriteOnlyTheFieldsAsked() throws Exception {
+        mockMvc.perform(get("/products/all").param("fields", "name,price").param("size", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(5))
+                .andExpect(jsonPath("$.content[0].id").value(productId))
+                .andExpect(jsonPath("$.content[0].name").value("Product 00"))
+                .andExpect(jsonPath("$.content[0].price").value(10.0))
+                .andExpect(jsonPath("$.content[0].description").doesNotExist())
+                .andExpect(jsonPath("$.content[0].categories").doesNotExist());
+    }
+
+    @Test
+    @DisplayName("Must write the categories once in the normalized page and only their ids in the products")
+    void shouldWriteCategoriesOnceWhenNormalized() throws Exception {
+        mockMvc.perform(get("/products/all").param("normalized", "true").param("size", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.categories.length()").value(1))
+                .andExpect(jsonPath("$.categories[0].name").value("Games"))
+                .andExpect(jsonPath("$.content[0].categoryIds[0]").value(games.getId()))
+                .andExpect(jsonPath("$.content[0].categories").doesNotExist())
+                .andExpect(jsonPath("$.content[0].description").value("A product for tests"));
+    }
+
+    @Test
+    @DisplayName("Must answer 400 for an unknown field")
+    void shouldAnswerBadRequestForUnknownField() throws Exception {
+        mockMvc.perform(get("/products/all").param("fields", "name,password"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Invalid Parameter"));
+    }
+
+    @Test
+    @DisplayName("Must give each shape of the same page its own ETag")
+    void shouldChangeEtagWithTheShape() throws Exception {
+        String full = etagOf(get("/products/all").param("size", "5"));
+        String sparse = etagOf(get("/products/all").param("size", "5").param("fields", "name,price"));
+        String normalized = etagOf(get("/products/all").param("size", "5").param("normalized", "true"));
+        String both = etagOf(get("/products/all").param("size", "5").param("fields", "name,categories").param("normalized", "true"));
+
+        assertEquals(4, List.of(full, sparse, normalized, both).stream().distinct().count());
+        //the ETag of one shape is not a 304 for another
+        mockMvc.perform(get("/products/all").param("size", "5").param("fields", "name,price").header(HttpHeaders.IF_NONE_MATCH, full))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/products/all").param("size", "5").param("fields", "name,price").header(HttpHeaders.IF_NONE_MATCH, sparse))
+                .andExpect(status().isNotModified());
+    }
+
+    private String etagOf(MockHttpServletRequestBuilder request) throws Exception {
+        String etag = mockMvc.perform(request).andExpect(status().isOk()).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotNull(etag);
+        return etag;
+    }
+}
@@ -0,0 +1,80 @@
+package com.lucasdev.productmanagementapi.controllers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lucasdev.productmanagementapi.DTO.ProductResponseDTO;
+import com.lucasdev.productmanagementapi.entities.Category;
+import com.lucasdev.productmanagementapi.entities.Product;
+import com.lucasdev.productmanagementapi.events.CategoryChangedEvent;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductJsonCacheTest {
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final ProductJsonCache cache = new ProductJsonCache(objectMapper, DataSize.ofMegabytes(1));
+
+    @Test
+    @DisplayName("Must encode the same json of jackson once by ETag, and again for a new ETag")
+    void shouldReuseBytesOfTheSameVersion() throws IOException {
+        ProductResponseDTO dto = product("A short description");
+
+        ProductJsonCache.EncodedProduct first = cache.get(dto, "\"1.1\"");
+
+        assertArrayEquals(objectMapper.writeValueAsBytes(dto), first.json());
+        assertSame(first, cache.get(dto, "\"1.1\""));
+
+        dto.setName("Renamed");
+        ProductJsonCache.EncodedProduct second = cache.get(dto, "\"2.1\"");
+        assertNotSame(first, second);
+        assertTrue(new String(second.json()).contains("Renamed"));
+
+        //the invalidation by the events only frees the entry
+        cache.onCategoryChanged(new CategoryChangedEvent(10L, List.of(dto.getId()), false));
+        assertNotSame(second, cache.get(dto, "\"2.1\""));
+    }
+
+    @Test
+    @DisplayName("Must keep the gzip of the json only when it´s big enough to gain something")
+    void shouldGzipOnlyBigEnoughJson() throws IOException {
+        ProductResponseDTO small = product("Short");
+        assertNull(cache.get(small, "\"1.1\"").gzip());
+
+        ProductResponseDTO big = product("A long description. ".repeat(12));
+        big.setId(2L);
+        ProductJsonCache.EncodedProduct encoded = cache.get(big, "\"1.1\"");
+
+        assertNotNull(encoded.gzip());
+        assertTrue(encoded.gzip().length < encoded.json().length);
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(encoded.gzip()))) {
+            assertArrayEquals(encoded.json(), in.readAllBytes());
+        }
+    }
+
+    @Test
+    @DisplayName("Must read the gzip preference of the Accept-Encoding header")
+    void shouldParseAcceptEncoding() {
+        assertTrue(ResponseCaching.acceptsGzip("gzip, deflate, br"));
+        assertTrue(ResponseCaching.acceptsGzip("br;q=1.0, gzip;q=0.8"));
+        assertFalse(ResponseCaching.acceptsGzip("gzip;q=0"));
+        assertFalse(ResponseCaching.acceptsGzip("identity"));
+        assertFalse(ResponseCaching.acceptsGzip(null));
+        assertEquals("\"3.7-gzip\"", ResponseCaching.gzipVariant("\"3.7\""));
+    }
+
+    private static ProductResponseDTO product(String description) {
+        Product product = new Product(1L, "Console", description, new BigDecimal("1999.90"), "http://img/console.png");
+        product.getCategories().add(new Category(10L, "Games"));
+        product.getCategories().add(new Category(11L, "Electronics"));
+        return new ProductResponseDTO(product);
+    }
+}
@@ -0,0 +1,124 @@
+package com.lucasdev.productmanagementapi.integrations;
+
+import com.lucasdev.productmanagementapi.exceptions.ServiceUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//routing, fallback and hedging of the composite, with stub sources (no http)
+class CompositeRateTableProviderTest {
+
+    private StubRateTableProvider primary;
+    private StubRateTableProvider secondary;
+    private StubRateTableProvider persisted;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        primary = new StubRateTableProvider("primary", "0.18");
+        secondary = new StubRateTableProvider("secondary", "0.19");
+        persisted = new StubRateTableProvider("persisted", "0.10");
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    @DisplayName("Must route the downloads to the fastest source")
+    void shouldRouteToFastestSource() {
+        primary.latency(Duration.ofMillis(150));
+        secondary.latency(Duration.ofMillis(10));
+        CompositeRateTableProvider composite = newComposite(false);
+
+        //the first calls measure both sources
+        composite.fetchRateTable("BRL").block();
+        composite.fetchRateTable("BRL").block();
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(new BigDecimal("0.19"), usdRate(composite));
+        }
+        assertEquals(1, primary.calls());
+    }
+
+    @Test
+    @DisplayName("Must try the next source when the first one fails, and the persisted table when all fail")
+    void shouldFallBackInOrder() {
+        primary.failing(true);
+        CompositeRateTableProvider composite = newComposite(false);
+
+        assertEquals(new BigDecimal("0.19"), usdRate(composite));
+
+        secondary.failing(true);
+        assertEquals(new BigDecimal("0.10"), usdRate(composite));
+        assertEquals(1, persisted.calls());
+    }
+
+    @Test
+    @DisplayName("Must fail when no source answers")
+    void shouldFailWhenAllSourcesFail() {
+        primary.failing(true);
+        secondary.failing(true);
+        persisted.failing(true);
+        CompositeRateTableProvider composite = newComposite(true);
+
+        assertThrows(ServiceUnavailableException.class, () -> composite.fetchRateTable("BRL").block());
+    }
+
+    @Test
+    @DisplayName("Must hedge to the second source when the first passes its usual latency")
+    void shouldHedgeSlowSource() {
+        primary.latency(Duration.ofMillis(10));
+        secondary.latency(Duration.ofMillis(50));
+        CompositeRateTableProvider composite = newComposite(true);
+        for (int i = 0; i < 10; i++) {
+            composite.fetchRateTable("BRL").block(); //the usual latency of the primary, ~10 ms (hedge after the min delay, 80 ms)
+        }
+        assertEquals(0, secondary.calls());
+
+        //the primary becomes slow, the secondary answers before it
+        primary.latency(Duration.ofSeconds(2));
+        long start = System.nanoTime();
+        BigDecimal rate = usdRate(composite);
+        long elapsedMillis = Duration.ofNanos(System.nanoTime() - start).toMillis();
+
+        assertEquals(new BigDecimal("0.19"), rate);
+        assertTrue(elapsedMillis < 1000, "took " + elapsedMillis + " ms");
+        assertEquals(1.0, meterRegistry.get("exchangerate.provider.hedges").counter().count());
+    }
+
+    @Test
+    @DisplayName("Must not promote a slow source that keeps losing the hedge")
+    void shouldNotPromoteSourceThatLosesTheHedge() {
+        secondary.latency(Duration.ofSeconds(2));
+        CompositeRateTableProvider composite = new CompositeRateTableProvider(List.of(primary, secondary), persisted,
+                true, 0.95, Duration.ofMillis(20), Duration.ofMinutes(1), meterRegistry);
+
+        //the primary gets a bit slower in each call, so it always passes its usual latency and the secondary is called
+        //as a hedge, started late and canceled soon: its partial time is smaller than the time of the primary
+        for (int i = 0; i < 5; i++) {
+            primary.latency(Duration.ofMillis(100 + 50L * i));
+            assertEquals(new BigDecimal("0.18"), usdRate(composite));
+        }
+        assertEquals(5.0, meterRegistry.get("exchangerate.provider.hedges").counter().count());
+        int secondaryCalls = secondary.calls();
+
+        //the primary is still the first: a fast answer doesn´t hedge, the secondary is not called
+        primary.latency(Duration.ofMillis(10));
+        assertEquals(new BigDecimal("0.18"), usdRate(composite));
+        assertEquals(secondaryCalls, secondary.calls());
+    }
+
+    private BigDecimal usdRate(CompositeRateTableProvider composite) {
+        return composite.fetchRateTable("BRL").block().rates().get("USD");
+    }
+
+    private CompositeRateTableProvider newComposite(boolean hedging) {
+        return new CompositeRateTableProvider(List.of(primary, secondary), persisted,
+                hedging, 0.95, Duration.ofMillis(80), Duration.ofMinutes(1), meterRegistry);
+    }
+}
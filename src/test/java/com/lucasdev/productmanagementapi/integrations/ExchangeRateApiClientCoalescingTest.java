@@ -0,0 +1,125 @@
+package com.lucasdev.productmanagementapi.integrations;
+
+import com.lucasdev.productmanagementapi.exceptions.ServiceUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//concurrent lookups with the table missing: all of them must share a single call to the (fake) external API
+class ExchangeRateApiClientCoalescingTest {
+
+    private static final int CALLERS = 2000;
+    private static final int THREADS = 200;
+
+    private StubExchangeRateServer stub;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        stub = new StubExchangeRateServer();
+        stub.respondWith(200, "{\"result\":\"success\",\"base_code\":\"BRL\",\"conversion_rates\":{\"BRL\":1,\"USD\":0.18,\"EUR\":0.16}}");
+        executor = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+        stub.close();
+    }
+
+    @Test
+    @DisplayName("Must do exactly one upstream call for thousands of parallel lookups with the table missing")
+    void shouldCoalesceParallelLookupsIntoOneUpstreamCall() throws Exception {
+        // Arrange... a slow API, so all the callers arrive while the download is running
+        stub.delayResponses(Duration.ofMillis(300));
+        ExchangeRateApiClient client = newClient(Duration.ofSeconds(10));
+
+        // Act
+        List<Future<BigDecimal>> results = fireInParallel(CALLERS, () -> client.getConversionRate("BRL", (Math.random() < 0.5) ? "USD" : "EUR"));
+
+        // Assert
+        for (Future<BigDecimal> result : results) {
+            BigDecimal rate = result.get(10, TimeUnit.SECONDS);
+            assertTrue(rate.equals(new BigDecimal("0.18")) || rate.equals(new BigDecimal("0.16")));
+        }
+        assertEquals(1, stub.requestCount());
+    }
+
+    @Test
+    @DisplayName("Must deliver the failure of the shared call to every waiting caller")
+    void shouldPropagateSharedFailureToAllCallers() throws Exception {
+        stub.delayResponses(Duration.ofMillis(300));
+        stub.respondWith(500, "{\"result\":\"error\"}");
+        ExchangeRateApiClient client = newClient(Duration.ofSeconds(10));
+
+        //one caller per thread, so all of them are waiting the same call
+        List<Future<BigDecimal>> results = fireInParallel(THREADS, () -> client.getConversionRate("BRL", "USD"));
+
+        int failures = 0;
+        for (Future<BigDecimal> result : results) {
+            try {
+                result.get(10, TimeUnit.SECONDS);
+            } catch (ExecutionException e) {
+                assertInstanceOf(ServiceUnavailableException.class, e.getCause());
+                failures++;
+            }
+        }
+        assertEquals(THREADS, failures);
+        assertEquals(1, stub.requestCount());
+    }
+
+    @Test
+    @DisplayName("Must time out only the caller that waited too much, the shared call continues for the others")
+    void shouldTimeOutCallerWithoutCancelingSharedCall() throws InterruptedException {
+        stub.delayResponses(Duration.ofMillis(500));
+        ExchangeRateApiClient client = newClient(Duration.ofMillis(100));
+
+        //this caller gives up after 100 ms
+        assertThrows(ServiceUnavailableException.class, () -> client.getConversionRate("BRL", "USD"));
+
+        //but the download finished and swapped the table
+        Thread.sleep(700);
+        assertEquals(new BigDecimal("0.18"), client.getConversionRate("BRL", "USD"));
+        assertEquals(1, stub.requestCount());
+    }
+
+    private List<Future<BigDecimal>> fireInParallel(int callers, Callable<BigDecimal> lookup) {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<BigDecimal>> results = new ArrayList<>();
+        for (int i = 0; i < callers; i++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                return lookup.call();
+            }));
+        }
+        start.countDown(); //all together now
+        return results;
+    }
+
+    private ExchangeRateApiClient newClient(Duration lookupTimeout) {
+        WebClient webClient = WebClient.builder().baseUrl(stub.baseUrl()).build();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        RateTableProvider provider = new HttpRateTableProvider("exchangerate", webClient, Duration.ofSeconds(5),
+                new CircuitBreaker("exchangerate", 5, Duration.ofSeconds(30), meterRegistry));
+        return new ExchangeRateApiClient(provider, "BRL", Duration.ofHours(1), lookupTimeout, Duration.ofSeconds(30),
+                new InMemoryRateSnapshotStore(), event -> {}, meterRegistry);
+    }
+}
@@ -0,0 +1,112 @@
+package com.lucasdev.productmanagementapi.integrations;
+
+import com.lucasdev.productmanagementapi.exceptions.ServiceUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//deadline of the calls and the circuit breaker against the fake API in localhost
+class ExchangeRateApiClientResilienceTest {
+
+    private static final String TABLE = "{\"result\":\"success\",\"base_code\":\"BRL\",\"conversion_rates\":{\"BRL\":1,\"USD\":0.18}}";
+
+    private StubExchangeRateServer stub;
+    private SimpleMeterRegistry meterRegistry;
+    private CircuitBreaker circuitBreaker;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        stub = new StubExchangeRateServer();
+        stub.respondWith(200, TABLE);
+        meterRegistry = new SimpleMeterRegistry();
+        circuitBreaker = new CircuitBreaker("exchangerate", 3, Duration.ofMillis(300), meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        stub.close();
+    }
+
+    @Test
+    @DisplayName("Must give up a slow call at the request deadline")
+    void shouldFailSlowCallAtDeadline() {
+        stub.delayResponses(Duration.ofSeconds(2));
+        ExchangeRateApiClient client = newClient(Duration.ofMillis(200));
+
+        long start = System.nanoTime();
+        assertThrows(ServiceUnavailableException.class, () -> client.getConversionRate("BRL", "USD"));
+        long elapsedMillis = Duration.ofNanos(System.nanoTime() - start).toMillis();
+
+        //the lookup-timeout is 3 s, who stopped the call was the deadline of 200 ms
+        assertTrue(elapsedMillis < 1500, "took " + elapsedMillis + " ms");
+    }
+
+    @Test
+    @DisplayName("Must open the circuit after the failure threshold and fail fast without calling the API")
+    void shouldOpenCircuitAfterConsecutiveFailures() {
+        stub.respondWith(500, "{\"result\":\"error\"}");
+        ExchangeRateApiClient client = newClient(Duration.ofSeconds(5));
+
+        for (int i = 0; i < 10; i++) {
+            client.refreshRates();
+        }
+
+        //3 failures opened the circuit, the other 7 didn´t reach the API
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertEquals(3, stub.requestCount());
+        assertEquals(7.0, meterRegistry.get("circuitbreaker.calls").tag("result", "rejected").counter().count());
+    }
+
+    @Test
+    @DisplayName("Must close the circuit when the trial call of the half open state works")
+    void shouldCloseCircuitAfterSuccessfulTrial() throws InterruptedException {
+        stub.respondWith(500, "{\"result\":\"error\"}");
+        ExchangeRateApiClient client = newClient(Duration.ofSeconds(5));
+        for (int i = 0; i < 3; i++) {
+            client.refreshRates();
+        }
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+
+        //the API is back, and the open duration passed
+        stub.respondWith(200, TABLE);
+        Thread.sleep(400);
+
+        assertEquals(new BigDecimal("0.18"), client.getConversionRate("BRL", "USD"));
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        assertEquals(4, stub.requestCount());
+    }
+
+    @Test
+    @DisplayName("Must open the circuit again when the trial call fails")
+    void shouldReopenCircuitAfterFailedTrial() throws InterruptedException {
+        stub.respondWith(500, "{\"result\":\"error\"}");
+        ExchangeRateApiClient client = newClient(Duration.ofSeconds(5));
+        for (int i = 0; i < 3; i++) {
+            client.refreshRates();
+        }
+
+        Thread.sleep(400);
+        client.refreshRates(); //the trial, still failing
+        client.refreshRates(); //rejected, the circuit is open again
+
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertEquals(4, stub.requestCount());
+        assertEquals(1.0, meterRegistry.get("circuitbreaker.transitions").tag("to", "HALF_OPEN").counter().count());
+    }
+
+    private ExchangeRateApiClient newClient(Duration requestTimeout) {
+        WebClient webClient = WebClient.builder().baseUrl(stub.baseUrl()).build();
+        RateTableProvider provider = new HttpRateTableProvider("exchangerate", webClient, requestTimeout, circuitBreaker);
+        return new ExchangeRateApiClient(provider, "BRL", Duration.ofHours(1), Duration.ofSeconds(3), Duration.ofSeconds(30),
+                new InMemoryRateSnapshotStore(), event -> {}, meterRegistry);
+    }
+}
@@ -0,0 +1,194 @@
+package com.lucasdev.productmanagementapi.integrations;
+
+import com.lucasdev.productmanagementapi.exceptions.ServiceUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//tests of the in memory rate table against a fake API in localhost, without spring context
+class ExchangeRateApiClientSnapshotTest {
+
+    private StubExchangeRateServer stub;
+    private SimpleMeterRegistry meterRegistry;
+    private InMemoryRateSnapshotStore snapshotStore;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        stub = new StubExchangeRateServer();
+        stub.respondWith(200, tableBody("0.18", "0.16"));
+        meterRegistry = new SimpleMeterRegistry();
+        snapshotStore = new InMemoryRateSnapshotStore();
+    }
+
+    @AfterEach
+    void tearDown() {
+        stub.close();
+    }
+
+    @Test
+    @DisplayName("Must answer every currency pair from the same downloaded table")
+    void shouldAnswerAllPairsFromOneTable() {
+        // Arrange
+        ExchangeRateApiClient client = newClient(Duration.ofHours(1));
+
+        // Act
+        BigDecimal brlToUsd = BigDecimal.ZERO;
+        for (int i = 0; i < 100; i++) {
+            brlToUsd = client.getConversionRate("BRL", "USD");
+        }
+        BigDecimal usdToEur = client.getConversionRate("USD", "EUR");
+
+        // Assert... one call for the whole table, the cross rate derived in memory
+        assertEquals(new BigDecimal("0.18"), brlToUsd);
+        assertEquals(new BigDecimal("0.16").divide(new BigDecimal("0.18"), MathContext.DECIMAL64), usdToEur);
+        assertEquals(1, stub.requestCount());
+        assertEquals(100.0, meterRegistry.get("exchangerate.lookups").tag("result", "memory").counter().count());
+    }
+
+    @Test
+    @DisplayName("Must swap the table in the refresh and keep the last one when the refresh fails")
+    void shouldSwapTableOnRefreshAndKeepItOnFailure() {
+        ExchangeRateApiClient client = newClient(Duration.ofHours(1));
+        client.refreshRates();
+
+        stub.respondWith(200, tableBody("0.20", "0.17"));
+        client.refreshRates();
+        assertEquals(new BigDecimal("0.20"), client.getConversionRate("BRL", "USD"));
+
+        //the API is down, the requests keep the last table
+        stub.respondWith(500, "{\"result\":\"error\"}");
+        client.refreshRates();
+        assertEquals(new BigDecimal("0.20"), client.getConversionRate("BRL", "USD"));
+        assertEquals(1.0, meterRegistry.get("exchangerate.refreshes").tag("result", "failure").counter().count());
+        assertEquals(3, stub.requestCount());
+    }
+
+    @Test
+    @DisplayName("Must not keep a failed cold load and must reload a table older than the max-stale")
+    void shouldRetryFailedColdLoadAndReloadExpiredTable() throws InterruptedException {
+        ExchangeRateApiClient client = newClient(Duration.ofMillis(200));
+
+        //the API is down in the first request
+        stub.respondWith(500, "{\"result\":\"error\"}");
+        assertThrows(ServiceUnavailableException.class, () -> client.getConversionRate("BRL", "USD"));
+
+        //and up again in the second one
+        stub.respondWith(200, tableBody("0.18", "0.16"));
+        assertEquals(new BigDecimal("0.18"), client.getConversionRate("BRL", "USD"));
+
+        //the table passed the max-stale, the next request downloads it again
+        Thread.sleep(300);
+        stub.respondWith(200, tableBody("0.19", "0.16"));
+        assertEquals(new BigDecimal("0.19"), client.getConversionRate("BRL", "USD"));
+        assertEquals(3, stub.requestCount());
+    }
+
+    @Test
+    @DisplayName("Must throw ServiceUnavailableException for a currency that is not in the table")
+    void shouldThrowForUnknownCurrency() {
+        ExchangeRateApiClient client = newClient(Duration.ofHours(1));
+
+        assertThrows(ServiceUnavailableException.class, () -> client.getConversionRate("BRL", "XYZ"));
+    }
+
+    @Test
+    @DisplayName("Must start with the persisted table, without calling the API")
+    void shouldWarmStartFromPersistedTable() {
+        snapshotStore.save(new RateTableSnapshot("BRL", Map.of("BRL", BigDecimal.ONE, "USD", new BigDecimal("0.17")), Instant.now()));
+        ExchangeRateApiClient client = newClient(Duration.ofHours(1));
+
+        client.loadPersistedSnapshot();
+        ConversionQuote quote = client.getConversionQuoteAsync("BRL", "USD").block();
+
+        assertEquals(new BigDecimal("0.17"), quote.rate());
+        assertFalse(quote.stale());
+        assertEquals(0, stub.requestCount());
+    }
+
+    @Test
+    @DisplayName("Must serve the old table marked as stale while the API is down, trying the API once per backoff")
+    void shouldServeStaleTableDuringOutage() {
+        Instant yesterday = Instant.now().minus(Duration.ofDays(1));
+        snapshotStore.save(new RateTableSnapshot("BRL", Map.of("BRL", BigDecimal.ONE, "USD", new BigDecimal("0.17")), yesterday));
+        stub.respondWith(500, "{\"result\":\"error\"}");
+        ExchangeRateApiClient client = newClient(Duration.ofHours(1));
+        client.loadPersistedSnapshot();
+
+        for (int i = 0; i < 50; i++) {
+            ConversionQuote quote = client.getConversionQuoteAsync("BRL", "USD").block();
+            assertEquals(new BigDecimal("0.17"), quote.rate());
+            assertTrue(quote.stale());
+            assertEquals(yesterday, quote.fetchedAt());
+        }
+        //the first request found the API down, the others didn´t wait for it again
+        assertEquals(1, stub.requestCount());
+        assertEquals(50.0, meterRegistry.get("exchangerate.lookups").tag("result", "stale").counter().count());
+    }
+
+    @Test
+    @DisplayName("Must persist the downloaded table for the next startup")
+    void shouldPersistDownloadedTable() throws InterruptedException {
+        ExchangeRateApiClient client = newClient(Duration.ofHours(1));
+        client.refreshRates();
+
+        //the save runs in background
+        for (int i = 0; i < 50 && snapshotStore.findLatest("BRL").isEmpty(); i++) {
+            Thread.sleep(20);
+        }
+        RateTableSnapshot persisted = snapshotStore.findLatest("BRL").orElseThrow();
+        assertEquals(new BigDecimal("0.18"), persisted.rates().get("USD"));
+    }
+
+    @Test
+    @DisplayName("Must announce a refreshed table only when its rates changed")
+    void shouldAnnounceOnlyChangedRates() throws InterruptedException {
+        List<RateTableRefreshedEvent> announced = new CopyOnWriteArrayList<>();
+        ExchangeRateApiClient client = newClient(Duration.ofHours(1), event -> announced.add((RateTableRefreshedEvent) event));
+
+        client.refreshRates();
+        Thread.sleep(20); //only a new fetchedAt, the rates are the same
+        client.refreshRates();
+        stub.respondWith(200, tableBody("0.20", "0.16"));
+        client.refreshRates();
+
+        //the events go in background
+        for (int i = 0; i < 50 && announced.size() < 2; i++) {
+            Thread.sleep(20);
+        }
+        Thread.sleep(100);
+        assertEquals(3, stub.requestCount());
+        assertEquals(List.of(new BigDecimal("0.18"), new BigDecimal("0.20")),
+                announced.stream().map(e -> e.snapshot().rates().get("USD")).toList());
+    }
+
+    private ExchangeRateApiClient newClient(Duration maxStale) {
+        return newClient(maxStale, event -> {});
+    }
+
+    private ExchangeRateApiClient newClient(Duration maxStale, ApplicationEventPublisher eventPublisher) {
+        WebClient webClient = WebClient.builder().baseUrl(stub.baseUrl()).build();
+        RateTableProvider provider = new HttpRateTableProvider("exchangerate", webClient, Duration.ofSeconds(5),
+                new CircuitBreaker("exchangerate", 5, Duration.ofSeconds(30), meterRegistry));
+        return new ExchangeRateApiClient(provider, "BRL", maxStale, Duration.ofSeconds(3), Duration.ofSeconds(30),
+                snapshotStore, eventPublisher, meterRegistry);
+    }
+
+    private String tableBody(String usd, String eur) {
+        return "{\"result\":\"success\",\"base_code\":\"BRL\",\"conversion_rates\":{\"BRL\":1,\"USD\":" + usd + ",\"EUR\":" + eur + "}}";
+    }
+}
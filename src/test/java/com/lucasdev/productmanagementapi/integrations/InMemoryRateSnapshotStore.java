@@ -0,0 +1,21 @@
+package com.lucasdev.productmanagementapi.integrations;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+//the persisted tables of the client tests, without database
+class InMemoryRateSnapshotStore implements RateSnapshotStore {
+
+    private final Map<String, RateTableSnapshot> tables = new ConcurrentHashMap<>();
+
+    @Override
+    public void save(RateTableSnapshot snapshot) {
+        tables.put(snapshot.baseCode(), snapshot);
+    }
+
+    @Override
+    public Optional<RateTableSnapshot> findLatest(String baseCode) {
+        return Optional.ofNullable(tables.get(baseCode));
+    }
+}
@@ -0,0 +1,54 @@
+package com.lucasdev.productmanagementapi.integrations;
+
+import com.lucasdev.productmanagementapi.exceptions.ServiceUnavailableException;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+//a source of the rate table for the composite tests: answers its own USD rate after the configured latency (or fails)
+class StubRateTableProvider implements RateTableProvider {
+
+    private final String name;
+    private final BigDecimal usdRate;
+    private final AtomicInteger calls = new AtomicInteger();
+
+    private volatile Duration latency = Duration.ZERO;
+    private volatile boolean failing;
+
+    StubRateTableProvider(String name, String usdRate) {
+        this.name = name;
+        this.usdRate = new BigDecimal(usdRate);
+    }
+
+    void latency(Duration latency) {
+        this.latency = latency;
+    }
+
+    void failing(boolean failing) {
+        this.failing = failing;
+    }
+
+    int calls() {
+        return calls.get();
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public Mono<RateTableSnapshot> fetchRateTable(String baseCode) {
+        return Mono.defer(() -> {
+            calls.incrementAndGet();
+            Mono<RateTableSnapshot> answer = failing
+                    ? Mono.error(new ServiceUnavailableException(name + " is down"))
+                    : Mono.just(new RateTableSnapshot(baseCode, Map.of(baseCode, BigDecimal.ONE, "USD", usdRate), Instant.now()));
+            return answer.delaySubscription(latency);
+        });
+    }
+}
@@ -0,0 +1,95 @@
+package com.lucasdev.productmanagementapi.repositories;
+
+import com.lucasdev.productmanagementapi.entities.Category;
+import com.lucasdev.productmanagementapi.entities.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+class ProductSpecificationsTest {
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @BeforeEach
+    void setUp() {
+        Category homeOffice = categoryRepository.save(new Category(null, "Home_Office"));
+        Category homeXOffice = categoryRepository.save(new Category(null, "HomeXOffice"));
+        Category discounts = categoryRepository.save(new Category(null, "Discounts 50%"));
+        Category fiftyOff = categoryRepository.save(new Category(null, "Discounts 500"));
+
+        product("Chair 50% off", homeOffice, discounts);
+        product("Chair 500 model", homeXOffice, fiftyOff);
+        product("Desk snake_case", homeOffice);
+        product("Desk snakeXcase", homeXOffice);
+        product("Lamp back\\slash");
+        product("Lamp backslash");
+        product("Without category");
+        productRepository.flush();
+    }
+
+    @Test
+    @DisplayName("Must search the wildcards typed by the user as text in the product name")
+    void shouldEscapeWildcardsInProductName() {
+        assertEquals(List.of("Chair 50% off"), names(ProductSpecifications.nameContains("50%")));
+        assertEquals(List.of("Desk snake_case"), names(ProductSpecifications.nameContains("E_C")));
+        assertEquals(List.of("Lamp back\\slash"), names(ProductSpecifications.nameContains("k\\s")));
+    }
+
+    @Test
+    @DisplayName("Must search the wildcards typed by the user as text in the category name")
+    void shouldEscapeWildcardsInCategoryName() {
+        assertEquals(List.of("Chair 50% off"), names(ProductSpecifications.categoryNameContains("50%")));
+        assertEquals(List.of("Chair 50% off", "Desk snake_case"), names(ProductSpecifications.categoryNameContains("home_")));
+    }
+
+    @Test
+    @DisplayName("Must return once a product with many categories that match the filter")
+    void shouldReturnProductOnceForManyMatchingCategories() {
+        //"Chair 50% off" is in 'Home_Office' and in 'Discounts 50%', both have an 'o'
+        List<String> found = names(ProductSpecifications.categoryNameContains("o"));
+
+        assertEquals(1, found.stream().filter("Chair 50% off"::equals).count());
+        assertEquals(List.of("Chair 50% off", "Chair 500 model", "Desk snake_case", "Desk snakeXcase"), found);
+    }
+
+    @Test
+    @DisplayName("Must list the products without categories when there is no category filter")
+    void shouldListProductsWithoutCategoriesWithoutCategoryFilter() {
+        Specification<Product> noFilters = Specification.where(ProductSpecifications.nameContains(null))
+                .and(ProductSpecifications.categoryNameContains(null));
+
+        List<String> all = names(noFilters);
+
+        assertEquals(7, all.size());
+        assertTrue(all.contains("Without category"));
+        assertTrue(all.contains("Lamp backslash"));
+        //with a category filter they don´t match
+        assertFalse(names(ProductSpecifications.categoryNameContains("")).contains("Without category"));
+    }
+
+    private void product(String name, Category... categories) {
+        Product product = new Product(null, name, "A product for tests", new BigDecimal("10.00"), null);
+        product.getCategories().addAll(List.of(categories));
+        productRepository.save(product);
+    }
+
+    private List<String> names(Specification<Product> spec) {
+        return productRepository.findAll(spec, Sort.by("name")).stream().map(Product::getName).toList();
+    }
+}
@@ -0,0 +1,154 @@
+package com.lucasdev.productmanagementapi.services;
+
+import com.lucasdev.productmanagementapi.DTO.CategoryRequestDTO;
+import com.lucasdev.productmanagementapi.DTO.ProductPatchDTO;
+import com.lucasdev.productmanagementapi.DTO.ProductRequestDTO;
+import com.lucasdev.productmanagementapi.DTO.ProductResponseDTO;
+import com.lucasdev.productmanagementapi.integrations.ExchangeRateApiClient;
+import com.lucasdev.productmanagementapi.repositories.CatalogChangeRepository;
+import com.lucasdev.productmanagementapi.repositories.CategoryRepository;
+import com.lucasdev.productmanagementapi.repositories.ProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//the services commit for real (no test transaction), the cache only sees the data after the commit
+@DataJpaTest
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({ProductService.class, CategoryService.class, CatalogChangeService.class, CatalogCache.class})
+class CatalogCacheTest {
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private CatalogChangeRepository catalogChangeRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @MockitoBean
+    private ExchangeRateApiClient exchangeRateApiClient;
+
+    @AfterEach
+    void tearDown() {
+        catalogChangeRepository.deleteAll();
+        productRepository.deleteAll();
+        categoryRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("Must serve the cached product and show the new name of its category after the category is renamed")
+    void shouldInvalidateProductsOfRenamedCategory() {
+        Long categoryId = categoryService.insert(new CategoryRequestDTO("Games")).getId();
+        Long productId = productService.insertProduct(request("Console", "100.00", categoryId)).getId();
+
+        ProductResponseDTO first = productService.findProductById(productId);
+        assertSame(first, productService.findProductById(productId)); //second read from the cache
+        assertSame(categoryService.findById(categoryId), categoryService.findById(categoryId));
+
+        categoryService.update(categoryId, new CategoryRequestDTO("Video Games"));
+
+        assertEquals("Video Games", productService.findProductById(productId).getCategories().iterator().next().getName());
+        assertEquals("Video Games", categoryService.findById(categoryId).getName());
+    }
+
+    @Test
+    @DisplayName("Must not keep in the cache what was read inside a transaction that was rolled back")
+    void shouldNotCacheRolledBackData() {
+        Long categoryId = categoryService.insert(new CategoryRequestDTO("Tools")).getId();
+        Long productId = productService.insertProduct(request("Hammer", "10.00", categoryId)).getId();
+
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.executeWithoutResult(status -> {
+            productService.patchProduct(productId, patch("99.00"));
+            //inside the transaction the change is visible (not from the cache)
+            assertEquals(0, new BigDecimal("99.00").compareTo(productService.findProductById(productId).getPrice()));
+            status.setRollbackOnly();
+        });
+
+        assertEquals(0, new BigDecimal("10.00").compareTo(productService.findProductById(productId).getPrice()));
+
+        productService.deleteProduct(productId);
+        assertThrows(RuntimeException.class, () -> productService.findProductById(productId));
+    }
+
+    @Test
+    @DisplayName("Must never show an old price after a write, with readers and a writer at the same time")
+    void shouldNotServeStalePricesUnderConcurrentWrites() throws Exception {
+        Long categoryId = categoryService.insert(new CategoryRequestDTO("Books")).getId();
+        Long productId = productService.insertProduct(request("Novel", "1", categoryId)).getId();
+        int writes = 50;
+
+        ExecutorService readers = Executors.newFixedThreadPool(4);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        List<CompletableFuture<List<BigDecimal>>> seen = new ArrayList<>();
+        for (int r = 0; r < 4; r++) {
+            seen.add(CompletableFuture.supplyAsync(() -> {
+                List<BigDecimal> prices = new ArrayList<>();
+                while (writing.get()) {
+                    prices.add(productService.findProductById(productId).getPrice());
+                }
+                return prices;
+            }, readers));
+        }
+
+        for (int price = 2; price <= writes; price++) {
+            productService.patchProduct(productId, patch(String.valueOf(price)));
+            //after the commit (the patch returned), every read sees this price or a newer one
+            assertEquals(0, new BigDecimal(price).compareTo(productService.findProductById(productId).getPrice()));
+        }
+        writing.set(false);
+
+        for (CompletableFuture<List<BigDecimal>> reader : seen) {
+            List<BigDecimal> prices = reader.get(30, TimeUnit.SECONDS);
+            //a reader never goes back to an older price
+            for (int i = 1; i < prices.size(); i++) {
+                assertTrue(prices.get(i).compareTo(prices.get(i - 1)) >= 0, "price went back from " + prices.get(i - 1) + " to " + prices.get(i));
+            }
+        }
+        readers.shutdown();
+        assertEquals(0, new BigDecimal(writes).compareTo(productService.findProductById(productId).getPrice()));
+    }
+
+    private static ProductRequestDTO request(String name, String price, Long categoryId) {
+        return new ProductRequestDTO(name, "A product for tests", new BigDecimal(price), null, Set.of(categoryId));
+    }
+
+    private static ProductPatchDTO patch(String price) {
+        ProductPatchDTO patch = new ProductPatchDTO();
+        patch.setPrice(new BigDecimal(price));
+        return patch;
+    }
+}
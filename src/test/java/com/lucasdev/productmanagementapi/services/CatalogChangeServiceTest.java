@@ -0,0 +1,184 @@
+package com.lucasdev.productmanagementapi.services;
+
+import com.lucasdev.productmanagementapi.DTO.CatalogChangeDTO;
+import com.lucasdev.productmanagementapi.DTO.CategoryRequestDTO;
+import com.lucasdev.productmanagementapi.DTO.ChangeFeedDTO;
+import com.lucasdev.productmanagementapi.DTO.ProductPatchDTO;
+import com.lucasdev.productmanagementapi.DTO.ProductRequestDTO;
+import com.lucasdev.productmanagementapi.integrations.ExchangeRateApiClient;
+import com.lucasdev.productmanagementapi.repositories.CatalogChangeRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//the versions are given by calling assignVersions (no scheduler here). retention 0: any superseded change can be compacted
+@DataJpaTest(properties = "catalog.changes.retention=PT0S")
+@ActiveProfiles("test")
+@Import({CatalogChangeService.class, ProductService.class, CategoryService.class, CatalogCache.class})
+class CatalogChangeServiceTest {
+
+    @Autowired
+    private CatalogChangeService catalogChangeService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private CatalogChangeRepository catalogChangeRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @MockitoBean
+    private ExchangeRateApiClient exchangeRateApiClient;
+
+    @Test
+    @DisplayName("Must return each changed entity once with its current state, and the deletes as tombstones")
+    void shouldReturnLatestStateAndTombstones() {
+        Long categoryId = categoryService.insert(new CategoryRequestDTO("Games")).getId();
+        Long consoleId = productService.insertProduct(request("Console", categoryId)).getId();
+        Long joystickId = productService.insertProduct(request("Joystick", categoryId)).getId();
+
+        ProductPatchDTO patch = new ProductPatchDTO();
+        patch.setPrice(new BigDecimal("1999.90"));
+        productService.patchProduct(consoleId, patch);
+        productService.deleteProduct(joystickId);
+        catalogChangeService.assignVersions();
+
+        ChangeFeedDTO feed = catalogChangeService.findChanges(0, 100);
+
+        assertFalse(feed.isHasMore());
+        assertEquals(3, feed.getSize());
+        CatalogChangeDTO category = feed.getChanges().get(0);
+        assertEquals("CATEGORY", category.getType());
+        assertEquals("Games", category.getCategory().getName());
+
+        CatalogChangeDTO console = feed.getChanges().get(1);
+        assertEquals(consoleId, console.getId());
+        assertEquals(0, new BigDecimal("1999.90").compareTo(console.getProduct().getPrice()));
+
+        CatalogChangeDTO joystick = feed.getChanges().get(2);
+        assertEquals(joystickId, joystick.getId());
+        assertTrue(joystick.isDeleted());
+        assertNull(joystick.getProduct());
+
+        //nothing new after the last version
+        ChangeFeedDTO upToDate = catalogChangeService.findChanges(feed.getLastVersion(), 100);
+        assertEquals(0, upToDate.getSize());
+        assertEquals(feed.getLastVersion(), upToDate.getLastVersion());
+    }
+
+    @Test
+    @DisplayName("Must page the feed by version and record the products of a renamed category")
+    void shouldPageByVersionAndFollowCategoryRename() {
+        Long categoryId = categoryService.insert(new CategoryRequestDTO("Books")).getId();
+        productService.insertProduct(request("Novel", categoryId));
+        productService.insertProduct(request("Poetry", categoryId));
+        catalogChangeService.assignVersions();
+
+        ChangeFeedDTO first = catalogChangeService.findChanges(0, 2);
+        assertTrue(first.isHasMore());
+        ChangeFeedDTO second = catalogChangeService.findChanges(first.getLastVersion(), 2);
+        assertFalse(second.isHasMore());
+        assertEquals(3, first.getSize() + second.getSize());
+
+        //the json of the products has the name of the category, so they change too
+        categoryService.update(categoryId, new CategoryRequestDTO("Literature"));
+        catalogChangeService.assignVersions();
+        ChangeFeedDTO afterRename = catalogChangeService.findChanges(second.getLastVersion(), 100);
+
+        assertEquals(Set.of("CATEGORY", "PRODUCT"), Set.copyOf(afterRename.getChanges().stream().map(CatalogChangeDTO::getType).toList()));
+        assertEquals(3, afterRename.getSize());
+        afterRename.getChanges().stream().filter(c -> c.getProduct() != null)
+                .forEach(c -> assertEquals("Literature", c.getProduct().getCategories().iterator().next().getName()));
+    }
+
+    @Test
+    @DisplayName("Must compact the superseded changes keeping the last one of each entity")
+    void shouldCompactSupersededChanges() {
+        Long categoryId = categoryService.insert(new CategoryRequestDTO("Tools")).getId();
+        Long hammerId = productService.insertProduct(request("Hammer", categoryId)).getId();
+        for (int i = 1; i <= 3; i++) {
+            ProductPatchDTO patch = new ProductPatchDTO();
+            patch.setPrice(new BigDecimal(10 + i));
+            productService.patchProduct(hammerId, patch);
+        }
+        assertEquals(5, catalogChangeRepository.count());
+        catalogChangeService.assignVersions();
+
+        catalogChangeService.compact();
+
+        assertEquals(2, catalogChangeRepository.count());
+        List<CatalogChangeDTO> changes = catalogChangeService.findChanges(0, 100).getChanges();
+        assertEquals(0, new BigDecimal("13").compareTo(changes.get(1).getProduct().getPrice()));
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @DisplayName("Must not skip a change committed after a bigger one was already read")
+    void shouldNotSkipChangeCommittedLate() throws Exception {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        CountDownLatch recorded = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        try {
+            //this transaction records first (smaller id) and stays open
+            CompletableFuture<Void> slow = CompletableFuture.runAsync(() -> transaction.executeWithoutResult(status -> {
+                catalogChangeService.recordProducts(List.of(1L));
+                recorded.countDown();
+                await(commit);
+            }));
+            assertTrue(recorded.await(5, TimeUnit.SECONDS));
+
+            //a bigger id committed and read while the smaller is still open
+            transaction.executeWithoutResult(status -> catalogChangeService.recordProducts(List.of(2L)));
+            catalogChangeService.assignVersions();
+            ChangeFeedDTO first = catalogChangeService.findChanges(0, 100);
+            assertEquals(List.of(2L), first.getChanges().stream().map(CatalogChangeDTO::getId).toList());
+
+            //the late commit gets a version after the one that the mirror already has
+            commit.countDown();
+            slow.get(5, TimeUnit.SECONDS);
+            catalogChangeService.assignVersions();
+            ChangeFeedDTO second = catalogChangeService.findChanges(first.getLastVersion(), 100);
+
+            assertEquals(List.of(1L), second.getChanges().stream().map(CatalogChangeDTO::getId).toList());
+            assertTrue(second.getLastVersion() > first.getLastVersion());
+        } finally {
+            commit.countDown();
+            catalogChangeRepository.deleteAll();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static ProductRequestDTO request(String name, Long categoryId) {
+        return new ProductRequestDTO(name, "A product for tests", new BigDecimal("100.00"), null, Set.of(categoryId));
+    }
+}
@@ -0,0 +1,108 @@
+package com.lucasdev.productmanagementapi.services;
+
+import com.lucasdev.productmanagementapi.DTO.ProductRequestDTO;
+import com.lucasdev.productmanagementapi.entities.Category;
+import com.lucasdev.productmanagementapi.integrations.ExchangeRateApiClient;
+import com.lucasdev.productmanagementapi.repositories.CatalogChangeRepository;
+import com.lucasdev.productmanagementapi.repositories.CategoryRepository;
+import com.lucasdev.productmanagementapi.repositories.ProductRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//the second level cache is filled after the commit, so each call here has its own transaction (no test transaction)
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({ProductService.class, CatalogChangeService.class, CatalogCache.class})
+class CategorySecondLevelCacheTest {
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private CatalogChangeRepository catalogChangeRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @MockitoBean
+    private ExchangeRateApiClient exchangeRateApiClient;
+
+    private Statistics statistics;
+    private Set<Long> categoryIds;
+
+    @BeforeEach
+    void setUp() {
+        List<Category> categories = categoryRepository.saveAll(List.of(new Category(null, "Games"), new Category(null, "Books"), new Category(null, "Tools")));
+        categoryIds = Set.copyOf(categories.stream().map(Category::getId).toList());
+
+        //starting with the cache empty and the counters at zero
+        entityManagerFactory.getCache().evictAll();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        catalogChangeRepository.deleteAll();
+        productRepository.deleteAll();
+        categoryRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("Must read the categories of the product writes from the second level cache after the first load")
+    void shouldLoadCategoriesOnceForManyProductWrites() {
+        for (int i = 0; i < 10; i++) {
+            productService.insertProduct(new ProductRequestDTO("Product " + i, "A product for tests", new BigDecimal("10.00"), null, categoryIds));
+        }
+
+        CacheRegionStatistics region = statistics.getDomainDataRegionStatistics("category");
+        //the 3 categories from the database in the first product, the other 9 products from the cache
+        assertEquals(3, statistics.getEntityStatistics(Category.class.getName()).getLoadCount());
+        assertEquals(27, region.getHitCount());
+    }
+
+    @Test
+    @DisplayName("Must answer findByName from the query cache until the table is written")
+    void shouldCacheFindByNameUntilCategoriesChange() {
+        Category games = categoryRepository.findByName("Games");
+        assertEquals(games.getId(), categoryRepository.findByName("Games").getId());
+
+        assertEquals(1, statistics.getQueryCachePutCount());
+        assertEquals(1, statistics.getQueryCacheHitCount());
+        //the second call didn´t go to the database: neither the query nor the entity
+        assertEquals(1, statistics.getQueryExecutionCount());
+        assertEquals(1, statistics.getEntityStatistics(Category.class.getName()).getLoadCount());
+
+        //the write of tb_category invalidates the cached results
+        games.setName("Video Games");
+        categoryRepository.save(games);
+        assertNull(categoryRepository.findByName("Games"));
+        assertEquals(2, statistics.getQueryExecutionCount());
+    }
+}
@@ -0,0 +1,142 @@
+package com.lucasdev.productmanagementapi.services;
+
+import com.lucasdev.productmanagementapi.DTO.CategoryResponseDTO;
+import com.lucasdev.productmanagementapi.DTO.CursorPageDTO;
+import com.lucasdev.productmanagementapi.DTO.ProductResponseDTO;
+import com.lucasdev.productmanagementapi.entities.Category;
+import com.lucasdev.productmanagementapi.entities.Product;
+import com.lucasdev.productmanagementapi.exceptions.InvalidCursorException;
+import com.lucasdev.productmanagementapi.integrations.ExchangeRateApiClient;
+import com.lucasdev.productmanagementapi.repositories.CategoryRepository;
+import com.lucasdev.productmanagementapi.repositories.ProductRepository;
+import com.lucasdev.productmanagementapi.repositories.ProductSpecifications;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import({ProductService.class, CategoryService.class, CatalogChangeService.class, CatalogCache.class})
+class CursorPaginationTest {
+
+    private static final int CATALOG_SIZE = 120;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @MockitoBean
+    private ExchangeRateApiClient exchangeRateApiClient;
+
+    private List<Product> products;
+
+    @BeforeEach
+    void setUp() {
+        List<Category> categories = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            categories.add(new Category(null, String.format("Category %02d", i)));
+        }
+        categoryRepository.saveAll(categories);
+
+        List<Product> toSave = new ArrayList<>();
+        //saved out of order, the slices must come sorted by name
+        for (int i = CATALOG_SIZE - 1; i >= 0; i--) {
+            toSave.add(new Product(null, String.format("Product %03d", i), "A product for tests", new BigDecimal("10.00"), null));
+        }
+        products = productRepository.saveAllAndFlush(toSave);
+    }
+
+    @Test
+    @DisplayName("Must walk all the products by the cursor, each once and in the order of the name")
+    void shouldWalkProductsByCursor() {
+        List<String> names = new ArrayList<>();
+        List<Integer> sizes = new ArrayList<>();
+        String cursor = null;
+        do {
+            CursorPageDTO<ProductResponseDTO> slice = productService.findAllByCursor(null, null, cursor, 50);
+            slice.getContent().forEach(p -> names.add(p.getName()));
+            sizes.add(slice.getSize());
+            cursor = slice.getNext();
+        } while (cursor != null);
+
+        assertEquals(List.of(50, 50, 20), sizes);
+        assertEquals(CATALOG_SIZE, names.size());
+        assertEquals(names.stream().sorted().toList(), names);
+        assertEquals("Product 000", names.get(0));
+    }
+
+    @Test
+    @DisplayName("Must walk all the categories by the cursor")
+    void shouldWalkCategoriesByCursor() {
+        CursorPageDTO<CategoryResponseDTO> first = categoryService.findAllByCursor(null, 10);
+        CursorPageDTO<CategoryResponseDTO> second = categoryService.findAllByCursor(first.getNext(), 10);
+        CursorPageDTO<CategoryResponseDTO> last = categoryService.findAllByCursor(second.getNext(), 10);
+
+        assertEquals("Category 10", second.getContent().get(0).getName());
+        assertEquals(5, last.getSize());
+        assertNull(last.getNext());
+    }
+
+    @Test
+    @DisplayName("Must use the id as tie-break when the name is the same of the cursor")
+    void shouldBreakTiesByIdOnEqualNames() {
+        Product product = products.stream().filter(p -> p.getName().equals("Product 005")).findFirst().orElseThrow();
+        Category category = categoryRepository.findByName("Category 05");
+
+        //same name and a smaller id: the row is after the cursor
+        assertEquals("Product 005", firstProductAfter(product.getName(), product.getId() - 1));
+        assertEquals("Category 05", categoryRepository.findSliceAfter(category.getName(), category.getId() - 1, Limit.of(1)).get(0).getName());
+
+        //same name and the same id: it´s the cursor itself, the next name comes
+        assertEquals("Product 006", firstProductAfter(product.getName(), product.getId()));
+        assertEquals("Category 06", categoryRepository.findSliceAfter(category.getName(), category.getId(), Limit.of(1)).get(0).getName());
+    }
+
+    @Test
+    @DisplayName("Must never return more than 100 products in a slice")
+    void shouldCapSliceSize() {
+        CursorPageDTO<ProductResponseDTO> slice = productService.findAllByCursor(null, null, null, 1000);
+
+        assertEquals(KeysetCursor.MAX_PAGE_SIZE, slice.getSize());
+        assertNotNull(slice.getNext());
+        assertEquals(1, productService.findAllByCursor(null, null, null, 0).getSize());
+    }
+
+    @Test
+    @DisplayName("Must refuse a cursor that was not made by the API")
+    void shouldRefuseTamperedCursor() {
+        String withoutId = Base64.getUrlEncoder().encodeToString("Product 005".getBytes(StandardCharsets.UTF_8));
+        String notANumber = Base64.getUrlEncoder().encodeToString("x1:Product 005".getBytes(StandardCharsets.UTF_8));
+
+        assertThrows(InvalidCursorException.class, () -> productService.findAllByCursor(null, null, "%%%not-base64", 10));
+        assertThrows(InvalidCursorException.class, () -> productService.findAllByCursor(null, null, withoutId, 10));
+        assertThrows(InvalidCursorException.class, () -> categoryService.findAllByCursor(notANumber, 10));
+    }
+
+    private String firstProductAfter(String name, Long id) {
+        return productRepository.findBy(ProductSpecifications.after(name, id), q -> q.sortBy(KeysetCursor.SORT).first())
+                .map(Product::getName).orElseThrow();
+    }
+}
@@ -0,0 +1,159 @@
+package com.lucasdev.productmanagementapi.services;
+
+import com.lucasdev.productmanagementapi.DTO.BulkOperationResultDTO;
+import com.lucasdev.productmanagementapi.DTO.ProductPatchDTO;
+import com.lucasdev.productmanagementapi.DTO.ProductPriceUpdateDTO;
+import com.lucasdev.productmanagementapi.SqlStatementRecorder;
+import com.lucasdev.productmanagementapi.entities.Category;
+import com.lucasdev.productmanagementapi.entities.Product;
+import com.lucasdev.productmanagementapi.exceptions.ResourceNotFoundException;
+import com.lucasdev.productmanagementapi.integrations.ExchangeRateApiClient;
+import com.lucasdev.productmanagementapi.repositories.CategoryRepository;
+import com.lucasdev.productmanagementapi.repositories.ProductRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.lucasdev.productmanagementapi.SqlStatementRecorder")
+@ActiveProfiles("test")
+@Import({ProductBulkService.class, ProductService.class, CatalogChangeService.class, CatalogCache.class})
+class ProductBulkServiceTest {
+
+    @Autowired
+    private ProductBulkService productBulkService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @MockitoBean
+    private ExchangeRateApiClient exchangeRateApiClient;
+
+    private Category promo;
+    private Product phone;
+    private Product cable;
+    private Product book;
+
+    @BeforeEach
+    void setUp() {
+        promo = categoryRepository.save(new Category(null, "Promo"));
+        Category books = categoryRepository.save(new Category(null, "Books"));
+
+        phone = newProduct("Phone", "10.00", promo);
+        cable = newProduct("Cable", "0.01", promo);
+        book = newProduct("Book", "50.00", books);
+
+        entityManager.flush();
+        entityManager.clear();
+        SqlStatementRecorder.clear();
+    }
+
+    @Test
+    @DisplayName("Must update the prices of the list in one batch and return the ids that don´t exist")
+    void shouldUpdatePricesAndReportMissingIds() {
+        BulkOperationResultDTO result = productBulkService.updatePrices(List.of(
+                new ProductPriceUpdateDTO(phone.getId(), new BigDecimal("12.00")),
+                new ProductPriceUpdateDTO(book.getId(), new BigDecimal("45.50")),
+                new ProductPriceUpdateDTO(999999L, new BigDecimal("1.00"))));
+
+        assertEquals(2, result.getAffected());
+        assertEquals(List.of(999999L), result.getMissingIds());
+        assertPrice("12.00", phone);
+        assertPrice("45.50", book);
+        assertPrice("0.01", cable);
+    }
+
+    @Test
+    @DisplayName("Must increase the version of the products changed by the bulk updates, so their ETags change")
+    void shouldIncreaseVersionInBulkUpdates() {
+        long phoneVersion = version(phone);
+        long bookVersion = version(book);
+
+        productBulkService.updatePrices(List.of(new ProductPriceUpdateDTO(phone.getId(), new BigDecimal("11.00"))));
+        productBulkService.adjustPricesOfCategory(promo.getId(), BigDecimal.TEN);
+
+        assertEquals(phoneVersion + 2, version(phone));
+        assertEquals(bookVersion, version(book));
+    }
+
+    @Test
+    @DisplayName("Must adjust the prices of only the products of the category, never under the minimum")
+    void shouldAdjustPricesOfCategory() {
+        BulkOperationResultDTO up = productBulkService.adjustPricesOfCategory(promo.getId(), new BigDecimal("5"));
+
+        assertEquals(2, up.getAffected());
+        assertPrice("10.50", phone);
+        assertPrice("50.00", book); //other category
+
+        productBulkService.adjustPricesOfCategory(promo.getId(), new BigDecimal("-90"));
+        assertPrice("1.05", phone);
+        assertPrice("0.01", cable); //0.001 would round to 0.00
+
+        assertThrows(ResourceNotFoundException.class, () -> productBulkService.adjustPricesOfCategory(999999L, BigDecimal.TEN));
+    }
+
+    @Test
+    @DisplayName("Must delete the products with their category links and keep the categories")
+    void shouldDeleteProductsInBulk() {
+        BulkOperationResultDTO result = productBulkService.deleteProducts(Set.of(phone.getId(), cable.getId(), 999999L));
+
+        assertEquals(2, result.getAffected());
+        assertEquals(List.of(999999L), result.getMissingIds());
+        entityManager.clear();
+        assertEquals(List.of(book.getId()), productRepository.findAll().stream().map(Product::getId).toList());
+        assertTrue(categoryRepository.existsById(promo.getId()));
+    }
+
+    @Test
+    @DisplayName("Must write only the price column in a PATCH of the price, without touching the categories")
+    void shouldPatchOnlyThePrice() {
+        ProductPatchDTO patch = new ProductPatchDTO();
+        patch.setPrice(new BigDecimal("9.99"));
+
+        productService.patchProduct(phone.getId(), patch);
+
+        List<String> updates = SqlStatementRecorder.statements().stream().filter(sql -> sql.startsWith("update")).toList();
+        assertEquals(1, updates.size());
+        //the version is the optimistic lock and the ETag of the product
+        assertTrue(updates.get(0).matches("update tb_product set price=\\?,version=\\? where id=\\? and version=\\?"), updates.get(0));
+        assertTrue(SqlStatementRecorder.statements().stream().noneMatch(sql -> sql.startsWith("delete") || sql.startsWith("insert")));
+        assertPrice("9.99", phone);
+    }
+
+    private Product newProduct(String name, String price, Category category) {
+        Product product = new Product(null, name, "A product for tests", new BigDecimal(price), null);
+        product.getCategories().add(category);
+        return productRepository.save(product);
+    }
+
+    private long version(Product product) {
+        entityManager.clear();
+        return productRepository.findById(product.getId()).orElseThrow().getVersion();
+    }
+
+    private void assertPrice(String expected, Product product) {
+        entityManager.clear();
+        BigDecimal price = productRepository.findById(product.getId()).orElseThrow().getPrice();
+        assertEquals(0, new BigDecimal(expected).compareTo(price), "price of " + product.getName() + " was " + price);
+    }
+}
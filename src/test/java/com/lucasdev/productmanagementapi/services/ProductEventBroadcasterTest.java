@@ -0,0 +1,146 @@
+package com.lucasdev.productmanagementapi.services;
+
+import com.lucasdev.productmanagementapi.DTO.ProductEventDTO;
+import com.lucasdev.productmanagementapi.events.ProductPriceChangedEvent;
+import com.lucasdev.productmanagementapi.events.ProductsChangedEvent;
+import com.lucasdev.productmanagementapi.exceptions.ServiceUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscription;
+import org.springframework.http.codec.ServerSentEvent;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//the broadcaster alone (no transaction: the listeners run direct, like fallbackExecution), with subscribers that ask
+//the events at their own pace
+class ProductEventBroadcasterTest {
+
+    private static final int BUFFER_SIZE = 16;
+
+    private SimpleMeterRegistry meterRegistry;
+    private ProductEventBroadcaster broadcaster;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        //heartbeat of 1 hour: never in the middle of the test
+        broadcaster = new ProductEventBroadcaster(meterRegistry, 2, BUFFER_SIZE, 100, Duration.ofHours(1), Duration.ofHours(1), Duration.ofSeconds(3));
+    }
+
+    @Test
+    @DisplayName("Must deliver everything to a fast subscriber and keep only a bounded buffer for a slow one")
+    void shouldBoundTheBufferOfSlowSubscribers() {
+        TestSubscriber fast = new TestSubscriber(Long.MAX_VALUE);
+        TestSubscriber slow = new TestSubscriber(1); //only the 'connected' comment, then nothing
+        broadcaster.subscribe().subscribe(fast);
+        broadcaster.subscribe().subscribe(slow);
+
+        for (long id = 1; id <= 1000; id++) {
+            broadcaster.onProductPriceChanged(new ProductPriceChangedEvent(id, BigDecimal.TEN));
+        }
+
+        assertEquals(LongStream.rangeClosed(1, 1000).boxed().toList(), fast.productIds());
+
+        //the slow one reads now: some old events (prefetched before the buffer) and the newest ones, never the 1000
+        slow.request(Long.MAX_VALUE);
+        List<Long> received = slow.productIds();
+        assertTrue(received.size() < 100, "received " + received.size());
+        assertEquals(1000L, received.get(received.size() - 1).longValue());
+        assertEquals(1000 - received.size(), meterRegistry.get("products.events.dropped").counter().count());
+
+        //the ids show the gap to the client
+        List<String> ids = slow.events.stream().map(ServerSentEvent::id).toList();
+        assertEquals(String.valueOf(1000), ids.get(ids.size() - 1));
+        assertTrue(ids.contains("1"));
+        assertFalse(ids.contains("500"));
+    }
+
+    @Test
+    @DisplayName("Must send one event by product, and one event with the count for a bulk operation")
+    void shouldCollapseBulkOperations() {
+        TestSubscriber subscriber = new TestSubscriber(Long.MAX_VALUE);
+        broadcaster.subscribe().subscribe(subscriber);
+
+        broadcaster.onProductsChanged(new ProductsChangedEvent(List.of(1L, 2L), ProductsChangedEvent.Kind.CREATED));
+        broadcaster.onProductsChanged(new ProductsChangedEvent(LongStream.rangeClosed(1, 150).boxed().toList(), ProductsChangedEvent.Kind.DELETED));
+
+        assertEquals(List.of("product-created", "product-created", "products-deleted"),
+                subscriber.events.stream().map(ServerSentEvent::event).toList());
+        assertEquals(150, subscriber.events.get(2).data().getCount().intValue());
+    }
+
+    @Test
+    @DisplayName("Must refuse subscribers over the limit and accept again when one leaves")
+    void shouldLimitSubscribers() {
+        TestSubscriber first = new TestSubscriber(Long.MAX_VALUE);
+        broadcaster.subscribe().subscribe(first);
+        broadcaster.subscribe().subscribe(new TestSubscriber(Long.MAX_VALUE));
+
+        assertThrows(ServiceUnavailableException.class, () -> broadcaster.subscribe());
+        assertEquals(2, broadcaster.getSubscriberCount());
+
+        first.dispose();
+        assertEquals(1, broadcaster.getSubscriberCount());
+        broadcaster.subscribe().subscribe(new TestSubscriber(Long.MAX_VALUE));
+        assertEquals(2, broadcaster.getSubscriberCount());
+    }
+
+    @Test
+    @DisplayName("Must take the slot of a subscriber only when its stream is subscribed")
+    void shouldTakeSlotOnlyOnSubscription() {
+        //the client left before the stream started: the Flux is never subscribed
+        broadcaster.subscribe();
+        broadcaster.subscribe();
+        assertEquals(0, broadcaster.getSubscriberCount());
+
+        //three streams taken before any subscription (the limit is 2), the third is refused when it subscribes
+        Flux<ServerSentEvent<ProductEventDTO>> first = broadcaster.subscribe();
+        Flux<ServerSentEvent<ProductEventDTO>> second = broadcaster.subscribe();
+        Flux<ServerSentEvent<ProductEventDTO>> third = broadcaster.subscribe();
+        first.subscribe(new TestSubscriber(Long.MAX_VALUE));
+        second.subscribe(new TestSubscriber(Long.MAX_VALUE));
+
+        List<Throwable> errors = new ArrayList<>();
+        third.subscribe(event -> { }, errors::add);
+        assertEquals(1, errors.size());
+        assertInstanceOf(ServiceUnavailableException.class, errors.get(0));
+        assertEquals(2, broadcaster.getSubscriberCount());
+    }
+
+    //keeps the events with data (the comments 'connected' and 'heartbeat' are ignored)
+    private static class TestSubscriber extends BaseSubscriber<ServerSentEvent<ProductEventDTO>> {
+
+        private final long initialRequest;
+        private final List<ServerSentEvent<ProductEventDTO>> events = new ArrayList<>();
+
+        TestSubscriber(long initialRequest) {
+            this.initialRequest = initialRequest;
+        }
+
+        @Override
+        protected void hookOnSubscribe(Subscription subscription) {
+            request(initialRequest);
+        }
+
+        @Override
+        protected void hookOnNext(ServerSentEvent<ProductEventDTO> event) {
+            if (event.data() != null) {
+                events.add(event);
+            }
+        }
+
+        List<Long> productIds() {
+            return events.stream().map(e -> e.data().getProductId()).toList();
+        }
+    }
+}
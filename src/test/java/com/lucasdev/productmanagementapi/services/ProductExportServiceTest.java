@@ -0,0 +1,159 @@
+package com.lucasdev.productmanagementapi.services;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lucasdev.productmanagementapi.entities.Category;
+import com.lucasdev.productmanagementapi.exceptions.InvalidParameterException;
+import com.lucasdev.productmanagementapi.repositories.CategoryRepository;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//the catalog is inserted with jdbc (fast) and committed, the export opens its own read only transaction
+@DataJpaTest
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import(ProductExportService.class)
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+class ProductExportServiceTest {
+
+    private static final int CATALOG_SIZE = 20_000; //40 batches
+
+    @Autowired
+    private ProductExportService productExportService;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private Long firstCategoryId;
+    private Long secondCategoryId;
+
+    @BeforeEach
+    void setUp() {
+        firstCategoryId = categoryRepository.save(new Category(null, "First")).getId();
+        secondCategoryId = categoryRepository.save(new Category(null, "Second")).getId();
+
+        List<Object[]> products = new ArrayList<>(CATALOG_SIZE);
+        List<Object[]> links = new ArrayList<>(CATALOG_SIZE * 2);
+        for (long id = 1; id <= CATALOG_SIZE; id++) {
+            products.add(new Object[]{id, "Product " + id, "Description, with \"quotes\"", new BigDecimal("10.00"), null});
+            links.add(new Object[]{id, firstCategoryId});
+            if (id % 2 == 0) {
+                links.add(new Object[]{id, secondCategoryId});
+            }
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO tb_product (id, name, description, price, image_url) VALUES (?, ?, ?, ?, ?)", products);
+        jdbcTemplate.batchUpdate("INSERT INTO tb_product_category (product_id, category_id) VALUES (?, ?)", links);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM tb_product_category");
+        jdbcTemplate.update("DELETE FROM tb_product");
+        categoryRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("Must export every product as NDJSON keeping at most one batch in the persistence context")
+    void shouldStreamLargeCatalogAsNdjsonWithBoundedMemory() throws IOException {
+        //what the export holds in memory is the persistence context, so it´s sampled at each write to the response
+        ManagedEntitiesProbe out = new ManagedEntitiesProbe();
+
+        long exported = productExportService.exportCatalog(ProductExportService.Format.NDJSON, out);
+
+        assertEquals(CATALOG_SIZE, exported);
+        String[] lines = out.content().split("\n");
+        assertEquals(CATALOG_SIZE, lines.length);
+
+        JsonNode first = objectMapper.readTree(lines[0]);
+        assertEquals(1, first.get("id").asLong());
+        assertEquals(1, first.get("categories").size());
+        JsonNode last = objectMapper.readTree(lines[CATALOG_SIZE - 1]);
+        assertEquals(CATALOG_SIZE, last.get("id").asLong());
+        assertEquals(2, last.get("categories").size());
+
+        //one batch of products + the 2 categories, never the catalog
+        assertTrue(out.maxManagedEntities > 0);
+        assertTrue(out.maxManagedEntities <= ProductExportService.BATCH_SIZE + 2, "managed entities: " + out.maxManagedEntities);
+    }
+
+    @Test
+    @DisplayName("Must export CSV in the columns of the import, with the values escaped")
+    void shouldExportCsv() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        productExportService.exportCatalog(ProductExportService.Format.CSV, out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(CATALOG_SIZE + 1, lines.length);
+        assertEquals("id,name,description,price,imageUrl,categoryIds", lines[0]);
+        assertEquals("2,Product 2,\"Description, with \"\"quotes\"\"\",10.00,," + firstCategoryId + "|" + secondCategoryId, lines[2]);
+    }
+
+    @Test
+    @DisplayName("Must refuse an unknown format")
+    void shouldRefuseUnknownFormat() {
+        assertEquals(ProductExportService.Format.CSV, ProductExportService.Format.fromParameter("csv"));
+        assertThrows(InvalidParameterException.class, () -> ProductExportService.Format.fromParameter("xml"));
+    }
+
+    //keeps the bytes (for the asserts) and the biggest number of entities managed at the moment of a write
+    private class ManagedEntitiesProbe extends OutputStream {
+
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private int maxManagedEntities;
+
+        @Override
+        public void write(int b) {
+            sample();
+            bytes.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            sample();
+            bytes.write(b, off, len);
+        }
+
+        private void sample() {
+            //called inside the transaction of the export, so this is the same session of the cursor
+            int managed = entityManager.unwrap(Session.class).getStatistics().getEntityCount();
+            maxManagedEntities = Math.max(maxManagedEntities, managed);
+        }
+
+        String content() {
+            return bytes.toString(StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.lucasdev.productmanagementapi.services;
+
+import com.lucasdev.productmanagementapi.DTO.ProductImportErrorDTO;
+import com.lucasdev.productmanagementapi.DTO.ProductImportResultDTO;
+import com.lucasdev.productmanagementapi.entities.Category;
+import com.lucasdev.productmanagementapi.entities.Product;
+import com.lucasdev.productmanagementapi.exceptions.InvalidImportFileException;
+import com.lucasdev.productmanagementapi.repositories.CategoryRepository;
+import com.lucasdev.productmanagementapi.repositories.ProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.validation.ValidationAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//each chunk is saved in its own transaction, so no test transaction here (and the data is deleted after each test)
+//chunk of 2 rows, so the small files below already have more than one chunk
+@DataJpaTest(properties = "products.import.chunk-size=2")
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({ProductImportService.class, CatalogChangeService.class})
+@ImportAutoConfiguration({JacksonAutoConfiguration.class, ValidationAutoConfiguration.class})
+class ProductImportServiceTest {
+
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    private static final MediaType CSV = MediaType.parseMediaType("text/csv");
+
+    @Autowired
+    private ProductImportService productImportService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    private Long electronicsId;
+    private Long booksId;
+
+    @BeforeEach
+    void setUp() {
+        electronicsId = categoryRepository.save(new Category(null, "Electronics")).getId();
+        booksId = categoryRepository.save(new Category(null, "Books")).getId();
+    }
+
+    @AfterEach
+    void tearDown() {
+        productRepository.deleteAll();
+        categoryRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("Must import the valid rows of a JSON array and report the invalid ones with their row number")
+    void shouldImportJsonArrayAndReportInvalidRows() {
+        String body = "["
+                + product("Phone", "10.50", electronicsId) + ","
+                + product("Tablet", "0", electronicsId) + ","           //invalid price
+                + product("Novel", "20.00", booksId, 999L) + ","        //category that doesn´t exist
+                + product("Laptop", "99.90", electronicsId, booksId) + ","
+                + "{\"name\":\"Mouse\",\"description\":\"x\",\"price\":\"abc\",\"categoryIds\":[" + electronicsId + "]},"
+                + product("Cable", "5.00", electronicsId)
+                + "]";
+
+        ProductImportResultDTO result = productImportService.importProducts(stream(body), MediaType.APPLICATION_JSON);
+
+        assertEquals(6, result.getReceived());
+        assertEquals(3, result.getImported());
+        assertEquals(3, result.getFailed());
+        assertEquals(List.of(2L, 3L, 5L), result.getErrors().stream().map(ProductImportErrorDTO::getRow).toList());
+        assertTrue(result.getErrors().get(1).getMessages().get(0).contains("999"));
+
+        Product laptop = productRepository.findAllWithCategoriesByIdIn(productRepository.findAll().stream().map(Product::getId).toList())
+                .stream().filter(p -> p.getName().equals("Laptop")).findFirst().orElseThrow();
+        assertEquals(2, laptop.getCategories().size());
+        assertEquals(0, new BigDecimal("99.90").compareTo(laptop.getPrice()));
+    }
+
+    @Test
+    @DisplayName("Must reject in NDJSON the broken lines, the names repeated in the file and the names already saved")
+    void shouldRejectBrokenLinesAndDuplicatedNamesInNdjson() {
+        productRepository.save(new Product(null, "Existing", "Already saved", new BigDecimal("1.00"), null));
+
+        String body = product("Keyboard", "30.00", electronicsId) + "\n"
+                + "{\"name\": \"Broken\", \n"
+                + "\n"
+                + product("Keyboard", "31.00", electronicsId) + "\n"
+                + product("Existing", "2.00", electronicsId) + "\n"
+                + product("Monitor", "300.00", electronicsId) + "\n";
+
+        ProductImportResultDTO result = productImportService.importProducts(stream(body), NDJSON);
+
+        assertEquals(5, result.getReceived());
+        assertEquals(2, result.getImported());
+        assertEquals(List.of(2L, 3L, 4L), result.getErrors().stream().map(ProductImportErrorDTO::getRow).toList());
+        assertEquals(3, productRepository.count());
+    }
+
+    @Test
+    @DisplayName("Must report a null in the place of a product as an error of its row, in JSON and in NDJSON")
+    void shouldReportNullProductAsRowError() {
+        String array = "[" + product("Speaker", "40.00", electronicsId) + ", null, " + product("Radio", "25.00", electronicsId) + "]";
+        String ndjson = product("Camera", "500.00", electronicsId) + "\nnull\n" + product("Tripod", "60.00", electronicsId) + "\n";
+
+        ProductImportResultDTO fromArray = productImportService.importProducts(stream(array), MediaType.APPLICATION_JSON);
+        ProductImportResultDTO fromNdjson = productImportService.importProducts(stream(ndjson), NDJSON);
+
+        for (ProductImportResultDTO result : List.of(fromArray, fromNdjson)) {
+            assertEquals(3, result.getReceived());
+            assertEquals(2, result.getImported());
+            assertEquals(List.of(2L), result.getErrors().stream().map(ProductImportErrorDTO::getRow).toList());
+            assertTrue(result.getErrors().get(0).getMessages().get(0).contains("null"));
+        }
+        assertEquals(4, productRepository.count());
+    }
+
+    @Test
+    @DisplayName("Must import a CSV with quoted values and the categories separated by '|'")
+    void shouldImportCsv() {
+        String body = "name,description,price,imageUrl,categoryIds\n"
+                + "\"Desk, oak\",\"A \"\"big\"\" desk\",150.00,,\"" + electronicsId + "|" + booksId + "\"\n"
+                + "Lamp,Light,12.5,http://img/lamp.png," + electronicsId + "\n"
+                + "Chair,Seat,not-a-number,," + electronicsId + "\n";
+
+        ProductImportResultDTO result = productImportService.importProducts(stream(body), CSV);
+
+        assertEquals(3, result.getReceived());
+        assertEquals(2, result.getImported());
+        assertEquals(3L, result.getErrors().get(0).getRow());
+        assertTrue(productRepository.findAll().stream().anyMatch(p -> p.getName().equals("Desk, oak") && p.getDescription().equals("A \"big\" desk")));
+    }
+
+    @Test
+    @DisplayName("Must refuse a file that can´t be read at all")
+    void shouldRefuseUnreadableFile() {
+        assertThrows(InvalidImportFileException.class,
+                () -> productImportService.importProducts(stream("{\"name\":\"not an array\"}"), MediaType.APPLICATION_JSON));
+        assertThrows(InvalidImportFileException.class,
+                () -> productImportService.importProducts(stream("name,price\nLamp,10"), CSV));
+        assertEquals(0, productRepository.count());
+    }
+
+    private static String product(String name, String price, Long... categoryIds) {
+        StringBuilder ids = new StringBuilder();
+        for (Long id : categoryIds) {
+            ids.append(ids.isEmpty() ? "" : ",").append(id);
+        }
+        return "{\"name\":\"" + name + "\",\"description\":\"Imported product\",\"price\":" + price + ",\"categoryIds\":[" + ids + "]}";
+    }
+
+    private static InputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+}
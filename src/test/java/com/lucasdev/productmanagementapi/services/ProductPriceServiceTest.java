@@ -0,0 +1,143 @@
+package com.lucasdev.productmanagementapi.services;
+
+import com.lucasdev.productmanagementapi.DTO.ProductResponseDTO;
+import com.lucasdev.productmanagementapi.entities.Product;
+import com.lucasdev.productmanagementapi.integrations.ExchangeRateApiClient;
+import com.lucasdev.productmanagementapi.integrations.RateTableRefreshedEvent;
+import com.lucasdev.productmanagementapi.integrations.RateTableSnapshot;
+import com.lucasdev.productmanagementapi.repositories.ProductPriceRepository;
+import com.lucasdev.productmanagementapi.repositories.ProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+//the recalculation writes in its own transactions (and threads), so the test data must be committed: no test transaction here
+@DataJpaTest
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({ProductService.class, ProductPriceService.class, CatalogChangeService.class, CatalogCache.class})
+class ProductPriceServiceTest {
+
+    private static final int CATALOG_SIZE = 1200; //more than two batches of 500
+
+    @Autowired
+    private ProductPriceService productPriceService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductPriceRepository productPriceRepository;
+
+    @MockitoBean
+    private ExchangeRateApiClient exchangeRateApiClient;
+
+    private final RateTableSnapshot snapshot = new RateTableSnapshot("BRL",
+            Map.of("BRL", BigDecimal.ONE, "USD", new BigDecimal("0.18"), "EUR", new BigDecimal("0.16")), Instant.now());
+
+    @BeforeEach
+    void setUp() {
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < CATALOG_SIZE; i++) {
+            products.add(new Product(null, String.format("Product %04d", i), "A product for tests", new BigDecimal("10.00"), null));
+        }
+        productRepository.saveAll(products);
+    }
+
+    @AfterEach
+    void tearDown() {
+        productPriceRepository.deleteAllInBatch();
+        productRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("Must materialize the price of every product in every configured currency")
+    void shouldMaterializeAllProductsInAllCurrencies() {
+        productPriceService.recalculateAll(snapshot);
+
+        assertEquals(CATALOG_SIZE * 2L, productPriceRepository.count());
+    }
+
+    @Test
+    @DisplayName("Must recalculate a new table out of the thread that announced it")
+    void shouldRecalculateNewTableInBackground() throws InterruptedException {
+        productPriceService.onRateTableRefreshed(new RateTableRefreshedEvent(snapshot));
+
+        for (int i = 0; i < 100 && productPriceRepository.count() < CATALOG_SIZE * 2L; i++) {
+            Thread.sleep(50);
+        }
+        assertEquals(CATALOG_SIZE * 2L, productPriceRepository.count());
+    }
+
+    @Test
+    @DisplayName("Must convert a list page from the materialized prices, without looking up the rate")
+    void shouldConvertPageFromMaterializedPrices() {
+        productPriceService.recalculateAll(snapshot);
+        when(exchangeRateApiClient.freshSnapshot()).thenReturn(Optional.of(snapshot));
+        List<ProductResponseDTO> page = productService.findAllSimplePaged(PageRequest.of(0, 20, Sort.by("id"))).getContent();
+
+        productService.convertPrices(page, "usd");
+
+        page.forEach(dto -> assertEquals(0, new BigDecimal("1.80").compareTo(dto.getConvertedPrice())));
+        verify(exchangeRateApiClient, never()).getConversionRate(anyString(), anyString());
+    }
+
+    @Test
+    @DisplayName("Must not use the materialized price of an old product price")
+    void shouldIgnoreRowOfOldPrice() {
+        productPriceService.recalculateAll(snapshot);
+        Long productId = productService.findAllSimplePaged(PageRequest.of(0, 1, Sort.by("id"))).getContent().get(0).getId();
+        Product product = productRepository.findById(productId).orElseThrow();
+        product.setPrice(new BigDecimal("20.00"));
+        productRepository.save(product);
+        when(exchangeRateApiClient.freshSnapshot()).thenReturn(Optional.of(snapshot));
+        when(exchangeRateApiClient.getConversionRate("BRL", "USD")).thenReturn(new BigDecimal("0.18"));
+
+        List<ProductResponseDTO> page = productService.findAllSimplePaged(PageRequest.of(0, 1, Sort.by("id"))).getContent();
+        ProductResponseDTO dto = page.get(0);
+        productService.convertPrices(page, "USD");
+
+        assertEquals(0, new BigDecimal("3.60").compareTo(dto.getConvertedPrice()));
+        verify(exchangeRateApiClient, times(1)).getConversionRate("BRL", "USD");
+    }
+
+    @Test
+    @DisplayName("Must not use the materialized prices of rates that are not the ones in memory")
+    void shouldIgnoreRowsOfOtherRates() {
+        productPriceService.recalculateAll(snapshot);
+        RateTableSnapshot newRates = new RateTableSnapshot("BRL",
+                Map.of("BRL", BigDecimal.ONE, "USD", new BigDecimal("0.20"), "EUR", new BigDecimal("0.16")), Instant.now());
+        when(exchangeRateApiClient.freshSnapshot()).thenReturn(Optional.of(newRates));
+        when(exchangeRateApiClient.getConversionRate("BRL", "USD")).thenReturn(new BigDecimal("0.20"));
+        List<ProductResponseDTO> page = productService.findAllSimplePaged(PageRequest.of(0, 20, Sort.by("id"))).getContent();
+
+        productService.convertPrices(page, "USD");
+
+        page.forEach(dto -> assertEquals(0, new BigDecimal("2.00").compareTo(dto.getConvertedPrice())));
+        verify(exchangeRateApiClient, times(1)).getConversionRate("BRL", "USD");
+    }
+}
@@ -0,0 +1,129 @@
+package com.lucasdev.productmanagementapi.services;
+
+import com.lucasdev.productmanagementapi.DTO.ProductQuotationBatchResponseDTO;
+import com.lucasdev.productmanagementapi.DTO.ProductQuotationRowDTO;
+import com.lucasdev.productmanagementapi.SqlStatementRecorder;
+import com.lucasdev.productmanagementapi.entities.Product;
+import com.lucasdev.productmanagementapi.integrations.ConversionQuote;
+import com.lucasdev.productmanagementapi.integrations.ExchangeRateApiClient;
+import com.lucasdev.productmanagementapi.integrations.RateTableSnapshot;
+import com.lucasdev.productmanagementapi.repositories.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.lucasdev.productmanagementapi.SqlStatementRecorder")
+@ActiveProfiles("test")
+@Import({ProductService.class, CatalogChangeService.class, CatalogCache.class})
+class ProductQuotationBatchTest {
+
+    private static final Instant FRESH = Instant.now().minus(Duration.ofMinutes(5));
+
+    //the table in memory: a row is used only when it was converted with these rates
+    private static final RateTableSnapshot TABLE = new RateTableSnapshot("BRL",
+            Map.of("BRL", BigDecimal.ONE, "USD", new BigDecimal("0.19"), "EUR", new BigDecimal("0.17")), FRESH);
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockitoBean
+    private ExchangeRateApiClient exchangeRateApiClient;
+
+    private List<Long> productIds;
+
+    @BeforeEach
+    void setUp() {
+        productIds = productRepository.saveAllAndFlush(List.of(
+                new Product(null, "Console", "A product for tests", new BigDecimal("100.00"), null),
+                new Product(null, "Joystick", "A product for tests", new BigDecimal("20.00"), null),
+                new Product(null, "Headset", "A product for tests", new BigDecimal("50.00"), null)
+        )).stream().map(Product::getId).toList();
+
+        when(exchangeRateApiClient.getConversionQuoteAsync(eq("BRL"), anyString()))
+                .thenReturn(Mono.just(new ConversionQuote(new BigDecimal("0.20"), FRESH, true)));
+        when(exchangeRateApiClient.freshSnapshot()).thenReturn(Optional.of(TABLE));
+        SqlStatementRecorder.clear();
+    }
+
+    @Test
+    @DisplayName("Must load the products in one query, look up each distinct currency once and report the missing ids")
+    void shouldLookUpEachCurrencyOnceAndReportMissingIds() {
+        List<Long> ids = List.of(productIds.get(2), 9999L, productIds.get(0), productIds.get(2), productIds.get(1));
+
+        ProductQuotationBatchResponseDTO response = productService.getProductPricesInOtherCurrencies(ids, List.of("usd", "EUR", "USD")).block();
+
+        assertNotNull(response);
+        assertEquals(List.of(9999L), response.getMissingProductIds());
+        assertEquals(List.of("Headset", "Console", "Joystick"), response.getQuotations().stream().map(ProductQuotationRowDTO::getProductName).toList());
+        assertEquals(List.of("USD", "EUR"), List.copyOf(response.getQuotations().get(0).getConvertedPrices().keySet()));
+        //the quote of the mock is stale, like the single quotation the row says it
+        assertTrue(response.getQuotations().get(0).isStale());
+
+        verify(exchangeRateApiClient, times(1)).getConversionQuoteAsync("BRL", "USD");
+        verify(exchangeRateApiClient, times(1)).getConversionQuoteAsync("BRL", "EUR");
+        long productQueries = SqlStatementRecorder.statements().stream().filter(sql -> sql.contains(" from tb_product ")).count();
+        assertEquals(1, productQueries, SqlStatementRecorder.statements().toString());
+    }
+
+    @Test
+    @DisplayName("Must use the materialized prices of the rates in memory and convert the others with the rate")
+    void shouldUseMaterializedPricesOfCurrentRatesOnly() {
+        Long console = productIds.get(0);
+        Long joystick = productIds.get(1);
+        insertPrice(console, "USD", "100.00", "19.00", "0.19");
+        insertPrice(joystick, "USD", "20.00", "3.00", "0.15");
+
+        ProductQuotationBatchResponseDTO response = productService.getProductPricesInOtherCurrencies(List.of(console, joystick), List.of("USD")).block();
+
+        ProductQuotationRowDTO consoleRow = response.getQuotations().get(0);
+        assertEquals(0, new BigDecimal("19.00").compareTo(consoleRow.getConvertedPrices().get("USD")));
+        assertEquals(FRESH, consoleRow.getRatesFetchedAt().get("USD"));
+        assertFalse(consoleRow.isStale());
+
+        //the row of other rate is not used, the price is converted with the rate of the quote (0.20)
+        ProductQuotationRowDTO joystickRow = response.getQuotations().get(1);
+        assertEquals(0, new BigDecimal("4.00").compareTo(joystickRow.getConvertedPrices().get("USD")));
+        verify(exchangeRateApiClient, times(1)).getConversionQuoteAsync("BRL", "USD");
+    }
+
+    @Test
+    @DisplayName("Must not look up the rate when all the products have fresh materialized prices")
+    void shouldSkipRateLookupWhenAllPricesAreMaterialized() {
+        insertPrice(productIds.get(0), "EUR", "100.00", "17.00", "0.17");
+
+        ProductQuotationBatchResponseDTO response = productService.getProductPricesInOtherCurrencies(List.of(productIds.get(0)), List.of("EUR")).block();
+
+        assertEquals(0, new BigDecimal("17.00").compareTo(response.getQuotations().get(0).getConvertedPrices().get("EUR")));
+        verify(exchangeRateApiClient, never()).getConversionQuoteAsync(anyString(), anyString());
+    }
+
+    private void insertPrice(Long productId, String code, String basePrice, String convertedPrice, String rate) {
+        jdbcTemplate.update("INSERT INTO tb_product_price (product_id, currency_code, base_price, converted_price, rate, rate_fetched_at) VALUES (?, ?, ?, ?, ?, ?)",
+                productId, code, new BigDecimal(basePrice), new BigDecimal(convertedPrice), new BigDecimal(rate), Timestamp.from(FRESH));
+    }
+}
@@ -0,0 +1,103 @@
+package com.lucasdev.productmanagementapi.services;
+
+import com.lucasdev.productmanagementapi.DTO.ProductBatchResponseDTO;
+import com.lucasdev.productmanagementapi.DTO.ProductResponseDTO;
+import com.lucasdev.productmanagementapi.SqlStatementRecorder;
+import com.lucasdev.productmanagementapi.entities.Category;
+import com.lucasdev.productmanagementapi.entities.Product;
+import com.lucasdev.productmanagementapi.exceptions.InvalidParameterException;
+import com.lucasdev.productmanagementapi.integrations.ExchangeRateApiClient;
+import com.lucasdev.productmanagementapi.repositories.CategoryRepository;
+import com.lucasdev.productmanagementapi.repositories.ProductRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.lucasdev.productmanagementapi.SqlStatementRecorder")
+@ActiveProfiles("test")
+@Import({ProductService.class, CatalogChangeService.class, CatalogCache.class})
+class ProductServiceBatchTest {
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @MockitoBean
+    private ExchangeRateApiClient exchangeRateApiClient;
+
+    private List<Long> productIds;
+
+    @BeforeEach
+    void setUp() {
+        Category games = categoryRepository.save(new Category(null, "Games"));
+        Category toys = categoryRepository.save(new Category(null, "Toys"));
+
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Product product = new Product(null, "Product " + i, "A product for tests", new BigDecimal("10.00"), null);
+            product.getCategories().addAll(Set.of(games, toys));
+            products.add(product);
+        }
+        productIds = productRepository.saveAll(products).stream().map(Product::getId).toList();
+
+        entityManager.flush();
+        entityManager.clear();
+        SqlStatementRecorder.clear();
+    }
+
+    @Test
+    @DisplayName("Must return the products in the order of the request, each once, and the missing ids apart")
+    void shouldKeepRequestOrderAndReportMissingIds() {
+
+        List<Long> ids = List.of(productIds.get(3), 9999L, productIds.get(0), productIds.get(3), productIds.get(1));
+
+        ProductBatchResponseDTO batch = productService.findProductsByIds(ids);
+
+        assertEquals(List.of(productIds.get(3), productIds.get(0), productIds.get(1)),
+                batch.getProducts().stream().map(ProductResponseDTO::getId).toList());
+        assertEquals(List.of(9999L), batch.getMissingIds());
+        batch.getProducts().forEach(p -> assertEquals(2, p.getCategories().size()));
+    }
+
+    @Test
+    @DisplayName("Must load the products with their categories in one statement")
+    void shouldLoadBatchInOneStatement() {
+
+        ProductBatchResponseDTO batch = productService.findProductsByIds(productIds);
+
+        assertEquals(5, batch.getProducts().size());
+        assertEquals(1, SqlStatementRecorder.statements().size(), SqlStatementRecorder.statements().toString());
+    }
+
+    @Test
+    @DisplayName("Must refuse an empty batch and a batch over the limit")
+    void shouldRefuseEmptyAndOversizedBatch() {
+
+        List<Long> tooMany = LongStream.rangeClosed(1, ProductService.MAX_BATCH_SIZE + 1).boxed().toList();
+
+        assertThrows(InvalidParameterException.class, () -> productService.findProductsByIds(List.of()));
+        assertThrows(InvalidParameterException.class, () -> productService.findProductsByIds(tooMany));
+    }
+}
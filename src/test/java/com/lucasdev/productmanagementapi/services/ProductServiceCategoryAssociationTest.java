@@ -0,0 +1,131 @@
+package com.lucasdev.productmanagementapi.services;
+
+import com.lucasdev.productmanagementapi.DTO.ProductRequestDTO;
+import com.lucasdev.productmanagementapi.SqlStatementRecorder;
+import com.lucasdev.productmanagementapi.entities.Category;
+import com.lucasdev.productmanagementapi.entities.Product;
+import com.lucasdev.productmanagementapi.exceptions.ResourceNotFoundException;
+import com.lucasdev.productmanagementapi.integrations.ExchangeRateApiClient;
+import com.lucasdev.productmanagementapi.repositories.CategoryRepository;
+import com.lucasdev.productmanagementapi.repositories.ProductRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.lucasdev.productmanagementapi.SqlStatementRecorder")
+@ActiveProfiles("test")
+@Import({ProductService.class, CatalogChangeService.class, CatalogCache.class})
+class ProductServiceCategoryAssociationTest {
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @MockitoBean
+    private ExchangeRateApiClient exchangeRateApiClient;
+
+    private List<Long> categoryIds;
+
+    @BeforeEach
+    void setUp() {
+        List<Category> categories = new ArrayList<>();
+        for (int i = 0; i < 31; i++) {
+            categories.add(new Category(null, "Category " + i));
+        }
+        categoryIds = categoryRepository.saveAll(categories).stream().map(Category::getId).toList();
+
+        entityManager.flush();
+        entityManager.clear();
+        SqlStatementRecorder.clear();
+    }
+
+    @Test
+    @DisplayName("Must resolve the categories with the same number of statements for 3 or 30 categories")
+    void shouldResolveCategoriesWithConstantStatements() {
+
+        // Act... 3 categories
+        productService.associateCategoriesToProduct(newProduct("Few"), new HashSet<>(categoryIds.subList(0, 3)));
+        int statementsForFew = SqlStatementRecorder.statements().size();
+
+        entityManager.clear();
+        SqlStatementRecorder.clear();
+
+        // Act... 30 categories
+        Product many = newProduct("Many");
+        productService.associateCategoriesToProduct(many, new HashSet<>(categoryIds.subList(0, 30)));
+        int statementsForMany = SqlStatementRecorder.statements().size();
+
+        // Assert
+        assertEquals(30, many.getCategories().size());
+        assertEquals(1, statementsForFew, "one query for all the categories");
+        assertEquals(statementsForFew, statementsForMany, "the number of statements can´t grow with the categories");
+    }
+
+    @Test
+    @DisplayName("Must report exactly the category ids that don´t exist")
+    void shouldReportMissingCategoryIds() {
+
+        Set<Long> ids = new HashSet<>(List.of(categoryIds.get(0), 9998L, 9999L));
+
+        ResourceNotFoundException thrown = assertThrows(ResourceNotFoundException.class,
+                () -> productService.associateCategoriesToProduct(newProduct("Missing"), ids));
+
+        assertTrue(thrown.getMessage().contains("[9998, 9999]"), thrown.getMessage());
+    }
+
+    @Test
+    @DisplayName("Must write only the changed rows of tb_product_category in the update")
+    void shouldWriteOnlyChangedAssociationRowsOnUpdate() {
+
+        // Arrange... a product with the categories 0 until 29
+        Product product = newProduct("Diff");
+        productService.associateCategoriesToProduct(product, new HashSet<>(categoryIds.subList(0, 30)));
+        product = productRepository.save(product);
+        entityManager.flush();
+        entityManager.clear();
+
+        //switching the category 0 for the category 30
+        Set<Long> newIds = new HashSet<>(categoryIds.subList(1, 31));
+        ProductRequestDTO dto = new ProductRequestDTO(product.getName(), product.getDescription(), product.getPrice(), null, newIds);
+        SqlStatementRecorder.clear();
+
+        // Act
+        productService.updateProduct(product.getId(), dto);
+        entityManager.flush();
+
+        // Assert... one row deleted and one row inserted, not the 30 rows again
+        List<String> statements = SqlStatementRecorder.statements();
+        assertEquals(1, count(statements, "delete from tb_product_category"), statements.toString());
+        assertEquals(1, count(statements, "insert into tb_product_category"), statements.toString());
+    }
+
+    private Product newProduct(String name) {
+        return new Product(null, name, "A product for tests", new BigDecimal("10.00"), null);
+    }
+
+    private long count(List<String> statements, String prefix) {
+        return statements.stream().filter(sql -> sql.startsWith(prefix)).count();
+    }
+}
@@ -0,0 +1,124 @@
+package com.lucasdev.productmanagementapi.services;
+
+import com.lucasdev.productmanagementapi.DTO.ProductResponseDTO;
+import com.lucasdev.productmanagementapi.SqlStatementRecorder;
+import com.lucasdev.productmanagementapi.entities.Category;
+import com.lucasdev.productmanagementapi.entities.Product;
+import com.lucasdev.productmanagementapi.integrations.ExchangeRateApiClient;
+import com.lucasdev.productmanagementapi.repositories.CategoryRepository;
+import com.lucasdev.productmanagementapi.repositories.ProductRepository;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.lucasdev.productmanagementapi.SqlStatementRecorder")
+@ActiveProfiles("test")
+@Import({ProductService.class, CatalogChangeService.class, CatalogCache.class})
+class ProductServicePagingTest {
+
+    private static final int CATALOG_SIZE = 200;
+    private static final int CATEGORIES = 5;
+    private static final int PAGE_SIZE = 10;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    //the quotation is not used here
+    @MockitoBean
+    private ExchangeRateApiClient exchangeRateApiClient;
+
+    @BeforeEach
+    void setUp() {
+        List<Category> categories = new ArrayList<>();
+        for (int i = 0; i < CATEGORIES; i++) {
+            categories.add(new Category(null, "Category " + i));
+        }
+        categories = categoryRepository.saveAll(categories);
+
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < CATALOG_SIZE; i++) {
+            Product product = new Product(null, String.format("Product %03d", i), "A product for tests", new BigDecimal("10.00"), null);
+            product.getCategories().add(categories.get(i % CATEGORIES));
+            product.getCategories().add(categories.get((i + 1) % CATEGORIES));
+            products.add(product);
+        }
+        productRepository.saveAll(products);
+
+        //starting the tests with the persistence context empty, like a new request
+        entityManager.flush();
+        entityManager.clear();
+        SqlStatementRecorder.clear();
+    }
+
+    @Test
+    @DisplayName("Must paginate the simple list in the database and keep in memory only the rows of the page")
+    void shouldPaginateSimpleListInTheDatabase() {
+
+        // Act
+        Page<ProductResponseDTO> page = productService.findAllSimplePaged(PageRequest.of(3, PAGE_SIZE, Sort.by("name")));
+
+        // Assert... the page is right
+        assertEquals(PAGE_SIZE, page.getContent().size());
+        assertEquals(CATALOG_SIZE, page.getTotalElements());
+        assertEquals("Product 030", page.getContent().get(0).getName());
+        assertEquals(2, page.getContent().get(0).getCategories().size());
+
+        //the first SQL is the page of ids, and the pagination must be in it
+        List<String> statements = SqlStatementRecorder.statements();
+        assertTrue(isPaginated(statements.get(0)), "the ids query must have LIMIT/FETCH FIRST: " + statements.get(0));
+
+        //only the products of the page (and their categories) were loaded, not the whole catalog
+        assertTrue(managedEntities() <= PAGE_SIZE + CATEGORIES, "entities in memory: " + managedEntities());
+    }
+
+    @Test
+    @DisplayName("Must paginate the search with filters in the database and keep in memory only the rows of the page")
+    void shouldPaginateFilteredSearchInTheDatabase() {
+
+        Page<ProductResponseDTO> page = productService.findAllPaged("product 0", null, PageRequest.of(0, PAGE_SIZE, Sort.by("name")));
+
+        assertEquals(PAGE_SIZE, page.getContent().size());
+        assertEquals(100, page.getTotalElements()); // "Product 000" until "Product 099"
+        assertEquals("Product 000", page.getContent().get(0).getName());
+        assertEquals(2, page.getContent().get(0).getCategories().size());
+
+        List<String> statements = SqlStatementRecorder.statements();
+        assertTrue(isPaginated(statements.get(0)), "the search query must have LIMIT/FETCH FIRST: " + statements.get(0));
+        //the first phase selects only the id, the products are loaded once (in the second phase, with the categories)
+        assertFalse(statements.get(0).contains("description"), "the search query must select only the ids: " + statements.get(0));
+        assertTrue(managedEntities() <= PAGE_SIZE + CATEGORIES, "entities in memory: " + managedEntities());
+    }
+
+    private boolean isPaginated(String sql) {
+        return sql.contains(" limit ") || sql.contains(" fetch first ");
+    }
+
+    private int managedEntities() {
+        return entityManager.unwrap(Session.class).getStatistics().getEntityCount();
+    }
+}